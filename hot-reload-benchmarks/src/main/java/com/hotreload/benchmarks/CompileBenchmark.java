@@ -0,0 +1,78 @@
+package com.hotreload.benchmarks;
+
+import com.hotreload.core.HotSourceCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HotSourceCompiler#compile(Path)} for one source file: warm reuses a
+ * compiler whose javac session is already open, cold creates a new compiler
+ * for every call, as a fresh engine would for its first reload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompileBenchmark {
+
+    /** Number of methods in the compiled class. */
+    @Param({"10", "500"})
+    public int methods;
+
+    private Path sourceRoot;
+    private Path sourceFile;
+    private HotSourceCompiler warmCompiler;
+    private HotSourceCompiler coldCompiler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sourceRoot = Files.createTempDirectory("hot-reload-compile");
+        sourceFile = SyntheticSources.write(sourceRoot, "Compiled", methods, 1, false);
+        warmCompiler = new HotSourceCompiler();
+        warmCompiler.compile(sourceFile);
+    }
+
+    @Setup(Level.Invocation)
+    public void newCompiler() {
+        coldCompiler = new HotSourceCompiler();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeCompiler() throws IOException {
+        coldCompiler.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        warmCompiler.close();
+        SyntheticSources.deleteRecursively(sourceRoot);
+    }
+
+    @Benchmark
+    public byte[] warm() throws IOException {
+        return warmCompiler.compile(sourceFile);
+    }
+
+    @Benchmark
+    public byte[] cold() throws IOException {
+        return coldCompiler.compile(sourceFile);
+    }
+}
@@ -0,0 +1,112 @@
+package com.hotreload.benchmarks;
+
+import com.hotreload.core.HotClassRegistry;
+import com.hotreload.core.HotClassReloader;
+import com.hotreload.core.HotSourceCompiler;
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Cost of a call routed to a new generation of a class after a structural
+ * change, once the JIT compiled the caller. {@code direct} calls a class that was
+ * never reloaded; the {@code routed} calls go through the stub of a class that
+ * has a field added, to a static method and to an instance method, the latter
+ * also mapping the receiver to its shadow instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationDispatchBenchmark {
+
+    private Path workDir;
+    private URLClassLoader loader;
+    private IntUnaryOperator direct;
+    private IntUnaryOperator routedStatic;
+    private IntUnaryOperator routedInstance;
+    private int x;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("hot-reload-dispatch");
+        Path outputDir = workDir.resolve("classes");
+        Path directSource = write(workDir.resolve("v1"), "Direct", "");
+        Path routedSource = write(workDir.resolve("v1"), "Routed", "");
+        try (HotSourceCompiler compiler = new HotSourceCompiler(outputDir)) {
+            compiler.compileClasses(List.of(directSource, routedSource));
+        }
+
+        loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> directClass = loader.loadClass(SyntheticSources.binaryName("Direct"));
+        Class<?> routedClass = loader.loadClass(SyntheticSources.binaryName("Routed"));
+        direct = (IntUnaryOperator) directClass.getDeclaredConstructor().newInstance();
+        routedInstance = (IntUnaryOperator) routedClass.getDeclaredConstructor().newInstance();
+        routedStatic = (IntUnaryOperator) routedClass.getField("STATIC").get(null);
+
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(routedClass.getName(), loader,
+            Files.readAllBytes(outputDir.resolve(SyntheticSources.PACKAGE.replace('.', '/')).resolve("Routed.class")));
+        Path routedV2 = write(workDir.resolve("v2"), "Routed", "private int added;");
+        try (HotSourceCompiler compiler = new HotSourceCompiler()) {
+            new HotClassReloader(ByteBuddyAgent.install()).reload(compiler.compileClasses(routedV2), registry);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        loader.close();
+        SyntheticSources.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public int direct() {
+        return direct.applyAsInt(x++);
+    }
+
+    @Benchmark
+    public int routedStatic() {
+        return routedStatic.applyAsInt(x++);
+    }
+
+    @Benchmark
+    public int routedInstance() {
+        return routedInstance.applyAsInt(x++);
+    }
+
+    private static Path write(Path sourceRoot, String className, String extraField) throws IOException {
+        Path packageDir = sourceRoot.resolve(SyntheticSources.PACKAGE.replace('.', '/'));
+        Files.createDirectories(packageDir);
+        return Files.writeString(packageDir.resolve(className + ".java"), """
+            package %1$s;
+            @com.hotreload.annotation.HotReload(generations = true)
+            public class %2$s implements java.util.function.IntUnaryOperator {
+                public static final java.util.function.IntUnaryOperator STATIC = %2$s::compute;
+                %3$s
+                public static int compute(int x) { return x * 31 + 7; }
+                public int applyAsInt(int x) { return x * 31 + 7; }
+            }
+            """.formatted(SyntheticSources.PACKAGE, className, extraField));
+    }
+}
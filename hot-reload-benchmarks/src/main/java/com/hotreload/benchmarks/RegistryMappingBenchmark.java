@@ -0,0 +1,67 @@
+package com.hotreload.benchmarks;
+
+import com.hotreload.core.HotClassRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup mapping cost of the engine over a synthetic class set: registering
+ * {@code classes} reloadable classes as they load, then mapping each of their
+ * source files back to the class, as the first change in each file does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryMappingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int classes;
+
+    private String[] binaryNames;
+    private Path[] sourceFiles;
+    private List<Path> sourceRoots;
+    private ClassLoader loader;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path root = Path.of("src/main/java").toAbsolutePath();
+        sourceRoots = List.of(root);
+        binaryNames = new String[classes];
+        sourceFiles = new Path[classes];
+        for (int i = 0; i < classes; i++) {
+            String name = SyntheticSources.PACKAGE + ".module" + (i % 50) + ".Synthetic" + i;
+            binaryNames[i] = name;
+            sourceFiles[i] = root.resolve(name.replace('.', '/') + ".java");
+        }
+        loader = getClass().getClassLoader();
+    }
+
+    @Benchmark
+    public HotClassRegistry registerAndMap() {
+        HotClassRegistry registry = new HotClassRegistry();
+        for (String name : binaryNames) {
+            registry.register(name, loader);
+        }
+        for (Path sourceFile : sourceFiles) {
+            registry.classNameForSource(sourceFile, sourceRoots);
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,111 @@
+package com.hotreload.benchmarks;
+
+import com.hotreload.core.HotClassReloader;
+import com.hotreload.core.HotSourceCompiler;
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HotClassReloader#reload(Map)} by class size and batch size. Each
+ * {@code changed} call alternates between two versions, so every class is
+ * really redefined; {@code unchanged} measures the no-op check alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReloadBenchmark {
+
+    /** Number of methods per class. */
+    @Param({"10", "500"})
+    public int methods;
+
+    /** Number of classes redefined together. */
+    @Param({"1", "10"})
+    public int batchSize;
+
+    private Path workDir;
+    private URLClassLoader loader;
+    private HotClassReloader reloader;
+    private final List<Map<Class<?>, byte[]>> versions = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("hot-reload-redefine");
+        Path sourceRoot = workDir.resolve("src");
+        Path outputDir = workDir.resolve("classes");
+
+        List<Path> v1 = new ArrayList<>();
+        List<Path> v2 = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            v1.add(SyntheticSources.write(sourceRoot.resolve("v1"), "Reloaded" + i, methods, 1, false));
+            v2.add(SyntheticSources.write(sourceRoot.resolve("v2"), "Reloaded" + i, methods, 2, false));
+        }
+        Map<String, byte[]> v1Classes;
+        Map<String, byte[]> v2Classes;
+        try (HotSourceCompiler compiler = new HotSourceCompiler(outputDir)) {
+            v1Classes = compiler.compileClasses(v1);
+        }
+        try (HotSourceCompiler compiler = new HotSourceCompiler()) {
+            v2Classes = compiler.compileClasses(v2);
+        }
+
+        loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Map<Class<?>, byte[]> first = new LinkedHashMap<>();
+        Map<Class<?>, byte[]> second = new LinkedHashMap<>();
+        for (int i = 0; i < batchSize; i++) {
+            String name = SyntheticSources.binaryName("Reloaded" + i);
+            Class<?> clazz = loader.loadClass(name);
+            clazz.getDeclaredConstructor().newInstance();
+            first.put(clazz, v1Classes.get(name));
+            second.put(clazz, v2Classes.get(name));
+        }
+        versions.add(second);
+        versions.add(first);
+
+        reloader = new HotClassReloader(ByteBuddyAgent.install());
+        reloader.reload(first);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        loader.close();
+        SyntheticSources.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public void changed() throws Exception {
+        reloader.reload(versions.get(next));
+        next ^= 1;
+    }
+
+    @Benchmark
+    public void unchanged() throws Exception {
+        reloader.reload(versions.get(next ^ 1));
+    }
+}
@@ -0,0 +1,57 @@
+package com.hotreload.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * Generates compilable sources of a chosen size for the benchmarks.
+ */
+final class SyntheticSources {
+
+    static final String PACKAGE = "com.hotreload.benchmarks.synthetic";
+
+    private SyntheticSources() {}
+
+    /**
+     * Writes {@code className.java} with {@code methods} small methods under
+     * {@code sourceRoot} and returns its path.
+     *
+     * @param version baked into every method body, so two versions differ in executable code
+     */
+    static Path write(Path sourceRoot, String className, int methods, int version, boolean annotated)
+            throws IOException {
+        StringBuilder source = new StringBuilder()
+            .append("package ").append(PACKAGE).append(";\n\n");
+        if (annotated) {
+            source.append("@com.hotreload.annotation.HotReload\n");
+        }
+        source.append("public class ").append(className).append(" {\n");
+        for (int i = 0; i < methods; i++) {
+            source.append("    public int method").append(i).append("(int x) {\n")
+                .append("        int result = x * ").append(i + 1).append(" + ").append(version).append(";\n")
+                .append("        for (int j = 0; j < x; j++) { result ^= j << ").append(i % 7).append("; }\n")
+                .append("        return result;\n")
+                .append("    }\n");
+        }
+        source.append("}\n");
+
+        Path packageDir = sourceRoot.resolve(PACKAGE.replace('.', '/'));
+        Files.createDirectories(packageDir);
+        return Files.writeString(packageDir.resolve(className + ".java"), source);
+    }
+
+    static String binaryName(String className) {
+        return PACKAGE + "." + className;
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) return;
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
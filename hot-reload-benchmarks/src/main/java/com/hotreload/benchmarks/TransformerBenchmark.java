@@ -0,0 +1,88 @@
+package com.hotreload.benchmarks;
+
+import com.hotreload.agent.HotReloadTransformer;
+import com.hotreload.core.HotClassRegistry;
+import com.hotreload.core.HotClassRegistryTransformer;
+import com.hotreload.core.HotSourceCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-class-load overhead of the agent's transformers on an application class,
+ * with and without {@code @HotReload}. Neither transformer modifies bytecode,
+ * so this is the whole cost the agent adds to class loading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformerBenchmark {
+
+    /** Number of methods in the loaded class. */
+    @Param({"10", "500"})
+    public int methods;
+
+    /** Whether the loaded class carries {@code @HotReload}. */
+    @Param({"false", "true"})
+    public boolean annotated;
+
+    private Path sourceRoot;
+    private String internalName;
+    private byte[] classfile;
+    private ClassLoader loader;
+    private HotReloadTransformer startupTransformer;
+    private HotClassRegistryTransformer registryTransformer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sourceRoot = Files.createTempDirectory("hot-reload-transform");
+        Path source = SyntheticSources.write(sourceRoot, "Loaded", methods, 1, annotated);
+        try (HotSourceCompiler compiler = new HotSourceCompiler()) {
+            classfile = compiler.compile(source);
+        }
+        internalName = SyntheticSources.binaryName("Loaded").replace('.', '/');
+        loader = getClass().getClassLoader();
+
+        // never sees @EnableHotReload, so the instrumentation is never used
+        startupTransformer = new HotReloadTransformer(null);
+        registryTransformer = new HotClassRegistryTransformer(new HotClassRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticSources.deleteRecursively(sourceRoot);
+    }
+
+    @Benchmark
+    public byte[] startupTransformer() {
+        return startupTransformer.transform(loader, internalName, null, null, classfile);
+    }
+
+    @Benchmark
+    public byte[] registryTransformer() {
+        return registryTransformer.transform(loader, internalName, null, null, classfile);
+    }
+
+    @Benchmark
+    public byte[] excludedClass() {
+        return registryTransformer.transform(loader, "java/util/ArrayList", null, null, classfile);
+    }
+}
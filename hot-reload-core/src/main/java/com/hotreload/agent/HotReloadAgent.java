@@ -1,7 +1,27 @@
 package com.hotreload.agent;
 
+import com.hotreload.core.BytecodeCache;
+import com.hotreload.core.ClassAnnotationScanner;
+import com.hotreload.core.FleetSubscriber;
+import com.hotreload.core.HotClassRegistry;
+import com.hotreload.core.HotClassReloader;
+
 import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Agent entry points. Agent arguments are comma separated {@code key=value} pairs:
+ * {@code fleet=host:port} subscribes this JVM to a fleet coordinator instead of
+ * watching and compiling sources itself, and {@code node=name} names it in the
+ * coordinator's reports (defaults to {@code pid@host}). {@code cache=dir} loads
+ * reloaded classes from a {@link BytecodeCache} in {@code dir} as they were last
+ * reloaded, from the first class on. {@code skip=org.springframework;com.google}
+ * does not scan classes of these packages for annotations as they load.
+ */
 public class HotReloadAgent {
 
     private static Instrumentation instrumentation;
@@ -10,14 +30,68 @@ public class HotReloadAgent {
 
     public static void premain(String args, Instrumentation inst) {
         instrumentation = inst;
-        inst.addTransformer(new HotReloadTransformer(inst), false);
+        skipPackages(args);
+        useBytecodeCache(args);
+        HotClassRegistry.shared().install(inst, false);
+        if (!subscribe(args, inst)) {
+            inst.addTransformer(new HotReloadTransformer(inst), false);
+        }
     }
 
     public static void agentmain(String args, Instrumentation inst) {
-        premain(args, inst);
+        instrumentation = inst;
+        skipPackages(args);
+        useBytecodeCache(args);
+        HotClassRegistry.shared().install(inst, true);
+        if (!subscribe(args, inst)) {
+            inst.addTransformer(new HotReloadTransformer(inst), false);
+        }
     }
 
     public static Instrumentation getInstrumentation() {
         return instrumentation;
     }
+
+    private static void skipPackages(String args) {
+        String skip = parseArgs(args).get("skip");
+        if (skip != null && !skip.isEmpty()) {
+            ClassAnnotationScanner.skipPackages(Arrays.asList(skip.split(";")));
+        }
+    }
+
+    private static void useBytecodeCache(String args) {
+        String cache = parseArgs(args).get("cache");
+        if (cache != null && !cache.isEmpty()) {
+            HotClassRegistry.shared().useBytecodeCache(new BytecodeCache(Path.of(cache)));
+        }
+    }
+
+    private static boolean subscribe(String args, Instrumentation inst) {
+        Map<String, String> options = parseArgs(args);
+        String fleet = options.get("fleet");
+        if (fleet == null) return false;
+
+        int separator = fleet.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected fleet=host:port, got fleet=" + fleet);
+        }
+        String host = fleet.substring(0, separator);
+        int port = Integer.parseInt(fleet.substring(separator + 1));
+        String nodeId = options.getOrDefault("node", ManagementFactory.getRuntimeMXBean().getName());
+
+        new FleetSubscriber(host, port, nodeId, HotClassRegistry.shared(), new HotClassReloader(inst)).start();
+        return true;
+    }
+
+    private static Map<String, String> parseArgs(String args) {
+        Map<String, String> options = new HashMap<>();
+        if (args == null || args.isBlank()) return options;
+        for (String pair : args.split(",")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                options.put(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim());
+            }
+        }
+        return options;
+    }
 }
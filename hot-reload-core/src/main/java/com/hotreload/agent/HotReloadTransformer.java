@@ -1,7 +1,9 @@
 package com.hotreload.agent;
 
 import com.hotreload.annotation.EnableHotReload;
+import com.hotreload.core.ClassAnnotationScanner;
 import com.hotreload.core.HotReloadEngine;
+import com.hotreload.core.HotReloadOptions;
 
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
@@ -13,7 +15,7 @@ import java.util.logging.Logger;
 public class HotReloadTransformer implements ClassFileTransformer {
 
     private static final Logger LOG = Logger.getLogger(HotReloadTransformer.class.getName());
-    private static final byte[] ANNOTATION_PATTERN =
+    private static final byte[] ANNOTATION_DESCRIPTOR =
             "Lcom/hotreload/annotation/EnableHotReload;".getBytes(StandardCharsets.US_ASCII);
 
     private final Instrumentation instrumentation;
@@ -26,12 +28,20 @@ public class HotReloadTransformer implements ClassFileTransformer {
     @Override
     public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
                             ProtectionDomain protectionDomain, byte[] classfileBuffer) {
-        if (started || classBeingRedefined != null || loader == null) {
+        if (started || classBeingRedefined != null || ClassAnnotationScanner.isExcluded(loader, className)
+                || ClassAnnotationScanner.isSkipped(className, classfileBuffer, ANNOTATION_DESCRIPTOR)) {
             return null;
         }
 
-        if (containsAnnotation(classfileBuffer)) {
+        if (HotReloadEngine.isRunning()) {
             started = true;
+            instrumentation.removeTransformer(this);
+            return null;
+        }
+
+        if (ClassAnnotationScanner.hasAnnotation(classfileBuffer, ANNOTATION_DESCRIPTOR)) {
+            started = true;
+            instrumentation.removeTransformer(this);
             String dotName = className.replace('/', '.');
             LOG.log(Level.INFO, "[HotReload] Found @EnableHotReload on {0}, scheduling engine start...", dotName);
 
@@ -43,24 +53,6 @@ public class HotReloadTransformer implements ClassFileTransformer {
         return null;
     }
 
-    private static boolean containsAnnotation(byte[] bytecode) {
-        for (int i = 0; i <= bytecode.length - ANNOTATION_PATTERN.length; i++) {
-            if (matchesAt(bytecode, i)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean matchesAt(byte[] bytecode, int offset) {
-        for (int j = 0; j < ANNOTATION_PATTERN.length; j++) {
-            if (bytecode[offset + j] != ANNOTATION_PATTERN[j]) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     private void startEngine(ClassLoader loader, String className) {
         try {
             Thread.sleep(500);
@@ -68,9 +60,9 @@ public class HotReloadTransformer implements ClassFileTransformer {
             Class<?> appClass = Class.forName(className, true, loader);
             EnableHotReload config = appClass.getAnnotation(EnableHotReload.class);
 
-            String[] sourcePaths = (config != null) ? config.sourcePaths() : HotReloadEngine.DEFAULT_SOURCE_PATHS;
+            HotReloadOptions options = (config != null) ? HotReloadOptions.from(config) : HotReloadOptions.defaults();
 
-            HotReloadEngine.startIfNotRunning(instrumentation, sourcePaths);
+            HotReloadEngine.startIfNotRunning(instrumentation, options);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             LOG.warning("[HotReload] Engine start interrupted");
@@ -4,9 +4,120 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.function.BooleanSupplier;
 
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 public @interface EnableHotReload {
     String[] sourcePaths() default {"src/main/java"};
+
+    /**
+     * Class output directories, e.g. {@code target/classes}, written by the IDE or
+     * build. When set, these are watched instead of {@link #sourcePaths()} and
+     * changed class files are reloaded as they are, without compiling in this JVM.
+     */
+    String[] classPaths() default {};
+
+    /**
+     * Quiet period in milliseconds after the last file event before the
+     * accumulated changes are compiled and reloaded together.
+     */
+    long debounceMs() default 100;
+
+    /**
+     * Number of threads compiling changes in parallel, one task per independent
+     * source root. {@code 0} uses one per core, capped at the number of source paths.
+     */
+    int compileThreads() default 0;
+
+    /**
+     * Capacity of the queues between the watch, compile and redefine stages.
+     * When full, the watcher keeps coalescing changes until there is room.
+     */
+    int queueCapacity() default 16;
+
+    /**
+     * How source paths are monitored. Use {@link WatchMode#POLLING} where file
+     * events are not delivered, e.g. on Docker bind mounts and network file systems.
+     */
+    WatchMode watchMode() default WatchMode.WATCH_SERVICE;
+
+    /** Time in milliseconds between two rescans in {@link WatchMode#POLLING} mode. */
+    long scanIntervalMs() default 1000;
+
+    /** Threads walking the source paths in {@link WatchMode#POLLING} mode. */
+    int scanThreads() default 1;
+
+    /**
+     * Loopback port on which this JVM publishes every compiled change to other
+     * JVMs running the agent with {@code fleet=host:port}, so replicas apply it
+     * without compiling. {@code 0} disables publishing.
+     */
+    int fleetPort() default 0;
+
+    /**
+     * Bytecode versions kept per class, including the original and the current
+     * one, so a class can be rolled back without compiling. At least {@code 2}.
+     */
+    int historyDepth() default 8;
+
+    /**
+     * Redefinitions applied per minute at most. Changes beyond the limit are
+     * held back and applied together later. {@code 0} means unlimited.
+     */
+    int maxReloadsPerMinute() default 0;
+
+    /**
+     * Minimum time in milliseconds between two redefinitions; changes arriving
+     * meanwhile are grouped into the next one. {@code 0} means none.
+     */
+    long quietWindowMs() default 0;
+
+    /**
+     * Class with a no-argument constructor whose {@code getAsBoolean()} returns
+     * {@code true} while the application is too busy for a redefinition, e.g.
+     * based on CPU load or requests in flight. The default ignores load.
+     */
+    Class<? extends BooleanSupplier> loadSignal() default BooleanSupplier.class;
+
+    /**
+     * Longest time in milliseconds changes wait for {@link #loadSignal()} to
+     * report an idle application before they are applied anyway. {@code 0}
+     * waits as long as it takes.
+     */
+    long maxDeferMs() default 0;
+
+    /**
+     * Compiles in a separate daemon JVM started and supervised by the engine
+     * instead of in this JVM, keeping javac's allocations off the application
+     * heap. This JVM may then be a JRE if {@link #compileDaemonJavaHome()} names a JDK.
+     */
+    boolean compileDaemon() default false;
+
+    /** Maximum heap of the compile daemon in megabytes. */
+    int compileDaemonHeapMb() default 512;
+
+    /**
+     * Time in milliseconds after which an unused compile daemon exits; it is
+     * started again on the next change. {@code 0} keeps it running.
+     */
+    long compileDaemonIdleMs() default 600_000;
+
+    /** JDK that runs the compile daemon. The default uses this JVM's {@code java.home}. */
+    String compileDaemonJavaHome() default "";
+
+    /**
+     * Directory of a bytecode cache that survives restarts: sources compiled
+     * before are not compiled again, and reloaded classes load as last reloaded
+     * after a restart until the build changes them. Classes loading before the
+     * engine starts need the agent argument {@code cache=<dir>}. Empty disables it.
+     */
+    String bytecodeCacheDir() default "";
+
+    /**
+     * Reports for every redefinition how many compiled methods it invalidated, how
+     * long its safepoint took and how long the JIT took to compile them again,
+     * using JFR streaming. See {@code HotReloadEngine.reloadImpactReports()}.
+     */
+    boolean reportReloadImpact() default false;
 }
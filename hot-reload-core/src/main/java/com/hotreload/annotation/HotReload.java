@@ -7,4 +7,13 @@ import java.lang.annotation.Target;
 
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
-public @interface HotReload {}
+public @interface HotReload {
+
+    /**
+     * Whether changes {@code redefineClasses} cannot apply, such as added fields
+     * or methods, load a new generation of the class in a fresh class loader
+     * instead of failing. Calls to the public, protected and package-private
+     * methods of the class are then routed to the newest generation.
+     */
+    boolean generations() default false;
+}
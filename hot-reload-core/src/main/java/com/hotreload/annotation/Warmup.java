@@ -0,0 +1,23 @@
+package com.hotreload.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a static, parameterless method of a {@link HotReload} class that
+ * exercises its hot paths. After the class or one of its nested classes is
+ * reloaded, the method is called on a background thread so the JIT compiles the
+ * new code before requests reach it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Warmup {
+
+    /**
+     * Number of calls per reload. The default reaches the C2 compile threshold
+     * of methods the warmup method calls once per invocation.
+     */
+    int iterations() default 10_000;
+}
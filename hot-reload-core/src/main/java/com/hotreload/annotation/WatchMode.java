@@ -0,0 +1,14 @@
+package com.hotreload.annotation;
+
+/** How source directories are monitored for changes. */
+public enum WatchMode {
+
+    /** Native file system notifications via NIO {@code WatchService}. */
+    WATCH_SERVICE,
+
+    /**
+     * Periodic rescans against an in-memory snapshot. Use on bind-mounted
+     * container volumes and network file systems that do not deliver events.
+     */
+    POLLING
+}
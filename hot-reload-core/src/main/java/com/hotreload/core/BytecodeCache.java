@@ -0,0 +1,466 @@
+package com.hotreload.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk bytecode cache that survives restarts. Class files are stored once
+ * under the SHA-256 of their content; two kinds of entries refer to them:
+ *
+ * <ul>
+ *   <li>compile results, keyed by the content of the compiled sources, the
+ *       classpath and the compiler, so saving a source that was compiled before
+ *       skips javac entirely. They also list the class files on classpath
+ *       directories the compiled classes refer to or inlined constants of, and
+ *       are only used while those are unchanged;</li>
+ *   <li>the last applied version of each {@code @HotReload} class, which
+ *       {@link HotClassRegistryTransformer} defines instead of the build's
+ *       version when the class loads again after a restart.</li>
+ * </ul>
+ *
+ * An applied version is only used while the build still produces the class
+ * files it replaced, for the class and all its nested classes; after a rebuild
+ * the build's version wins. Failures to read or write the cache are logged and
+ * never fail a reload. The directory may be deleted at any time.
+ *
+ * <p>At most {@value #MAX_COMPILES} compile results are kept, dropping the least
+ * recently used ones together with the class files nothing refers to anymore.
+ */
+public final class BytecodeCache {
+
+    private static final Logger LOG = Logger.getLogger(BytecodeCache.class.getName());
+
+    private static final String NEW_CLASS = "-";
+
+    static final int MAX_COMPILES = 1024;
+    /** Stores between two checks whether compile results have to be pruned; the first store of a run checks. */
+    private static final int PRUNE_INTERVAL = 64;
+
+    private final Path objects;
+    private final Path compiles;
+    private final Path classes;
+    private final int maxCompiles;
+    private int storesUntilPrune;
+    private final Map<String, Optional<Applied>> appliedByHost = new ConcurrentHashMap<>();
+    private final Map<ClassLoader, Map<String, Boolean>> acceptedByLoader = new WeakHashMap<>();
+
+    public BytecodeCache(Path directory) {
+        this(directory, MAX_COMPILES);
+    }
+
+    BytecodeCache(Path directory, int maxCompiles) {
+        Path root = directory.toAbsolutePath().normalize();
+        this.objects = root.resolve("objects");
+        this.compiles = root.resolve("compiles");
+        this.classes = root.resolve("classes");
+        this.maxCompiles = maxCompiles;
+    }
+
+    /** Key of a compile: the sources by path and content, the classpath with its jars' sizes and times, the compiler. */
+    String compileKey(Map<Path, String> sources, String classpath, String compilerId) {
+        StringBuilder key = new StringBuilder(compilerId).append('\n')
+            .append(fingerprint(classpath)).append('\n');
+        Map<String, String> sorted = new TreeMap<>();
+        sources.forEach((path, content) -> sorted.put(path.toString(), content));
+        sorted.forEach((path, content) -> key.append(path).append('\t')
+            .append(HotReloadIndex.hash(content.getBytes(StandardCharsets.UTF_8))).append('\n'));
+        return HotReloadIndex.hash(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the classes of an earlier compile with the same key, filling in its
+     * constant usage, or {@code null} if there is none or a class file it read
+     * from a directory of {@code classpath} changed since.
+     */
+    Map<String, byte[]> findCompile(String key, String classpath, Map<String, Set<String>> constantUsage) {
+        Path manifest = compiles.resolve(key);
+        try {
+            List<Path> directories = directories(classpath);
+            Map<String, byte[]> result = new LinkedHashMap<>();
+            Map<String, Set<String>> usage = new HashMap<>();
+            for (String[] fields : lines(Files.readString(manifest, StandardCharsets.UTF_8))) {
+                if (fields[0].equals("class") && fields.length == 3) {
+                    result.put(fields[1], readObject(fields[2]));
+                } else if (fields[0].equals("uses") && fields.length == 3) {
+                    usage.computeIfAbsent(fields[1], k -> new LinkedHashSet<>()).add(fields[2]);
+                } else if (fields[0].equals("reads") && fields.length == 3
+                        && !fields[2].equals(classFileHash(directories, fields[1]))) {
+                    LOG.log(Level.FINE, "[HotReload] {0} changed, not using the cached compile", fields[1]);
+                    return null;
+                }
+            }
+            if (result.isEmpty()) return null;
+            touch(manifest);
+            constantUsage.putAll(usage);
+            return result;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Ignoring unreadable bytecode cache entry " + manifest, e);
+            return null;
+        }
+    }
+
+    synchronized void storeCompile(String key, String classpath, Map<String, byte[]> compiled,
+                                   Map<String, Set<String>> constantUsage) {
+        try {
+            StringBuilder manifest = new StringBuilder();
+            Set<String> read = new TreeSet<>();
+            for (Map.Entry<String, byte[]> entry : compiled.entrySet()) {
+                manifest.append("class\t").append(entry.getKey()).append('\t')
+                    .append(writeObject(entry.getValue())).append('\n');
+                read.addAll(new ClassFileReader(entry.getValue()).referencedClasses());
+            }
+            constantUsage.forEach((className, owners) -> owners.forEach(owner ->
+                manifest.append("uses\t").append(className).append('\t').append(owner).append('\n')));
+            constantUsage.values().forEach(read::addAll);
+            read.removeAll(compiled.keySet());
+            List<Path> directories = directories(classpath);
+            for (String className : read) {
+                String hash = classFileHash(directories, className);
+                if (hash != null) {
+                    manifest.append("reads\t").append(className).append('\t').append(hash).append('\n');
+                }
+            }
+            write(compiles.resolve(key), manifest.toString());
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "[HotReload] Could not store compiled classes in the bytecode cache", e);
+        }
+        if (--storesUntilPrune <= 0) {
+            storesUntilPrune = PRUNE_INTERVAL;
+            prune();
+        }
+    }
+
+    /**
+     * Drops the least recently used compile results beyond the limit, then the
+     * class files neither a compile result nor an applied version refers to.
+     */
+    synchronized void prune() {
+        try {
+            List<Path> manifests = list(compiles);
+            if (manifests.size() <= maxCompiles) return;
+            manifests.sort(Comparator.comparing(BytecodeCache::lastModified).reversed());
+            for (Path stale : manifests.subList(maxCompiles, manifests.size())) {
+                Files.deleteIfExists(stale);
+            }
+            Set<String> referenced = new HashSet<>();
+            for (Path manifest : manifests.subList(0, maxCompiles)) {
+                collectObjects(manifest, 2, referenced);
+            }
+            for (Path applied : list(classes)) {
+                collectObjects(applied, 3, referenced);
+            }
+            int removed = 0;
+            for (Path prefix : list(objects)) {
+                for (Path object : list(prefix)) {
+                    if (!referenced.contains(object.getFileName().toString()) && Files.deleteIfExists(object)) {
+                        removed++;
+                    }
+                }
+            }
+            LOG.log(Level.FINE, "[HotReload] Pruned {0} compile(s) and {1} class file(s) from the bytecode cache",
+                new Object[]{manifests.size() - maxCompiles, removed});
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Could not prune the bytecode cache", e);
+        }
+    }
+
+    /**
+     * Remembers {@code applied}, the classes of {@code host} and its nested classes
+     * just redefined, as the version to load after a restart.
+     *
+     * @param sourceHash hash of the source they were compiled from, or {@code null}
+     * @param loader     loader defining {@code host}, to read the build's class files from
+     */
+    public synchronized void recordApplied(String host, String sourceHash, Map<String, byte[]> applied,
+                                           ClassLoader loader) {
+        try {
+            Map<String, String[]> entries = new LinkedHashMap<>();
+            StringBuilder record = new StringBuilder("source\t").append(sourceHash == null ? "" : sourceHash)
+                .append('\n');
+            for (Map.Entry<String, byte[]> entry : applied.entrySet()) {
+                byte[] original = buildVersion(loader, entry.getKey());
+                String originalHash = original == null ? NEW_CLASS : HotReloadIndex.hash(original);
+                String object = writeObject(entry.getValue());
+                entries.put(entry.getKey(), new String[]{originalHash, object});
+                record.append("class\t").append(entry.getKey()).append('\t').append(originalHash).append('\t')
+                    .append(object).append('\n');
+            }
+            write(classes.resolve(host), record.toString());
+            appliedByHost.put(host, Optional.of(new Applied(sourceHash, entries)));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Could not store the applied version of " + host
+                + " in the bytecode cache", e);
+        }
+    }
+
+    /** Forgets the applied version of {@code host}, so the build's version loads after a restart. */
+    public void forget(String host) {
+        appliedByHost.put(host, Optional.empty());
+        try {
+            Files.deleteIfExists(classes.resolve(host));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Could not remove " + host + " from the bytecode cache", e);
+        }
+    }
+
+    /**
+     * Returns the cached version to define instead of {@code buildVersion} for a
+     * class that is loading, or {@code null} to define the build's version.
+     */
+    byte[] forLoad(ClassLoader loader, String binaryName, byte[] buildVersion) {
+        String host = HotDependencyGraph.topLevelName(binaryName);
+        Applied applied = applied(host);
+        if (applied == null || !applied.classes.containsKey(binaryName)
+                || !accepted(loader, host, applied, binaryName, buildVersion)) {
+            return null;
+        }
+        try {
+            byte[] cached = readObject(applied.classes.get(binaryName)[1]);
+            LOG.log(Level.FINE, "[HotReload] Loading {0} from the bytecode cache", binaryName);
+            return cached;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Cannot read " + binaryName + " from the bytecode cache", e);
+            return null;
+        }
+    }
+
+    /** Hash of the source the applied version of {@code host} was compiled from, or {@code null}. */
+    String appliedSourceHash(String host) {
+        Applied applied = applied(host);
+        return applied == null || applied.sourceHash.isEmpty() ? null : applied.sourceHash;
+    }
+
+    private Applied applied(String host) {
+        return appliedByHost.computeIfAbsent(host, name -> {
+            try {
+                String sourceHash = "";
+                Map<String, String[]> entries = new LinkedHashMap<>();
+                for (String[] fields : lines(Files.readString(classes.resolve(name), StandardCharsets.UTF_8))) {
+                    if (fields[0].equals("source")) {
+                        sourceHash = fields.length > 1 ? fields[1] : "";
+                    } else if (fields[0].equals("class") && fields.length == 4) {
+                        entries.put(fields[1], new String[]{fields[2], fields[3]});
+                    }
+                }
+                return Optional.of(new Applied(sourceHash, entries));
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "[HotReload] Ignoring unreadable bytecode cache entry for " + name, e);
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Whether the build still produces exactly the class files the applied
+     * version of {@code host} replaced, decided once per loader and host.
+     */
+    private boolean accepted(ClassLoader loader, String host, Applied applied, String loading, byte[] loadingBytes) {
+        synchronized (acceptedByLoader) {
+            Boolean known = acceptedByLoader.computeIfAbsent(loader, l -> new HashMap<>()).get(host);
+            if (known != null) return known;
+        }
+        String stale = null;
+        for (Map.Entry<String, String[]> entry : applied.classes.entrySet()) {
+            String originalHash = entry.getValue()[0];
+            if (originalHash.equals(NEW_CLASS)) {
+                stale = entry.getKey() + " is not part of the build";
+                break;
+            }
+            byte[] build = entry.getKey().equals(loading) ? loadingBytes : buildVersion(loader, entry.getKey());
+            if (build == null || !originalHash.equals(HotReloadIndex.hash(build))) {
+                stale = entry.getKey() + " was rebuilt";
+                break;
+            }
+        }
+        if (stale != null) {
+            LOG.log(Level.INFO, "[HotReload] Not loading {0} from the bytecode cache: {1}", new Object[]{host, stale});
+        } else {
+            LOG.log(Level.INFO, "[HotReload] Loading {0} as last reloaded, from the bytecode cache", host);
+        }
+        synchronized (acceptedByLoader) {
+            acceptedByLoader.computeIfAbsent(loader, l -> new HashMap<>()).put(host, stale == null);
+        }
+        return stale == null;
+    }
+
+    private static byte[] buildVersion(ClassLoader loader, String binaryName) {
+        String resource = binaryName.replace('.', '/') + ".class";
+        try (InputStream in = loader == null
+                ? ClassLoader.getSystemResourceAsStream(resource)
+                : loader.getResourceAsStream(resource)) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String writeObject(byte[] bytecode) throws IOException {
+        String hash = HotReloadIndex.hash(bytecode);
+        Path object = objectPath(hash);
+        if (!Files.exists(object)) {
+            Files.createDirectories(object.getParent());
+            Path temp = Files.createTempFile(object.getParent(), hash, ".tmp");
+            Files.write(temp, bytecode);
+            publish(temp, object);
+        }
+        return hash;
+    }
+
+    private byte[] readObject(String hash) throws IOException {
+        byte[] bytecode = Files.readAllBytes(objectPath(hash));
+        if (!hash.equals(HotReloadIndex.hash(bytecode))) {
+            throw new IOException("Corrupt bytecode cache object " + hash);
+        }
+        return bytecode;
+    }
+
+    private Path objectPath(String hash) {
+        return objects.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void publish(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Iterable<String[]> lines(String content) throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new StringReader(content))) {
+            for (String line; (line = in.readLine()) != null; ) {
+                if (!line.isEmpty()) lines.add(line.split("\t", -1));
+            }
+        }
+        return lines;
+    }
+
+    /** Adds the object hashes in column {@code column} of the {@code class} lines of a cache entry. */
+    private static void collectObjects(Path entry, int column, Set<String> into) throws IOException {
+        try {
+            for (String[] fields : lines(Files.readString(entry, StandardCharsets.UTF_8))) {
+                if (fields[0].equals("class") && fields.length > column) {
+                    into.add(fields[column]);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // removed concurrently
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+                .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /** Marks a compile result as used, for {@link #prune()}. */
+    private static void touch(Path manifest) {
+        try {
+            Files.setLastModifiedTime(manifest, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "[HotReload] Could not mark " + manifest + " as used", e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static List<Path> directories(String classpath) {
+        List<Path> directories = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (!entry.isEmpty() && new File(entry).isDirectory()) {
+                directories.add(Path.of(entry));
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Hash of the class file a classpath directory holds for {@code binaryName}, or
+     * {@code null} if none does; classes in jars are covered by the jar's fingerprint.
+     */
+    private static String classFileHash(List<Path> directories, String binaryName) throws IOException {
+        String file = binaryName.replace('.', '/') + ".class";
+        for (Path directory : directories) {
+            Path classFile = directory.resolve(file);
+            if (Files.isRegularFile(classFile)) {
+                return HotReloadIndex.hash(Files.readAllBytes(classFile));
+            }
+        }
+        return null;
+    }
+
+    /** Classpath entries with the size and modification time of the jars among them. */
+    private static String fingerprint(String classpath) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            fingerprint.append(entry);
+            File file = new File(entry);
+            if (file.isFile()) {
+                fingerprint.append('|').append(file.length()).append('|').append(file.lastModified());
+            }
+            fingerprint.append('\n');
+        }
+        return HotReloadIndex.hash(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class Applied {
+
+        private final String sourceHash;
+        /** binary name → {hash of the build's class file or {@value #NEW_CLASS}, object hash} */
+        private final Map<String, String[]> classes;
+
+        private Applied(String sourceHash, Map<String, String[]> classes) {
+            this.sourceHash = sourceHash == null ? "" : sourceHash;
+            this.classes = classes;
+        }
+    }
+}
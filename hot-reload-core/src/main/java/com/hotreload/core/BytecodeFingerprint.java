@@ -0,0 +1,193 @@
+package com.hotreload.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Structural fingerprint of a class file that ignores debug information, used
+ * to tell whether a redefinition would change anything executable.
+ *
+ * <p>Line number, local variable and source file attributes are left out, as is
+ * the stack map table, which is derived from the code. Constant pool references
+ * inside method bodies and simple attributes are hashed by what they resolve to,
+ * so reformatting or editing comments compares equal even if javac lays out the
+ * pool differently. Other attributes, such as annotations, are hashed as raw
+ * bytes, which errs on the side of reporting a change.
+ */
+public final class BytecodeFingerprint {
+
+    private static final Set<String> IGNORED_ATTRIBUTES = Set.of(
+        "SourceFile", "SourceDebugExtension", "BootstrapMethods",
+        "LineNumberTable", "LocalVariableTable", "LocalVariableTypeTable", "StackMapTable");
+
+    /** Attributes holding a single constant pool index. */
+    private static final Set<String> INDEX_ATTRIBUTES = Set.of("ConstantValue", "Signature", "NestHost");
+
+    /** Attributes holding a counted list of constant pool indices. */
+    private static final Set<String> INDEX_LIST_ATTRIBUTES = Set.of("Exceptions", "NestMembers", "PermittedSubclasses");
+
+    private final byte[] classHash;
+    private final Map<String, byte[]> methodHashes;
+
+    private BytecodeFingerprint(byte[] classHash, Map<String, byte[]> methodHashes) {
+        this.classHash = classHash;
+        this.methodHashes = methodHashes;
+    }
+
+    public static BytecodeFingerprint of(byte[] bytecode) {
+        ClassFileReader reader = new ClassFileReader(bytecode);
+
+        MessageDigest digest = sha256();
+        update(digest, reader.className() + " " + reader.accessFlags() + " " + reader.superName());
+        reader.interfaceNames().forEach(name -> update(digest, name));
+        for (ClassFileReader.Member field : reader.fields()) {
+            update(digest, field.access() + " " + field.name() + " " + field.descriptor());
+            digestAttributes(reader, field.attributeTable(), digest);
+        }
+        digestAttributes(reader, reader.attributeTable(), digest);
+
+        Map<String, byte[]> methodHashes = new LinkedHashMap<>();
+        for (ClassFileReader.Member method : reader.methods()) {
+            MessageDigest methodDigest = sha256();
+            update(methodDigest, Integer.toString(method.access()));
+            digestAttributes(reader, method.attributeTable(), methodDigest);
+            methodHashes.put(method.name() + method.descriptor(), methodDigest.digest());
+        }
+        return new BytecodeFingerprint(digest.digest(), methodHashes);
+    }
+
+    /** Whether both class files have the same executable content. */
+    public boolean sameAs(BytecodeFingerprint other) {
+        return Arrays.equals(classHash, other.classHash) && changedMethods(other).isEmpty();
+    }
+
+    /**
+     * Methods, as name and descriptor, that were added, removed or whose
+     * executable content differs from {@code previous}.
+     */
+    public Set<String> changedMethods(BytecodeFingerprint previous) {
+        Set<String> changed = new LinkedHashSet<>();
+        methodHashes.forEach((method, hash) -> {
+            if (!Arrays.equals(hash, previous.methodHashes.get(method))) {
+                changed.add(method);
+            }
+        });
+        for (String method : previous.methodHashes.keySet()) {
+            if (!methodHashes.containsKey(method)) {
+                changed.add(method);
+            }
+        }
+        return changed;
+    }
+
+    private static void digestAttributes(ClassFileReader reader, Map<String, int[]> attributes, MessageDigest digest) {
+        for (Map.Entry<String, int[]> attribute : attributes.entrySet()) {
+            String name = attribute.getKey();
+            if (IGNORED_ATTRIBUTES.contains(name)) continue;
+
+            int offset = attribute.getValue()[0];
+            update(digest, name);
+            if (name.equals("Code")) {
+                digestCode(reader, offset, digest);
+            } else if (INDEX_ATTRIBUTES.contains(name)) {
+                update(digest, reader.resolvedConstant(reader.readUnsignedShort(offset)));
+            } else if (INDEX_LIST_ATTRIBUTES.contains(name)) {
+                int count = reader.readUnsignedShort(offset);
+                for (int i = 0; i < count; i++) {
+                    update(digest, reader.resolvedConstant(reader.readUnsignedShort(offset + 2 + 2 * i)));
+                }
+            } else {
+                digest.update(reader.bytes(), offset, attribute.getValue()[1]);
+            }
+        }
+    }
+
+    private static void digestCode(ClassFileReader reader, int offset, MessageDigest digest) {
+        update(digest, reader.readUnsignedShort(offset) + " " + reader.readUnsignedShort(offset + 2));
+        int codeLength = reader.readInt(offset + 4);
+        int codeStart = offset + 8;
+        digestInstructions(reader, codeStart, codeLength, digest);
+
+        int tableOffset = codeStart + codeLength;
+        int handlers = reader.readUnsignedShort(tableOffset);
+        for (int i = 0; i < handlers; i++) {
+            int entry = tableOffset + 2 + 8 * i;
+            int catchType = reader.readUnsignedShort(entry + 6);
+            update(digest, reader.readUnsignedShort(entry) + " " + reader.readUnsignedShort(entry + 2) + " "
+                + reader.readUnsignedShort(entry + 4) + " " + (catchType == 0 ? "any" : reader.resolvedConstant(catchType)));
+        }
+    }
+
+    /** Hashes opcodes and operands, replacing constant pool indices with the constants they refer to. */
+    private static void digestInstructions(ClassFileReader reader, int start, int length, MessageDigest digest) {
+        byte[] code = reader.bytes();
+        int pc = 0;
+        while (pc < length) {
+            int opcode = reader.readUnsignedByte(start + pc);
+            digest.update((byte) opcode);
+            int operands;
+            switch (opcode) {
+                case 18 -> { // ldc
+                    update(digest, reader.resolvedConstant(reader.readUnsignedByte(start + pc + 1)));
+                    pc += 2;
+                    continue;
+                }
+                case 19, 20, 178, 179, 180, 181, 182, 183, 184, 187, 189, 192, 193 -> {
+                    update(digest, reader.resolvedConstant(reader.readUnsignedShort(start + pc + 1)));
+                    pc += 3;
+                    continue;
+                }
+                case 185, 186 -> { // invokeinterface, invokedynamic
+                    update(digest, reader.resolvedConstant(reader.readUnsignedShort(start + pc + 1)));
+                    digest.update(code, start + pc + 3, 2);
+                    pc += 5;
+                    continue;
+                }
+                case 197 -> { // multianewarray
+                    update(digest, reader.resolvedConstant(reader.readUnsignedShort(start + pc + 1)));
+                    digest.update(code[start + pc + 3]);
+                    pc += 4;
+                    continue;
+                }
+                case 16, 21, 22, 23, 24, 25, 54, 55, 56, 57, 58, 169, 188 -> operands = 1;
+                case 17, 132, 153, 154, 155, 156, 157, 158, 159, 160, 161, 162, 163, 164, 165, 166, 167, 168,
+                        198, 199 -> operands = 2;
+                case 200, 201 -> operands = 4;
+                case 196 -> operands = reader.readUnsignedByte(start + pc + 1) == 132 ? 5 : 3; // wide
+                case 170 -> { // tableswitch
+                    int base = start + ((pc + 4) & ~3);
+                    int low = reader.readInt(base + 4);
+                    int high = reader.readInt(base + 8);
+                    operands = base - (start + pc) - 1 + 12 + 4 * (high - low + 1);
+                }
+                case 171 -> { // lookupswitch
+                    int base = start + ((pc + 4) & ~3);
+                    int pairs = reader.readInt(base + 4);
+                    operands = base - (start + pc) - 1 + 8 + 8 * pairs;
+                }
+                default -> operands = 0;
+            }
+            digest.update(code, start + pc + 1, operands);
+            pc += 1 + operands;
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
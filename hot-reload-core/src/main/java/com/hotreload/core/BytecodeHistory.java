@@ -0,0 +1,173 @@
+package com.hotreload.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Bounded history of the bytecode versions each class ran, so a class can be
+ * rolled back without compiling and no-op redefinitions can be detected.
+ *
+ * <p>At most {@code depth} versions are kept per class and {@code maxBytes} of
+ * bytecode across all classes. Beyond either limit the least recently recorded
+ * intermediate versions are dropped first; the original and the current version
+ * of a class are always kept. Classes are held weakly.
+ */
+final class BytecodeHistory {
+
+    static final int ORIGINAL = 0;
+
+    private final int depth;
+    private final long maxBytes;
+    private final Map<Class<?>, Versions> byClass = new WeakHashMap<>();
+    private long sequence;
+
+    BytecodeHistory(int depth, long maxBytes) {
+        if (depth < 2) {
+            throw new IllegalArgumentException("history depth must be at least 2: " + depth);
+        }
+        this.depth = depth;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Bytecode the class runs, or {@code null} if it was never recorded. */
+    synchronized byte[] current(Class<?> clazz) {
+        Versions versions = byClass.get(clazz);
+        return versions == null ? null : versions.find(versions.current).bytecode;
+    }
+
+    /** Bytecode of a recorded version, or {@code null} if it is unknown or was evicted. */
+    synchronized byte[] bytecode(Class<?> clazz, int number) {
+        Versions versions = byClass.get(clazz);
+        Version version = versions == null ? null : versions.find(number);
+        return version == null ? null : version.bytecode;
+    }
+
+    /** Records the bytecode a class was loaded with, unless its history already started. */
+    synchronized void recordOriginal(Class<?> clazz, byte[] bytecode) {
+        if (byClass.containsKey(clazz)) return;
+        Versions versions = new Versions();
+        versions.add(ORIGINAL, bytecode, ++sequence);
+        byClass.put(clazz, versions);
+        evict(versions);
+    }
+
+    /** Records a newly applied version and makes it current. */
+    synchronized int recordApplied(Class<?> clazz, byte[] bytecode) {
+        Versions versions = byClass.computeIfAbsent(clazz, c -> new Versions());
+        int number = versions.nextNumber;
+        versions.add(number, bytecode, ++sequence);
+        evict(versions);
+        return number;
+    }
+
+    /** Marks a recorded version as current after the class was redefined with it. */
+    synchronized void select(Class<?> clazz, int number) {
+        Versions versions = byClass.get(clazz);
+        if (versions != null && versions.find(number) != null) {
+            versions.current = number;
+        }
+    }
+
+    synchronized List<ClassVersion> versions(Class<?> clazz) {
+        Versions versions = byClass.get(clazz);
+        List<ClassVersion> result = new ArrayList<>();
+        if (versions != null) {
+            for (Version version : versions.list) {
+                result.add(new ClassVersion(version.number, version.bytecode.length, version.recordedAtMillis,
+                    version.number == versions.current));
+            }
+        }
+        return result;
+    }
+
+    synchronized long bytes() {
+        long total = 0;
+        for (Versions versions : byClass.values()) {
+            for (Version version : versions.list) {
+                total += version.bytecode.length;
+            }
+        }
+        return total;
+    }
+
+    synchronized int versionCount() {
+        int total = 0;
+        for (Versions versions : byClass.values()) {
+            total += versions.list.size();
+        }
+        return total;
+    }
+
+    private void evict(Versions changed) {
+        while (changed.list.size() > depth && changed.removeOldestEvictable() != null) {
+            // keep trimming this class
+        }
+        long total = bytes();
+        while (total > maxBytes) {
+            Versions oldestOwner = null;
+            long oldestSequence = Long.MAX_VALUE;
+            for (Versions versions : byClass.values()) {
+                Version candidate = versions.oldestEvictable();
+                if (candidate != null && candidate.sequence < oldestSequence) {
+                    oldestOwner = versions;
+                    oldestSequence = candidate.sequence;
+                }
+            }
+            if (oldestOwner == null) return;
+            total -= oldestOwner.removeOldestEvictable().bytecode.length;
+        }
+    }
+
+    private static final class Versions {
+
+        private final List<Version> list = new ArrayList<>();
+        private int current;
+        private int nextNumber = ORIGINAL + 1;
+
+        private void add(int number, byte[] bytecode, long sequence) {
+            list.add(new Version(number, bytecode, sequence));
+            current = number;
+            nextNumber = Math.max(nextNumber, number + 1);
+        }
+
+        private Version find(int number) {
+            for (Version version : list) {
+                if (version.number == number) return version;
+            }
+            return null;
+        }
+
+        private Version oldestEvictable() {
+            Version oldest = null;
+            for (Version version : list) {
+                if (version.number != ORIGINAL && version.number != current
+                        && (oldest == null || version.sequence < oldest.sequence)) {
+                    oldest = version;
+                }
+            }
+            return oldest;
+        }
+
+        private Version removeOldestEvictable() {
+            Version oldest = oldestEvictable();
+            list.remove(oldest);
+            return oldest;
+        }
+    }
+
+    private static final class Version {
+
+        private final int number;
+        private final byte[] bytecode;
+        private final long sequence;
+        private final long recordedAtMillis = System.currentTimeMillis();
+
+        private Version(int number, byte[] bytecode, long sequence) {
+            this.number = number;
+            this.bytecode = bytecode;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.hotreload.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Looks compiles up in a {@link BytecodeCache} before handing them to another
+ * backend, and stores what it compiled. Sources saved again with content that
+ * was compiled before, in this or an earlier run, then skip javac.
+ */
+final class CachingCompilerBackend implements CompilerBackend {
+
+    private static final Logger LOG = Logger.getLogger(CachingCompilerBackend.class.getName());
+
+    private final CompilerBackend delegate;
+    private final BytecodeCache cache;
+    private final String compilerId;
+
+    /** @param compilerId identifies the javac the delegate runs, part of every cache key */
+    CachingCompilerBackend(CompilerBackend delegate, BytecodeCache cache, String compilerId) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.compilerId = compilerId;
+    }
+
+    @Override
+    public Map<String, byte[]> compile(Map<Path, String> sources, String classpath,
+                                       Map<String, Set<String>> constantUsage,
+                                       CompileDiagnostics diagnostics) throws IOException {
+        String key = cache.compileKey(sources, classpath, compilerId);
+        Map<String, byte[]> cached = cache.findCompile(key, classpath, constantUsage);
+        if (cached != null) {
+            LOG.log(Level.FINE, "[HotReload] {0} source(s) found in the bytecode cache, not compiling",
+                sources.size());
+            diagnostics.set(0, 0);
+            return cached;
+        }
+        Map<String, Set<String>> usage = new HashMap<>();
+        Map<String, byte[]> classes = delegate.compile(sources, classpath, usage, diagnostics);
+        cache.storeCompile(key, classpath, classes, usage);
+        constantUsage.putAll(usage);
+        return classes;
+    }
+
+    @Override
+    public Map<String, Set<String>> analyzeConstantUsage(Map<Path, String> sources, String classpath)
+            throws IOException {
+        return delegate.analyzeConstantUsage(sources, classpath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,90 @@
+package com.hotreload.core;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Accumulates changed files until none have been reported for the debounce
+ * period, then hands them to the pipeline as one batch. A steady stream of
+ * changes, such as a build writing files, is handed over at the latest after
+ * the maximum delay since its first change. Used by a single intake thread.
+ */
+final class ChangeBatcher {
+
+    private static final Logger LOG = Logger.getLogger(ChangeBatcher.class.getName());
+    private static final int MAX_DELAY_DEBOUNCES = 10;
+
+    private final long debounceMs;
+    private final long maxDelayMs;
+    private final HotReloadMetrics metrics;
+    private Set<Path> pending = new LinkedHashSet<>();
+    private long firstChangeNanos;
+    private long lastChangeNanos;
+
+    ChangeBatcher(long debounceMs, HotReloadMetrics metrics) {
+        this(debounceMs, debounceMs * MAX_DELAY_DEBOUNCES, metrics);
+    }
+
+    /** @param maxDelayMs longest a change is held while newer ones keep arriving */
+    ChangeBatcher(long debounceMs, long maxDelayMs, HotReloadMetrics metrics) {
+        this.debounceMs = debounceMs;
+        this.maxDelayMs = maxDelayMs;
+        this.metrics = metrics;
+    }
+
+    void add(Path changed) {
+        long now = System.nanoTime();
+        if (pending.isEmpty()) {
+            firstChangeNanos = now;
+        }
+        pending.add(changed);
+        lastChangeNanos = now;
+        metrics.recordEvent();
+
+        FileChangeEvent event = new FileChangeEvent();
+        if (event.shouldCommit()) {
+            event.path = changed.toString();
+            event.commit();
+        }
+    }
+
+    void addAll(Collection<Path> changed) {
+        for (Path path : changed) {
+            add(path);
+        }
+    }
+
+    /** Drops pending changes to {@code path} and to any file below it, after it was deleted. */
+    void remove(Path path) {
+        pending.removeIf(file -> file.startsWith(path));
+    }
+
+    /**
+     * Offers the pending batch once it has been quiet for the debounce period,
+     * or its first change is the maximum delay old.
+     *
+     * @return how long the caller may wait for new changes, at most {@code maxWaitMs}
+     */
+    long flush(HotReloadPipeline pipeline, long maxWaitMs) {
+        if (pending.isEmpty()) return maxWaitMs;
+
+        long now = System.nanoTime();
+        long quietMs = (now - lastChangeNanos) / 1_000_000;
+        long heldMs = (now - firstChangeNanos) / 1_000_000;
+        long remainingMs = Math.min(debounceMs - quietMs, maxDelayMs - heldMs);
+        if (remainingMs > 0) {
+            return Math.min(maxWaitMs, remainingMs);
+        }
+        if (pipeline.offer(pending, firstChangeNanos)) {
+            pending = new LinkedHashSet<>();
+        } else {
+            // pipeline saturated: keep coalescing and retry after the next wait
+            LOG.log(Level.FINE, "[HotReload] Reload pipeline busy, holding {0} change(s)", pending.size());
+        }
+        return maxWaitMs;
+    }
+}
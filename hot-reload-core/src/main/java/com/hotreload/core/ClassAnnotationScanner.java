@@ -0,0 +1,216 @@
+package com.hotreload.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Allocation-free check for a class-level runtime-visible annotation, meant to
+ * run on every class load.
+ *
+ * <p>The constant pool is walked once; unless it contains both the annotation
+ * descriptor and the {@code RuntimeVisibleAnnotations} attribute name, the class
+ * is rejected without looking further. Otherwise only the class attribute table
+ * is inspected, so a descriptor that merely appears in a field, method or string
+ * constant does not count as a match.
+ */
+public final class ClassAnnotationScanner {
+
+    private static final Logger LOG = Logger.getLogger(ClassAnnotationScanner.class.getName());
+
+    private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS =
+        "RuntimeVisibleAnnotations".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ClassLoader PLATFORM_LOADER = ClassLoader.getPlatformClassLoader();
+
+    /** JDK packages and this library; application and library classes are always scanned. */
+    private static final String[] EXCLUDED_PACKAGES = {
+        "java/", "javax/", "jdk/", "sun/", "com/sun/", "org/w3c/", "org/xml/", "org/ietf/",
+        "com/hotreload/agent/", "com/hotreload/annotation/", "com/hotreload/core/", "com/hotreload/processor/"
+    };
+
+    private static volatile String[] skippedPackages = new String[0];
+
+    private ClassAnnotationScanner() {}
+
+    /**
+     * Whether a class should never be scanned: JDK, boot and platform classes,
+     * and this library itself.
+     */
+    public static boolean isExcluded(ClassLoader loader, String internalName) {
+        if (loader == null || loader == PLATFORM_LOADER || internalName == null) {
+            return true;
+        }
+        for (String prefix : EXCLUDED_PACKAGES) {
+            if (internalName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skips scanning the classes of libraries known not to contain reloadable
+     * classes, to save class loading time, e.g. {@code org.springframework}.
+     * Replaces the packages set before.
+     */
+    public static void skipPackages(Collection<String> packages) {
+        List<String> prefixes = new ArrayList<>();
+        for (String name : packages) {
+            String prefix = name.trim().replace('.', '/');
+            if (prefix.isEmpty()) continue;
+            prefixes.add(prefix.endsWith("/") ? prefix : prefix + "/");
+        }
+        skippedPackages = prefixes.toArray(String[]::new);
+    }
+
+    /**
+     * Whether a class is in a package set with {@link #skipPackages}. A skipped
+     * class that carries {@code descriptor} is logged, since it is never picked up.
+     */
+    public static boolean isSkipped(String internalName, byte[] classfile, byte[] descriptor) {
+        for (String prefix : skippedPackages) {
+            if (internalName.startsWith(prefix)) {
+                if (hasAnnotation(classfile, descriptor)) {
+                    LOG.log(Level.WARNING, "[HotReload] Ignoring {0}: its package is skipped by the agent argument "
+                        + "skip", internalName.replace('/', '.'));
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param descriptor annotation type descriptor in modified UTF-8,
+     *                   e.g. {@code Lcom/example/Marker;}
+     */
+    public static boolean hasAnnotation(byte[] classfile, byte[] descriptor) {
+        try {
+            return scan(classfile, descriptor);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    private static boolean scan(byte[] b, byte[] descriptor) {
+        if (b.length < 10 || u2(b, 0) != 0xCAFE || u2(b, 2) != 0xBABE) return false;
+
+        int count = u2(b, 8);
+        int offset = 10;
+        int descriptorIndex = 0;
+        int attributeNameIndex = 0;
+        for (int i = 1; i < count; i++) {
+            int tag = b[offset] & 0xFF;
+            switch (tag) {
+                case 1 -> {
+                    int length = u2(b, offset + 1);
+                    if (descriptorIndex == 0 && equalsAt(b, offset + 3, length, descriptor)) {
+                        descriptorIndex = i;
+                    } else if (attributeNameIndex == 0
+                            && equalsAt(b, offset + 3, length, RUNTIME_VISIBLE_ANNOTATIONS)) {
+                        attributeNameIndex = i;
+                    }
+                    offset += 3 + length;
+                }
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> offset += 5;
+                case 5, 6 -> {
+                    offset += 9;
+                    i++;
+                }
+                case 7, 8, 16, 19, 20 -> offset += 3;
+                case 15 -> offset += 4;
+                default -> {
+                    return false;
+                }
+            }
+        }
+        if (descriptorIndex == 0 || attributeNameIndex == 0) return false;
+
+        offset += 6;
+        offset += 2 + 2 * u2(b, offset);
+        offset = skipMembers(b, offset);
+        offset = skipMembers(b, offset);
+
+        int attributes = u2(b, offset);
+        offset += 2;
+        for (int i = 0; i < attributes; i++) {
+            int nameIndex = u2(b, offset);
+            int length = u4(b, offset + 2);
+            if (nameIndex == attributeNameIndex) {
+                return containsAnnotation(b, offset + 6, descriptorIndex);
+            }
+            offset += 6 + length;
+        }
+        return false;
+    }
+
+    private static boolean containsAnnotation(byte[] b, int offset, int descriptorIndex) {
+        int annotations = u2(b, offset);
+        offset += 2;
+        for (int i = 0; i < annotations; i++) {
+            if (u2(b, offset) == descriptorIndex) return true;
+            offset = skipAnnotation(b, offset);
+        }
+        return false;
+    }
+
+    private static int skipMembers(byte[] b, int offset) {
+        int members = u2(b, offset);
+        offset += 2;
+        for (int i = 0; i < members; i++) {
+            int attributes = u2(b, offset + 6);
+            offset += 8;
+            for (int j = 0; j < attributes; j++) {
+                offset += 6 + u4(b, offset + 2);
+            }
+        }
+        return offset;
+    }
+
+    private static int skipAnnotation(byte[] b, int offset) {
+        int pairs = u2(b, offset + 2);
+        offset += 4;
+        for (int i = 0; i < pairs; i++) {
+            offset = skipElementValue(b, offset + 2);
+        }
+        return offset;
+    }
+
+    private static int skipElementValue(byte[] b, int offset) {
+        char tag = (char) b[offset];
+        return switch (tag) {
+            case 'e' -> offset + 5;
+            case '@' -> skipAnnotation(b, offset + 1);
+            case '[' -> {
+                int values = u2(b, offset + 1);
+                int next = offset + 3;
+                for (int i = 0; i < values; i++) {
+                    next = skipElementValue(b, next);
+                }
+                yield next;
+            }
+            default -> offset + 3;
+        };
+    }
+
+    private static boolean equalsAt(byte[] b, int offset, int length, byte[] expected) {
+        if (length != expected.length) return false;
+        for (int i = 0; i < length; i++) {
+            if (b[offset + i] != expected[i]) return false;
+        }
+        return true;
+    }
+
+    private static int u2(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+    }
+
+    private static int u4(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16)
+            | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+    }
+}
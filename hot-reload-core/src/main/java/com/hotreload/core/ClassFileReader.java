@@ -0,0 +1,316 @@
+package com.hotreload.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimal class file parser: indexes the constant pool and the member and
+ * attribute tables without building a full object model.
+ */
+public final class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final byte[] bytes;
+    private final int[] cpOffsets;
+    private final String[] utf8Cache;
+    private final int headerOffset;
+    private final List<Member> fields = new ArrayList<>();
+    private final List<Member> methods = new ArrayList<>();
+    private final Map<String, int[]> attributes = new LinkedHashMap<>();
+
+    public ClassFileReader(byte[] bytes) {
+        this.bytes = bytes;
+        if (bytes.length < 10 || readInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+
+        int count = readUnsignedShort(8);
+        cpOffsets = new int[count];
+        utf8Cache = new String[count];
+        int offset = 10;
+        for (int i = 1; i < count; i++) {
+            cpOffsets[i] = offset;
+            int tag = bytes[offset] & 0xFF;
+            switch (tag) {
+                case 1 -> offset += 3 + readUnsignedShort(offset + 1);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> offset += 5;
+                case 5, 6 -> {
+                    offset += 9;
+                    i++;
+                }
+                case 7, 8, 16, 19, 20 -> offset += 3;
+                case 15 -> offset += 4;
+                default -> throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at " + offset);
+            }
+        }
+        headerOffset = offset;
+
+        offset += 6;
+        offset += 2 + 2 * readUnsignedShort(offset);
+        offset = readMembers(offset, fields);
+        offset = readMembers(offset, methods);
+        readAttributes(offset, attributes);
+    }
+
+    /** Binary name of this class, e.g. {@code com.example.Outer$Inner}. */
+    public String className() {
+        return classNameAt(readUnsignedShort(headerOffset + 2));
+    }
+
+    public String superName() {
+        int index = readUnsignedShort(headerOffset + 4);
+        return index == 0 ? null : classNameAt(index);
+    }
+
+    public int accessFlags() {
+        return readUnsignedShort(headerOffset);
+    }
+
+    public List<String> interfaceNames() {
+        int offset = headerOffset + 6;
+        int count = readUnsignedShort(offset);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(classNameAt(readUnsignedShort(offset + 2 + 2 * i)));
+        }
+        return names;
+    }
+
+    public List<Member> fields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    public List<Member> methods() {
+        return Collections.unmodifiableList(methods);
+    }
+
+    /**
+     * Binary names of every class this class refers to through its constant
+     * pool, either directly or through member reference descriptors.
+     */
+    public Set<String> referencedClasses() {
+        Set<String> names = new LinkedHashSet<>();
+        for (int i = 1; i < cpOffsets.length; i++) {
+            int offset = cpOffsets[i];
+            if (offset == 0) continue;
+            int tag = bytes[offset] & 0xFF;
+            if (tag == 7) {
+                addInternalName(utf8(readUnsignedShort(offset + 1)), names);
+            } else if (tag == 12) {
+                addDescriptorTypes(utf8(readUnsignedShort(offset + 3)), names);
+            } else if (tag == 16) {
+                addDescriptorTypes(utf8(readUnsignedShort(offset + 1)), names);
+            }
+        }
+        names.remove(className());
+        return names;
+    }
+
+    /** Binary names listed in the {@code NestMembers} attribute of a nest host. */
+    public List<String> nestMembers() {
+        int[] attribute = attributes.get("NestMembers");
+        if (attribute == null) return List.of();
+        int count = readUnsignedShort(attribute[0]);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(classNameAt(readUnsignedShort(attribute[0] + 2 + 2 * i)));
+        }
+        return names;
+    }
+
+    /** Returns the constant pool entry as a string, or {@code null} for non-loadable constants. */
+    public String constantValue(int index) {
+        int offset = cpOffsets[index];
+        return switch (bytes[offset] & 0xFF) {
+            case 1 -> utf8(index);
+            case 3 -> Integer.toString(readInt(offset + 1));
+            case 4 -> Float.toString(Float.intBitsToFloat(readInt(offset + 1)));
+            case 5 -> Long.toString(readLong(offset + 1));
+            case 6 -> Double.toString(Double.longBitsToDouble(readLong(offset + 1)));
+            case 7 -> classNameAt(index);
+            case 8 -> utf8(readUnsignedShort(offset + 1));
+            default -> null;
+        };
+    }
+
+    /**
+     * Renders any constant pool entry, following references, so that two class
+     * files can be compared independently of their constant pool layout.
+     */
+    String resolvedConstant(int index) {
+        int offset = cpOffsets[index];
+        int tag = bytes[offset] & 0xFF;
+        return switch (tag) {
+            case 9, 10, 11 -> classNameAt(readUnsignedShort(offset + 1)) + "."
+                + resolvedConstant(readUnsignedShort(offset + 3));
+            case 12 -> utf8(readUnsignedShort(offset + 1)) + ":" + utf8(readUnsignedShort(offset + 3));
+            case 15 -> "handle " + (bytes[offset + 1] & 0xFF) + " " + resolvedConstant(readUnsignedShort(offset + 2));
+            case 16 -> "type " + utf8(readUnsignedShort(offset + 1));
+            case 17, 18 -> "dynamic " + bootstrapMethod(readUnsignedShort(offset + 1)) + " "
+                + resolvedConstant(readUnsignedShort(offset + 3));
+            case 19, 20 -> utf8(readUnsignedShort(offset + 1));
+            default -> tag + " " + constantValue(index);
+        };
+    }
+
+    private String bootstrapMethod(int bootstrapIndex) {
+        int[] attribute = attributes.get("BootstrapMethods");
+        if (attribute == null) return "?";
+        int offset = attribute[0] + 2;
+        for (int i = 0; i < bootstrapIndex; i++) {
+            offset += 4 + 2 * readUnsignedShort(offset + 2);
+        }
+        StringBuilder result = new StringBuilder(resolvedConstant(readUnsignedShort(offset)));
+        int arguments = readUnsignedShort(offset + 2);
+        for (int i = 0; i < arguments; i++) {
+            result.append(i == 0 ? "(" : ", ").append(resolvedConstant(readUnsignedShort(offset + 4 + 2 * i)));
+        }
+        return arguments > 0 ? result.append(')').toString() : result.toString();
+    }
+
+    public String utf8(int index) {
+        String cached = utf8Cache[index];
+        if (cached == null) {
+            int offset = cpOffsets[index];
+            int length = readUnsignedShort(offset + 1);
+            try {
+                cached = new DataInputStream(new ByteArrayInputStream(bytes, offset + 1, length + 2)).readUTF();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            utf8Cache[index] = cached;
+        }
+        return cached;
+    }
+
+    private String classNameAt(int index) {
+        return utf8(readUnsignedShort(cpOffsets[index] + 1)).replace('/', '.');
+    }
+
+    private int readMembers(int offset, List<Member> into) {
+        int count = readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            Member member = new Member(
+                readUnsignedShort(offset),
+                utf8(readUnsignedShort(offset + 2)),
+                utf8(readUnsignedShort(offset + 4)));
+            offset = readAttributes(offset + 6, member.attributes);
+            into.add(member);
+        }
+        return offset;
+    }
+
+    private int readAttributes(int offset, Map<String, int[]> into) {
+        int count = readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            String name = utf8(readUnsignedShort(offset));
+            int length = readInt(offset + 2);
+            into.put(name, new int[]{offset + 6, length});
+            offset += 6 + length;
+        }
+        return offset;
+    }
+
+    private static void addInternalName(String internalName, Set<String> names) {
+        if (internalName.startsWith("[")) {
+            addDescriptorTypes(internalName, names);
+        } else {
+            names.add(internalName.replace('/', '.'));
+        }
+    }
+
+    private static void addDescriptorTypes(String descriptor, Set<String> names) {
+        int start = descriptor.indexOf('L');
+        while (start >= 0) {
+            int end = descriptor.indexOf(';', start);
+            if (end < 0) return;
+            names.add(descriptor.substring(start + 1, end).replace('/', '.'));
+            start = descriptor.indexOf('L', end);
+        }
+    }
+
+    /** Offset of the access flags, right after the constant pool. */
+    int headerOffset() {
+        return headerOffset;
+    }
+
+    /** Class attributes by name, as {@code {offset, length}} of the attribute body. */
+    Map<String, int[]> attributeTable() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int readUnsignedByte(int offset) {
+        return bytes[offset] & 0xFF;
+    }
+
+    int readUnsignedShort(int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    int readInt(int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+            | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private long readLong(int offset) {
+        return ((long) readInt(offset) << 32) | (readInt(offset + 4) & 0xFFFFFFFFL);
+    }
+
+    /** A field or method declaration. */
+    public final class Member {
+
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private final Map<String, int[]> attributes = new LinkedHashMap<>();
+
+        private Member(int access, String name, String descriptor) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        public int access() {
+            return access;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String descriptor() {
+            return descriptor;
+        }
+
+        public boolean isPrivate() {
+            return (access & 0x0002) != 0;
+        }
+
+        /** Member attributes by name, as {@code {offset, length}} of the attribute body. */
+        Map<String, int[]> attributeTable() {
+            return Collections.unmodifiableMap(attributes);
+        }
+
+        /** Value of the {@code ConstantValue} attribute of a constant field, or {@code null}. */
+        public String constantValue() {
+            int[] attribute = attributes.get("ConstantValue");
+            return attribute == null ? null : ClassFileReader.this.constantValue(readUnsignedShort(attribute[0]));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.hotreload.core;
+
+/**
+ * One entry in a class's bytecode history, see {@link HotClassReloader#history(Class)}.
+ * Version {@code 0} is the bytecode the class was loaded with, when known; each
+ * applied change gets the next number.
+ */
+public final class ClassVersion {
+
+    private final int number;
+    private final int size;
+    private final long recordedAtMillis;
+    private final boolean current;
+
+    ClassVersion(int number, int size, long recordedAtMillis, boolean current) {
+        this.number = number;
+        this.size = size;
+        this.recordedAtMillis = recordedAtMillis;
+        this.current = current;
+    }
+
+    public int number() {
+        return number;
+    }
+
+    /** Size of the bytecode in bytes. */
+    public int size() {
+        return size;
+    }
+
+    public long recordedAtMillis() {
+        return recordedAtMillis;
+    }
+
+    /** Whether the class currently runs this version. */
+    public boolean isCurrent() {
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return "v" + number + (number == 0 ? " (original)" : "") + ", " + size + " bytes" + (current ? ", current" : "");
+    }
+}
@@ -0,0 +1,155 @@
+package com.hotreload.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Main class of the compile daemon JVM started by a {@link CompileDaemonClient}.
+ * Listens on a loopback port, which it prints as the first line of its standard
+ * output, and compiles the sources it receives with warm in-process sessions.
+ *
+ * <p>The daemon exits when it was idle for the timeout given as its only
+ * argument, or when its standard input closes because the JVM that started it
+ * went away.
+ */
+public final class CompileDaemon {
+
+    private static final Logger LOG = Logger.getLogger(CompileDaemon.class.getName());
+
+    private final CompilerBackend backend;
+    private final long idleTimeoutNanos;
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    CompileDaemon(CompilerBackend backend, long idleTimeoutMs) {
+        this.backend = backend;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long idleTimeoutMs = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        CompilerBackend backend;
+        try {
+            backend = new LocalCompilerBackend();
+        } catch (IllegalStateException e) {
+            System.err.println("[HotReload] Compile daemon cannot start: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        System.out.println(server.getLocalPort());
+        System.out.flush();
+
+        CompileDaemon daemon = new CompileDaemon(backend, idleTimeoutMs);
+        daemon.exitWhenOrphaned(System.in);
+        if (idleTimeoutMs > 0) {
+            daemon.exitWhenIdle();
+        }
+        daemon.serve(server);
+    }
+
+    private void serve(ServerSocket server) throws IOException {
+        int connections = 0;
+        while (true) {
+            Socket connection = server.accept();
+            Thread thread = new Thread(() -> handle(connection), "hot-reload-compile-daemon-" + ++connections);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void handle(Socket connection) {
+        try (connection) {
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            CompileDaemonProtocol.readHello(in);
+            while (true) {
+                CompileDaemonProtocol.Request request;
+                try {
+                    request = CompileDaemonProtocol.readRequest(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                active.incrementAndGet();
+                try {
+                    CompileDaemonProtocol.writeReply(out, execute(request));
+                } finally {
+                    lastActivityNanos = System.nanoTime();
+                    active.decrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "[HotReload] Compile daemon connection closed", e);
+        }
+    }
+
+    CompileDaemonProtocol.Reply execute(CompileDaemonProtocol.Request request) {
+        CompileDiagnostics diagnostics = new CompileDiagnostics();
+        try {
+            if (request.type == CompileDaemonProtocol.ANALYZE) {
+                return new CompileDaemonProtocol.Reply("", 0, 0, Map.of(),
+                    backend.analyzeConstantUsage(request.sources, request.classpath));
+            }
+            Map<String, Set<String>> constantUsage = new HashMap<>();
+            Map<String, byte[]> classes = backend.compile(request.sources, request.classpath, constantUsage,
+                diagnostics);
+            return new CompileDaemonProtocol.Reply("", diagnostics.errors, diagnostics.warnings, classes,
+                constantUsage);
+        } catch (IOException | RuntimeException e) {
+            String message = e.getMessage();
+            return new CompileDaemonProtocol.Reply(message == null || message.isEmpty() ? e.toString() : message,
+                diagnostics.errors, diagnostics.warnings, Map.of(), Map.of());
+        }
+    }
+
+    private void exitWhenOrphaned(InputStream parent) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (parent.read() >= 0) {
+                    // nothing is sent, reading only detects the end of the stream
+                }
+            } catch (IOException e) {
+                // the parent is gone either way
+            }
+            System.exit(0);
+        }, "hot-reload-compile-daemon-parent");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void exitWhenIdle() {
+        Thread thread = new Thread(() -> {
+            long checkMillis = Math.max(10, Math.min(1_000, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 4));
+            while (true) {
+                try {
+                    Thread.sleep(checkMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (active.get() == 0 && System.nanoTime() - lastActivityNanos >= idleTimeoutNanos) {
+                    LOG.log(Level.INFO, "[HotReload] Compile daemon idle for {0} ms, exiting",
+                        TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos));
+                    System.exit(0);
+                }
+            }
+        }, "hot-reload-compile-daemon-idle");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
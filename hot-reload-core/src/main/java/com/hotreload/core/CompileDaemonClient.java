@@ -0,0 +1,265 @@
+package com.hotreload.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs javac in a {@link CompileDaemon}, a separate JVM with its own heap limit,
+ * so compiling never allocates on this JVM's heap and this JVM may be a JRE.
+ *
+ * <p>The daemon is started on the first compile and restarted whenever it is
+ * gone, after idling out or crashing. It stops when this client is closed or
+ * this JVM exits. Concurrent compiles use separate connections and run in
+ * parallel in the daemon.
+ */
+final class CompileDaemonClient implements CompilerBackend {
+
+    private static final Logger LOG = Logger.getLogger(CompileDaemonClient.class.getName());
+
+    private final Path javaExecutable;
+    private final int heapMb;
+    private final long idleTimeoutMs;
+    private final Deque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+
+    private Process process;
+    private int port;
+    private boolean closed;
+
+    /**
+     * @param javaHome      JDK to run the daemon with, or empty for this JVM's {@code java.home}
+     * @param heapMb        maximum heap of the daemon in megabytes
+     * @param idleTimeoutMs time after which an unused daemon exits, {@code 0} for never
+     */
+    CompileDaemonClient(String javaHome, int heapMb, long idleTimeoutMs) {
+        if (heapMb <= 0 || idleTimeoutMs < 0) {
+            throw new IllegalArgumentException("compile daemon heap must be positive and idle timeout not negative");
+        }
+        Path home = Path.of(javaHome == null || javaHome.isEmpty() ? System.getProperty("java.home") : javaHome);
+        Path java = home.resolve("bin").resolve("java");
+        this.javaExecutable = Files.exists(java) ? java : home.resolve("bin").resolve("java.exe");
+        this.heapMb = heapMb;
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    static CompileDaemonClient from(HotReloadOptions options) {
+        return new CompileDaemonClient(options.compileDaemonJavaHome(), options.compileDaemonHeapMb(),
+            options.compileDaemonIdleMs());
+    }
+
+    @Override
+    public Map<String, byte[]> compile(Map<Path, String> sources, String classpath,
+                                       Map<String, Set<String>> constantUsage,
+                                       CompileDiagnostics diagnostics) throws IOException {
+        CompileDaemonProtocol.Reply reply = call(
+            new CompileDaemonProtocol.Request(CompileDaemonProtocol.COMPILE, classpath, sources), diagnostics);
+        constantUsage.putAll(reply.constantUsage);
+        return reply.classes;
+    }
+
+    @Override
+    public Map<String, Set<String>> analyzeConstantUsage(Map<Path, String> sources, String classpath)
+            throws IOException {
+        return call(new CompileDaemonProtocol.Request(CompileDaemonProtocol.ANALYZE, classpath, sources),
+                new CompileDiagnostics())
+            .constantUsage;
+    }
+
+    /**
+     * Sends a request, restarting the daemon and retrying once if it went away.
+     * Compilation errors reported by the daemon are not retried; their counts are
+     * still passed to {@code diagnostics}.
+     */
+    private CompileDaemonProtocol.Reply call(CompileDaemonProtocol.Request request,
+                                             CompileDiagnostics diagnostics) throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Connection connection;
+            try {
+                connection = connection();
+            } catch (IOException e) {
+                failure = e;
+                continue;
+            }
+            CompileDaemonProtocol.Reply reply;
+            try {
+                CompileDaemonProtocol.writeRequest(connection.out, request);
+                reply = CompileDaemonProtocol.readReply(connection.in);
+            } catch (IOException e) {
+                connection.close();
+                failure = e;
+                restart(connection.process);
+                continue;
+            }
+            idleConnections.offerFirst(connection);
+            diagnostics.set(reply.errorCount, reply.warningCount);
+            if (!reply.error.isEmpty()) {
+                throw new IOException(reply.error);
+            }
+            return reply;
+        }
+        throw new IOException("Compile daemon is not responding", failure);
+    }
+
+    /** An idle connection, or a new one to the daemon, started if needed; restarts a daemon that refuses it. */
+    private Connection connection() throws IOException {
+        Connection idle = idleConnections.pollFirst();
+        if (idle != null) return idle;
+        Process daemon;
+        int daemonPort;
+        synchronized (this) {
+            daemon = ensureStarted();
+            daemonPort = port;
+        }
+        Socket socket = null;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), daemonPort);
+            socket.setTcpNoDelay(true);
+            Connection connection = new Connection(socket, daemon);
+            CompileDaemonProtocol.writeHello(connection.out);
+            return connection;
+        } catch (IOException e) {
+            if (socket != null) socket.close();
+            restart(daemon);
+            throw e;
+        }
+    }
+
+    private synchronized Process ensureStarted() throws IOException {
+        if (closed) {
+            throw new IOException("Compile daemon client is closed");
+        }
+        if (process != null && process.isAlive()) {
+            return process;
+        }
+        List<String> command = List.of(javaExecutable.toString(), "-Xmx" + heapMb + "m", "-XX:+UseSerialGC",
+            "-cp", daemonClasspath(), CompileDaemon.class.getName(), String.valueOf(idleTimeoutMs));
+        long start = System.nanoTime();
+        Process started = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String line = new BufferedReader(new InputStreamReader(started.getInputStream(), StandardCharsets.UTF_8))
+            .readLine();
+        if (line == null) {
+            throw new IOException("Compile daemon exited on start: " + String.join(" ", command));
+        }
+        try {
+            port = Integer.parseInt(line.trim());
+        } catch (NumberFormatException e) {
+            started.destroy();
+            throw new IOException("Unexpected compile daemon output: " + line);
+        }
+        process = started;
+        LOG.log(Level.INFO, "[HotReload] Started compile daemon (pid {0}, -Xmx{1}m) in {2} ms",
+            new Object[]{String.valueOf(started.pid()), heapMb, (System.nanoTime() - start) / 1_000_000});
+        return started;
+    }
+
+    /**
+     * Drops the connections to a daemon that failed and stops it if it is still
+     * running; the next call starts a new one. A daemon another call already
+     * replaced is left alone.
+     */
+    private synchronized void restart(Process failed) {
+        idleConnections.removeIf(connection -> {
+            if (connection.process != failed) return false;
+            connection.close();
+            return true;
+        });
+        if (failed != process) return;
+        if (process.isAlive()) {
+            LOG.log(Level.WARNING, "[HotReload] Compile daemon (pid {0}) stopped responding, restarting it",
+                String.valueOf(process.pid()));
+        }
+        stop(process);
+        process = null;
+    }
+
+    /** Process of the running daemon, or {@code null}. */
+    synchronized Process process() {
+        return process != null && process.isAlive() ? process : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        dropConnections();
+        if (process != null) {
+            stop(process);
+            process = null;
+        }
+    }
+
+    private void dropConnections() {
+        Connection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    private static void stop(Process process) {
+        process.destroy();
+        try {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Where the daemon's classes are loaded from, extracted if this library is nested in a fat jar. */
+    private static String daemonClasspath() throws IOException {
+        try {
+            Path location = LoaderClasspath.toPath(CompileDaemon.class.getProtectionDomain().getCodeSource()
+                .getLocation());
+            if (location == null) {
+                throw new IOException("Cannot locate the classes of " + CompileDaemon.class.getName());
+            }
+            return location.toString();
+        } catch (URISyntaxException | RuntimeException e) {
+            throw new IOException("Cannot locate the classes of " + CompileDaemon.class.getName(), e);
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+        /** The daemon this connection talks to. */
+        private final Process process;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(Socket socket, Process process) throws IOException {
+            this.socket = socket;
+            this.process = process;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already broken
+            }
+        }
+    }
+}
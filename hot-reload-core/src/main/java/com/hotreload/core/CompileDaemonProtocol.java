@@ -0,0 +1,183 @@
+package com.hotreload.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wire format between a {@link CompileDaemonClient} and its {@link CompileDaemon}.
+ * All numbers are big-endian, strings are a length-prefixed UTF-8 byte array.
+ *
+ * <pre>
+ * hello   (client → daemon):  int magic, int version
+ * request (client → daemon):  byte type (1 compile, 2 analyze), string classpath,
+ *                             int count, count × (string path, string content)
+ * reply   (daemon → client):  string error (empty on success), int errorCount, int warningCount,
+ *                             int count, count × (string className, int length, byte[length] bytecode),
+ *                             int count, count × (string className, int n, n × string constantOwner)
+ * </pre>
+ */
+final class CompileDaemonProtocol {
+
+    static final int MAGIC = 0x484F5443; // "HOTC"
+    static final int VERSION = 2;
+
+    static final byte COMPILE = 1;
+    static final byte ANALYZE = 2;
+
+    private static final int MAX_COUNT = 65_536;
+    private static final int MAX_STRING_LENGTH = 64 << 20;
+    private static final int MAX_CLASS_LENGTH = 64 << 20;
+
+    private CompileDaemonProtocol() {}
+
+    static void writeHello(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.flush();
+    }
+
+    static void readHello(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("Not a compile daemon client, or protocol version " + version
+                + " instead of " + VERSION);
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeByte(request.type);
+        writeString(out, request.classpath);
+        out.writeInt(request.sources.size());
+        for (Map.Entry<Path, String> source : request.sources.entrySet()) {
+            writeString(out, source.getKey().toString());
+            writeString(out, source.getValue());
+        }
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type != COMPILE && type != ANALYZE) {
+            throw new IOException("Unexpected request type " + type);
+        }
+        String classpath = readString(in);
+        int count = readCount(in);
+        Map<Path, String> sources = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            sources.put(Path.of(readString(in)), readString(in));
+        }
+        return new Request(type, classpath, sources);
+    }
+
+    static void writeReply(DataOutputStream out, Reply reply) throws IOException {
+        writeString(out, reply.error);
+        out.writeInt(reply.errorCount);
+        out.writeInt(reply.warningCount);
+        out.writeInt(reply.classes.size());
+        for (Map.Entry<String, byte[]> entry : reply.classes.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+        out.writeInt(reply.constantUsage.size());
+        for (Map.Entry<String, Set<String>> entry : reply.constantUsage.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (String owner : entry.getValue()) {
+                writeString(out, owner);
+            }
+        }
+        out.flush();
+    }
+
+    static Reply readReply(DataInputStream in) throws IOException {
+        String error = readString(in);
+        int errorCount = in.readInt();
+        int warningCount = in.readInt();
+        int classCount = readCount(in);
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (int i = 0; i < classCount; i++) {
+            String name = readString(in);
+            int length = in.readInt();
+            if (length < 0 || length > MAX_CLASS_LENGTH) {
+                throw new IOException("Invalid class length " + length);
+            }
+            classes.put(name, in.readNBytes(length));
+        }
+        int usageCount = readCount(in);
+        Map<String, Set<String>> constantUsage = new LinkedHashMap<>();
+        for (int i = 0; i < usageCount; i++) {
+            String className = readString(in);
+            int owners = readCount(in);
+            Set<String> used = new LinkedHashSet<>();
+            for (int j = 0; j < owners; j++) {
+                used.add(readString(in));
+            }
+            constantUsage.put(className, used);
+        }
+        return new Reply(error, errorCount, warningCount, classes, constantUsage);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IOException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    static final class Request {
+
+        final byte type;
+        final String classpath;
+        final Map<Path, String> sources;
+
+        Request(byte type, String classpath, Map<Path, String> sources) {
+            this.type = type;
+            this.classpath = classpath;
+            this.sources = sources;
+        }
+    }
+
+    static final class Reply {
+
+        final String error;
+        final int errorCount;
+        final int warningCount;
+        final Map<String, byte[]> classes;
+        final Map<String, Set<String>> constantUsage;
+
+        Reply(String error, int errorCount, int warningCount, Map<String, byte[]> classes,
+              Map<String, Set<String>> constantUsage) {
+            this.error = error;
+            this.errorCount = errorCount;
+            this.warningCount = warningCount;
+            this.classes = classes;
+            this.constantUsage = constantUsage;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.hotreload.core;
+
+/**
+ * Receives the number of errors and warnings javac reported for a compile,
+ * also when it failed. Filled by a {@link CompilerBackend}, in this JVM or
+ * from a compile daemon's reply.
+ */
+final class CompileDiagnostics {
+
+    int errors;
+    int warnings;
+
+    void set(int errors, int warnings) {
+        this.errors = errors;
+        this.warnings = warnings;
+    }
+}
@@ -0,0 +1,34 @@
+package com.hotreload.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.hotreload.Compile")
+@Label("Compile")
+@Category("Hot Reload")
+@Description("Compilation of changed sources for the running JVM, in it or in the compile daemon")
+@StackTrace(false)
+final class CompileEvent extends Event {
+
+    @Label("Sources")
+    String sources;
+
+    @Label("Source Count")
+    int sourceCount;
+
+    @Label("Class Count")
+    int classCount;
+
+    @Label("Errors")
+    int errorCount;
+
+    @Label("Warnings")
+    int warningCount;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
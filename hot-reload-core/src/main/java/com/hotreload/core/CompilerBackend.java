@@ -0,0 +1,33 @@
+package com.hotreload.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs javac for a {@link HotSourceCompiler}: in this JVM, or in a compile
+ * daemon so the compiler's allocations stay off the application heap.
+ * Sources are passed as absolute path and content, read once by the caller.
+ */
+interface CompilerBackend extends Closeable {
+
+    /**
+     * Compiles the sources against {@code classpath} and returns every emitted
+     * class keyed by binary name.
+     *
+     * @param constantUsage receives, per compiled top-level class, the classes whose
+     *                      compile-time constants it inlined
+     * @param diagnostics   receives the error and warning counts, also when compilation fails
+     */
+    Map<String, byte[]> compile(Map<Path, String> sources, String classpath,
+                                Map<String, Set<String>> constantUsage,
+                                CompileDiagnostics diagnostics) throws IOException;
+
+    /**
+     * Parses and attributes the sources without generating code, returning the
+     * constant usage of each top-level class.
+     */
+    Map<String, Set<String>> analyzeConstantUsage(Map<Path, String> sources, String classpath) throws IOException;
+}
@@ -0,0 +1,76 @@
+package com.hotreload.core;
+
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records which classes' compile-time constants each compiled top-level class
+ * reads. javac inlines such constants, so these edges are invisible in the
+ * resulting constant pool.
+ */
+class ConstantUsageCollector implements TaskListener {
+
+    private final Trees trees;
+    private final Elements elements;
+    private final Map<String, Set<String>> usage = new HashMap<>();
+
+    ConstantUsageCollector(JavacTask task) {
+        this.trees = Trees.instance(task);
+        this.elements = task.getElements();
+    }
+
+    Map<String, Set<String>> usage() {
+        return usage;
+    }
+
+    @Override
+    public void finished(TaskEvent event) {
+        if (event.getKind() != TaskEvent.Kind.ANALYZE || event.getTypeElement() == null) return;
+
+        TypeElement type = event.getTypeElement();
+        TreePath path = trees.getPath(type);
+        if (path == null) return;
+
+        String unit = elements.getBinaryName(type).toString();
+        Set<String> owners = usage.computeIfAbsent(unit, u -> new HashSet<>());
+        new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitIdentifier(IdentifierTree node, Void unused) {
+                record(getCurrentPath());
+                return super.visitIdentifier(node, unused);
+            }
+
+            @Override
+            public Void visitMemberSelect(MemberSelectTree node, Void unused) {
+                record(getCurrentPath());
+                return super.visitMemberSelect(node, unused);
+            }
+
+            private void record(TreePath current) {
+                Element element = trees.getElement(current);
+                if (element instanceof VariableElement variable
+                        && variable.getKind() == ElementKind.FIELD
+                        && variable.getConstantValue() != null
+                        && variable.getEnclosingElement() instanceof TypeElement owner) {
+                    owners.add(elements.getBinaryName(owner).toString());
+                }
+            }
+        }.scan(path, null);
+    }
+}
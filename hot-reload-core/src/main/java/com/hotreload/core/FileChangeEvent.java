@@ -0,0 +1,19 @@
+package com.hotreload.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.hotreload.FileChange")
+@Label("File Change")
+@Category("Hot Reload")
+@Description("A watched source or class file changed")
+@StackTrace(false)
+final class FileChangeEvent extends Event {
+
+    @Label("Path")
+    String path;
+}
@@ -0,0 +1,292 @@
+package com.hotreload.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes compiled bytecode to {@link FleetSubscriber}s in other JVMs, so a
+ * change is compiled once and applied on every replica.
+ *
+ * <p>The coordinator listens on the loopback interface only. Each batch carries
+ * a version hash over its classes, which subscribers verify before applying it,
+ * and every subscriber acknowledges with its apply time or the reason it failed;
+ * {@link #publish} completes with a {@link FleetReport} once all nodes answered
+ * or the acknowledgement timeout passed. A node that subscribes late first
+ * receives the latest published version of every class.
+ */
+public class FleetCoordinator implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(FleetCoordinator.class.getName());
+
+    public static final long DEFAULT_ACK_TIMEOUT_MS = 30_000;
+
+    private static final int HELLO_TIMEOUT_MS = 5_000;
+
+    private final ServerSocket serverSocket;
+    private final long ackTimeoutMs;
+    private final List<Node> nodes = new CopyOnWriteArrayList<>();
+    private final Map<String, byte[]> published = new LinkedHashMap<>();
+    private final AtomicLong batchIds = new AtomicLong();
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(
+        r -> daemon(r, "hot-reload-fleet-timeouts"));
+
+    private Thread acceptorThread;
+
+    /** @param port port to listen on, or {@code 0} for any free port */
+    public FleetCoordinator(int port) throws IOException {
+        this(port, DEFAULT_ACK_TIMEOUT_MS);
+    }
+
+    public FleetCoordinator(int port, long ackTimeoutMs) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.ackTimeoutMs = ackTimeoutMs;
+    }
+
+    public synchronized void start() {
+        if (acceptorThread != null) return;
+        acceptorThread = daemon(this::acceptLoop, "hot-reload-fleet-acceptor");
+        acceptorThread.start();
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int subscriberCount() {
+        return nodes.size();
+    }
+
+    /**
+     * Sends a batch of classes to every subscribed node without waiting for them.
+     *
+     * @param classes bytecode keyed by binary name
+     * @return completes when all nodes subscribed at this point acknowledged the
+     *         batch, disconnected or timed out; never completes exceptionally
+     */
+    public CompletableFuture<FleetReport> publish(Map<String, byte[]> classes) {
+        Map<String, byte[]> batch = new LinkedHashMap<>(classes);
+        PendingBatch pending;
+        synchronized (this) {
+            published.putAll(batch);
+            pending = send(batch, nodes);
+        }
+        return pending.future;
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "[HotReload] Error closing fleet socket", e);
+        }
+        for (Node node : nodes) {
+            node.disconnect("coordinator closed");
+        }
+        timeouts.shutdownNow();
+    }
+
+    private PendingBatch send(Map<String, byte[]> classes, List<Node> recipients) {
+        FleetProtocol.Batch batch = new FleetProtocol.Batch(
+            batchIds.incrementAndGet(), FleetProtocol.versionHash(classes), classes);
+        PendingBatch pending = new PendingBatch(batch, recipients);
+        pending.future.thenAccept(FleetCoordinator::log);
+        for (Node node : recipients) {
+            node.send(batch, pending);
+        }
+        if (!recipients.isEmpty()) {
+            try {
+                timeouts.schedule(() -> pending.timeOut("no acknowledgement within " + ackTimeoutMs + " ms"),
+                    ackTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                pending.timeOut("coordinator closed");
+            }
+        }
+        return pending;
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    LOG.log(Level.WARNING, "[HotReload] Fleet coordinator stopped accepting subscribers", e);
+                }
+                return;
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                socket.setSoTimeout(HELLO_TIMEOUT_MS);
+                String nodeId = FleetProtocol.readHello(in);
+                socket.setSoTimeout(0);
+                subscribe(new Node(nodeId, socket, in, out));
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "[HotReload] Rejected fleet subscriber " + socket.getRemoteSocketAddress(), e);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private synchronized void subscribe(Node node) {
+        nodes.add(node);
+        node.reader.start();
+        LOG.log(Level.INFO, "[HotReload] Fleet node {0} subscribed, {1} node(s) in total",
+            new Object[]{node.id, nodes.size()});
+        if (!published.isEmpty()) {
+            send(new LinkedHashMap<>(published), List.of(node));
+        }
+    }
+
+    private static void log(FleetReport report) {
+        if (report.nodes().isEmpty()) return;
+        List<FleetReport.NodeResult> failures = report.failures();
+        if (failures.isEmpty()) {
+            LOG.log(Level.INFO, "[HotReload] Fleet {0}", report);
+        } else {
+            LOG.log(Level.WARNING, "[HotReload] Fleet {0}; failed on {1}", new Object[]{report, failures});
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // already broken
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /** A subscribed JVM: batches are written by its own sender, acknowledgements read by its reader. */
+    private final class Node {
+
+        private final String id;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final ExecutorService sender;
+        private final Thread reader;
+        private final Map<Long, PendingBatch> inFlight = new ConcurrentHashMap<>();
+
+        private Node(String id, Socket socket, DataInputStream in, DataOutputStream out) {
+            this.id = id;
+            this.socket = socket;
+            this.in = in;
+            this.out = out;
+            this.sender = Executors.newSingleThreadExecutor(r -> daemon(r, "hot-reload-fleet-sender-" + id));
+            this.reader = daemon(this::readAcks, "hot-reload-fleet-reader-" + id);
+        }
+
+        private void send(FleetProtocol.Batch batch, PendingBatch pending) {
+            inFlight.put(batch.id, pending);
+            try {
+                sender.execute(() -> {
+                    try {
+                        FleetProtocol.writeBatch(out, batch);
+                    } catch (IOException e) {
+                        disconnect(e.toString());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                disconnect("disconnected");
+            }
+        }
+
+        private void readAcks() {
+            try {
+                while (true) {
+                    FleetProtocol.Ack ack = FleetProtocol.readAck(in);
+                    PendingBatch pending = inFlight.remove(ack.batchId);
+                    if (pending != null) {
+                        pending.record(this, new FleetReport.NodeResult(id, ack.success, ack.applyNanos,
+                            System.nanoTime() - pending.sentNanos, List.of(ack.applied), ack.error));
+                    }
+                }
+            } catch (IOException e) {
+                disconnect(e.toString());
+            }
+        }
+
+        private void disconnect(String reason) {
+            if (!nodes.remove(this)) return;
+            closeQuietly(socket);
+            sender.shutdownNow();
+            LOG.log(Level.INFO, "[HotReload] Fleet node {0} disconnected: {1}", new Object[]{id, reason});
+            for (PendingBatch pending : inFlight.values()) {
+                pending.record(this, FleetReport.NodeResult.failed(id, System.nanoTime() - pending.sentNanos,
+                    "disconnected: " + reason));
+            }
+            inFlight.clear();
+        }
+    }
+
+    private final class PendingBatch {
+
+        private final FleetProtocol.Batch batch;
+        private final long sentNanos = System.nanoTime();
+        private final Set<Node> waiting;
+        private final List<FleetReport.NodeResult> results = new ArrayList<>();
+        private final CompletableFuture<FleetReport> future = new CompletableFuture<>();
+
+        private PendingBatch(FleetProtocol.Batch batch, List<Node> recipients) {
+            this.batch = batch;
+            this.waiting = new LinkedHashSet<>(recipients);
+            if (waiting.isEmpty()) {
+                complete();
+            }
+        }
+
+        private synchronized void record(Node node, FleetReport.NodeResult result) {
+            if (waiting.remove(node)) {
+                results.add(result);
+                if (waiting.isEmpty()) complete();
+            }
+        }
+
+        private synchronized void timeOut(String reason) {
+            if (waiting.isEmpty()) return;
+            for (Node node : waiting) {
+                node.inFlight.remove(batch.id);
+                results.add(FleetReport.NodeResult.failed(node.id, System.nanoTime() - sentNanos, reason));
+            }
+            waiting.clear();
+            complete();
+        }
+
+        private void complete() {
+            future.complete(new FleetReport(batch.id, FleetProtocol.shortVersion(batch.versionHash),
+                batch.classes.size(), results));
+        }
+    }
+}
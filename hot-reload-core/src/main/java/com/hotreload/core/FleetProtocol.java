@@ -0,0 +1,196 @@
+package com.hotreload.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Wire format between a {@link FleetCoordinator} and its {@link FleetSubscriber}s.
+ * All numbers are big-endian, strings are a length-prefixed UTF-8 byte array.
+ *
+ * <pre>
+ * hello (subscriber → coordinator):  int magic, int version, string nodeId
+ * batch (coordinator → subscriber):  byte 1, long batchId, byte[32] versionHash, int count,
+ *                                    count × (string className, int length, byte[length] bytecode)
+ * ack   (subscriber → coordinator):  byte 2, long batchId, boolean success, long applyNanos,
+ *                                    int count, count × string appliedClass, string error
+ * </pre>
+ */
+final class FleetProtocol {
+
+    static final int MAGIC = 0x484F5452; // "HOTR"
+    static final int VERSION = 1;
+
+    private static final byte BATCH = 1;
+    private static final byte ACK = 2;
+    private static final int HASH_LENGTH = 32;
+    private static final int MAX_CLASSES = 65_536;
+    private static final int MAX_STRING_LENGTH = 1 << 20;
+    private static final int MAX_CLASS_LENGTH = 64 << 20;
+
+    private FleetProtocol() {}
+
+    static void writeHello(DataOutputStream out, String nodeId) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, nodeId);
+        out.flush();
+    }
+
+    /** @return the node id of the subscriber */
+    static String readHello(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("Not a hot reload subscriber, or protocol version " + version
+                + " instead of " + VERSION);
+        }
+        return readString(in);
+    }
+
+    static void writeBatch(DataOutputStream out, Batch batch) throws IOException {
+        out.writeByte(BATCH);
+        out.writeLong(batch.id);
+        out.write(batch.versionHash);
+        out.writeInt(batch.classes.size());
+        for (Map.Entry<String, byte[]> entry : batch.classes.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+        out.flush();
+    }
+
+    static Batch readBatch(DataInputStream in) throws IOException {
+        expectType(in, BATCH);
+        long id = in.readLong();
+        byte[] versionHash = in.readNBytes(HASH_LENGTH);
+        int count = readCount(in, MAX_CLASSES);
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = readString(in);
+            classes.put(name, readBytes(in, readCount(in, MAX_CLASS_LENGTH)));
+        }
+        return new Batch(id, versionHash, classes);
+    }
+
+    static void writeAck(DataOutputStream out, Ack ack) throws IOException {
+        out.writeByte(ACK);
+        out.writeLong(ack.batchId);
+        out.writeBoolean(ack.success);
+        out.writeLong(ack.applyNanos);
+        out.writeInt(ack.applied.length);
+        for (String name : ack.applied) {
+            writeString(out, name);
+        }
+        writeString(out, ack.error);
+        out.flush();
+    }
+
+    static Ack readAck(DataInputStream in) throws IOException {
+        expectType(in, ACK);
+        long batchId = in.readLong();
+        boolean success = in.readBoolean();
+        long applyNanos = in.readLong();
+        String[] applied = new String[readCount(in, MAX_CLASSES)];
+        for (int i = 0; i < applied.length; i++) {
+            applied[i] = readString(in);
+        }
+        return new Ack(batchId, success, applyNanos, applied, readString(in));
+    }
+
+    /** SHA-256 over all class names and their bytecode, independent of iteration order. */
+    static byte[] versionHash(Map<String, byte[]> classes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Map.Entry<String, byte[]> entry : new TreeMap<>(classes).entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            digest.update(intBytes(name.length));
+            digest.update(name);
+            digest.update(intBytes(entry.getValue().length));
+            digest.update(entry.getValue());
+        }
+        return digest.digest();
+    }
+
+    /** Short form of a version hash for log messages. */
+    static String shortVersion(byte[] versionHash) {
+        return HexFormat.of().formatHex(versionHash, 0, 6);
+    }
+
+    private static void expectType(DataInputStream in, byte type) throws IOException {
+        int actual = in.readUnsignedByte();
+        if (actual != type) {
+            throw new IOException("Unexpected message type " + actual + ", expected " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in, readCount(in, MAX_STRING_LENGTH)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int readCount(DataInputStream in, int max) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException("Invalid length " + count);
+        }
+        return count;
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    static final class Batch {
+
+        final long id;
+        final byte[] versionHash;
+        final Map<String, byte[]> classes;
+
+        Batch(long id, byte[] versionHash, Map<String, byte[]> classes) {
+            this.id = id;
+            this.versionHash = versionHash;
+            this.classes = classes;
+        }
+    }
+
+    static final class Ack {
+
+        final long batchId;
+        final boolean success;
+        final long applyNanos;
+        final String[] applied;
+        final String error;
+
+        Ack(long batchId, boolean success, long applyNanos, String[] applied, String error) {
+            this.batchId = batchId;
+            this.success = success;
+            this.applyNanos = applyNanos;
+            this.applied = applied;
+            this.error = error;
+        }
+    }
+}
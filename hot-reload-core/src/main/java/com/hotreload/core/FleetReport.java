@@ -0,0 +1,122 @@
+package com.hotreload.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of one batch published by a {@link FleetCoordinator}: for every node
+ * that was subscribed when the batch went out, whether it applied the batch and
+ * how long that took.
+ */
+public final class FleetReport {
+
+    private final long batchId;
+    private final String version;
+    private final int classCount;
+    private final List<NodeResult> nodes;
+
+    FleetReport(long batchId, String version, int classCount, List<NodeResult> nodes) {
+        this.batchId = batchId;
+        this.version = version;
+        this.classCount = classCount;
+        this.nodes = List.copyOf(nodes);
+    }
+
+    public long batchId() {
+        return batchId;
+    }
+
+    /** Leading hex digits of the batch's version hash. */
+    public String version() {
+        return version;
+    }
+
+    public int classCount() {
+        return classCount;
+    }
+
+    public List<NodeResult> nodes() {
+        return nodes;
+    }
+
+    public List<NodeResult> failures() {
+        List<NodeResult> failures = new ArrayList<>();
+        for (NodeResult node : nodes) {
+            if (!node.succeeded()) failures.add(node);
+        }
+        return failures;
+    }
+
+    public boolean allSucceeded() {
+        return failures().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        long maxApplyMs = 0;
+        for (NodeResult node : nodes) {
+            maxApplyMs = Math.max(maxApplyMs, node.applyNanos() / 1_000_000);
+        }
+        return "batch " + batchId + " (" + classCount + " class(es), version " + version + "): applied on "
+            + (nodes.size() - failures().size()) + "/" + nodes.size() + " node(s), slowest apply " + maxApplyMs + " ms";
+    }
+
+    public static final class NodeResult {
+
+        private final String nodeId;
+        private final boolean succeeded;
+        private final long applyNanos;
+        private final long roundTripNanos;
+        private final List<String> applied;
+        private final String error;
+
+        NodeResult(String nodeId, boolean succeeded, long applyNanos, long roundTripNanos,
+                   List<String> applied, String error) {
+            this.nodeId = nodeId;
+            this.succeeded = succeeded;
+            this.applyNanos = applyNanos;
+            this.roundTripNanos = roundTripNanos;
+            this.applied = List.copyOf(applied);
+            this.error = error;
+        }
+
+        static NodeResult failed(String nodeId, long roundTripNanos, String error) {
+            return new NodeResult(nodeId, false, 0, roundTripNanos, List.of(), error);
+        }
+
+        public String nodeId() {
+            return nodeId;
+        }
+
+        public boolean succeeded() {
+            return succeeded;
+        }
+
+        /** Time the node spent redefining, as measured by the node. */
+        public long applyNanos() {
+            return applyNanos;
+        }
+
+        /** Time from sending the batch until the node's acknowledgement arrived. */
+        public long roundTripNanos() {
+            return roundTripNanos;
+        }
+
+        /** Classes the node redefined or defined; unchanged and unknown classes are left out. */
+        public List<String> applied() {
+            return applied;
+        }
+
+        /** Why the node did not apply the batch, or an empty string. */
+        public String error() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return succeeded
+                ? nodeId + ": applied " + applied.size() + " class(es) in " + applyNanos / 1_000 + " µs"
+                : nodeId + ": failed, " + error;
+        }
+    }
+}
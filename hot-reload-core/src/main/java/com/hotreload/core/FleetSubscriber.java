@@ -0,0 +1,130 @@
+package com.hotreload.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.instrument.UnmodifiableClassException;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives bytecode published by a {@link FleetCoordinator} and applies it to
+ * this JVM's registered classes, instead of watching and compiling locally.
+ *
+ * <p>Each batch is applied only if its version hash matches the received
+ * classes. The subscriber acknowledges every batch with the time spent
+ * redefining or the reason it failed, and reconnects if the coordinator goes away.
+ * Applied classes are warmed up by the shared {@link HotReloadWarmer}.
+ */
+public class FleetSubscriber implements Runnable, AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(FleetSubscriber.class.getName());
+    private static final long RECONNECT_DELAY_MS = 1_000;
+
+    private final String host;
+    private final int port;
+    private final String nodeId;
+    private final HotClassRegistry registry;
+    private final HotClassReloader reloader;
+
+    private volatile boolean closed;
+    private volatile Socket socket;
+    private Thread thread;
+
+    public FleetSubscriber(String host, int port, String nodeId, HotClassRegistry registry, HotClassReloader reloader) {
+        this.host = host;
+        this.port = port;
+        this.nodeId = nodeId;
+        this.registry = registry;
+        this.reloader = reloader;
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+        thread = new Thread(this, "hot-reload-fleet-subscriber");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        boolean warned = false;
+        while (!closed) {
+            try (Socket connection = new Socket(host, port)) {
+                socket = connection;
+                if (closed) return;
+                connection.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                FleetProtocol.writeHello(out, nodeId);
+                LOG.log(Level.INFO, "[HotReload] Subscribed to fleet coordinator at {0}:{1} as {2}",
+                    new Object[]{host, String.valueOf(port), nodeId});
+                warned = false;
+                while (!closed) {
+                    FleetProtocol.writeAck(out, apply(FleetProtocol.readBatch(in)));
+                }
+            } catch (IOException e) {
+                if (closed) return;
+                if (!warned) {
+                    LOG.log(Level.WARNING, "[HotReload] Lost fleet coordinator at " + host + ":" + port
+                        + ", retrying every " + RECONNECT_DELAY_MS + " ms: " + e);
+                    warned = true;
+                }
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // reader thread exits either way
+            }
+        }
+        synchronized (this) {
+            if (thread != null) thread.interrupt();
+        }
+    }
+
+    private FleetProtocol.Ack apply(FleetProtocol.Batch batch) {
+        String version = FleetProtocol.shortVersion(batch.versionHash);
+        if (!Arrays.equals(batch.versionHash, FleetProtocol.versionHash(batch.classes))) {
+            LOG.log(Level.WARNING, "[HotReload] Rejected fleet batch {0}: version hash mismatch", batch.id);
+            return failure(batch, "version hash mismatch, expected " + version);
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<String> applied = reloader.reload(batch.classes, registry);
+            long elapsed = System.nanoTime() - start;
+            if (!applied.isEmpty()) {
+                LOG.log(Level.INFO, "[HotReload] Applied fleet batch {0} (version {1}): {2}",
+                    new Object[]{batch.id, version, String.join(", ", applied)});
+                HotReloadWarmer.shared().warmUp(applied, registry);
+            }
+            return new FleetProtocol.Ack(batch.id, true, elapsed, applied.toArray(String[]::new), "");
+        } catch (ReflectiveOperationException | UnmodifiableClassException | RuntimeException
+                 | LinkageError e) {
+            LOG.log(Level.WARNING, "[HotReload] Could not apply fleet batch " + batch.id, e);
+            return failure(batch, e.toString());
+        }
+    }
+
+    private static FleetProtocol.Ack failure(FleetProtocol.Batch batch, String error) {
+        return new FleetProtocol.Ack(batch.id, false, 0, new String[0], error);
+    }
+}
@@ -0,0 +1,44 @@
+package com.hotreload.core;
+
+import java.security.ProtectionDomain;
+import java.util.Map;
+
+/**
+ * Defines one generation of a class and its nested classes, child-first, on top
+ * of the loader of the original class. Everything else is delegated to the
+ * parent, so the generation shares all other classes with the application.
+ */
+final class GenerationClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> classes;
+    private final ProtectionDomain protectionDomain;
+
+    GenerationClassLoader(String name, ClassLoader parent, Map<String, byte[]> classes,
+                          ProtectionDomain protectionDomain) {
+        super(name, parent);
+        this.classes = Map.copyOf(classes);
+        this.protectionDomain = protectionDomain;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        byte[] bytecode = classes.get(name);
+        if (bytecode == null) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                loaded = defineClass(name, bytecode, 0, bytecode.length, protectionDomain);
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.hotreload.core;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Routes calls made through the stubs of {@link GenerationStubs} to the newest
+ * generation of a class.
+ *
+ * <p>Every stubbed method owns a {@link MutableCallSite} bound directly to the
+ * method of the current generation, so once the JIT has compiled the caller the
+ * indirection costs no more than an ordinary call. Loading a generation retargets
+ * the call sites of its class; the previous generation is then no longer
+ * referenced from here and is unloaded with its class loader.
+ *
+ * <p>Instances of the original class cannot gain the fields of a new generation,
+ * so instance methods run on a shadow instance of the generation, created on
+ * first use from the fields of the original instance with the same name and a
+ * compatible type. The shadow lives as long as the original instance and its
+ * state is copied the same way into the next generation. Non-final static fields
+ * are copied when a generation is loaded.
+ */
+public final class GenerationDispatch {
+
+    private static final Logger LOG = Logger.getLogger(GenerationDispatch.class.getName());
+
+    private static final ClassValue<Generations> GENERATIONS = new ClassValue<>() {
+        @Override
+        protected Generations computeValue(Class<?> type) {
+            return new Generations(type);
+        }
+    };
+
+    private static final MethodHandle SHADOW_OF;
+    private static final MethodHandle ALLOCATE_INSTANCE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            SHADOW_OF = lookup.findVirtual(ShadowTable.class, "shadowOf",
+                MethodType.methodType(Object.class, Object.class));
+            // shadows are allocated without running a constructor, their state is copied in
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            ALLOCATE_INSTANCE = lookup.findVirtual(unsafeClass, "allocateInstance",
+                MethodType.methodType(Object.class, Class.class)).bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private GenerationDispatch() {}
+
+    /** Bootstrap method of the {@code invokedynamic} in a stubbed static method. */
+    public static CallSite bootstrapStatic(MethodHandles.Lookup caller, String name, MethodType type) {
+        return GENERATIONS.get(caller.lookupClass()).callSite(name, type, true);
+    }
+
+    /**
+     * Bootstrap method of the {@code invokedynamic} in a stubbed instance method;
+     * the first parameter of {@code type} is the receiver.
+     */
+    public static CallSite bootstrapVirtual(MethodHandles.Lookup caller, String name, MethodType type) {
+        return GENERATIONS.get(caller.lookupClass()).callSite(name, type, false);
+    }
+
+    /**
+     * Routes calls to the methods of {@code original} to {@code generation} from
+     * now on. The generation must be initialized.
+     *
+     * @param bytecode bytecode of the generation and its nested classes, by binary name
+     * @return the number of the new generation, starting at {@code 1}
+     */
+    static int switchTo(Class<?> original, Class<?> generation, Map<String, byte[]> bytecode) {
+        return GENERATIONS.get(original).switchTo(generation, bytecode);
+    }
+
+    /** Number of the current generation of a class, {@code 0} if it has none. */
+    static int generation(Class<?> original) {
+        return GENERATIONS.get(original).number;
+    }
+
+    /** Class calls to {@code original} are routed to, or {@code null} if it has no generation. */
+    static Class<?> current(Class<?> original) {
+        return GENERATIONS.get(original).current;
+    }
+
+    /** Bytecode of the current generation by binary name, or {@code null} if it has none. */
+    static Map<String, byte[]> bytecode(Class<?> original) {
+        return GENERATIONS.get(original).bytecode;
+    }
+
+    /** Stub bytecode the original class was last redefined with, or {@code null}. */
+    static byte[] stub(Class<?> original) {
+        return GENERATIONS.get(original).stub;
+    }
+
+    static void stubbed(Class<?> original, byte[] stub) {
+        GENERATIONS.get(original).stub = stub;
+    }
+
+    /** Call sites and state of one original class. */
+    private static final class Generations {
+
+        private final Class<?> original;
+        private final Map<String, Site> sites = new ConcurrentHashMap<>();
+        private volatile Class<?> current;
+        private volatile ShadowTable shadows;
+        private volatile Map<String, byte[]> bytecode;
+        private volatile byte[] stub;
+        private volatile int number;
+
+        private Generations(Class<?> original) {
+            this.original = original;
+        }
+
+        private synchronized CallSite callSite(String name, MethodType type, boolean isStatic) {
+            String key = (isStatic ? "static " : "") + name + type.toMethodDescriptorString();
+            Site site = sites.get(key);
+            if (site == null) {
+                site = new Site(name, type, isStatic);
+                site.callSite.setTarget(target(site));
+                sites.put(key, site);
+            }
+            return site.callSite;
+        }
+
+        private synchronized int switchTo(Class<?> generation, Map<String, byte[]> bytecode) {
+            copyStaticFields(current == null ? original : current, generation);
+            ShadowTable next = new ShadowTable(generation);
+            if (shadows != null) {
+                shadows.migrateTo(next);
+            }
+            shadows = next;
+            current = generation;
+            this.bytecode = Map.copyOf(bytecode);
+            number++;
+
+            MutableCallSite[] callSites = new MutableCallSite[sites.size()];
+            int i = 0;
+            for (Site site : sites.values()) {
+                site.callSite.setTarget(target(site));
+                callSites[i++] = site.callSite;
+            }
+            MutableCallSite.syncAll(callSites);
+            return number;
+        }
+
+        private MethodHandle target(Site site) {
+            Class<?> generation = current;
+            if (generation == null) {
+                return thrower(site, original.getName() + " has no generation to route " + site.name + " to");
+            }
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(generation, MethodHandles.lookup());
+                if (site.isStatic) {
+                    return lookup.findStatic(generation, site.name, site.type);
+                }
+                MethodHandle method = lookup.findVirtual(generation, site.name, site.type.dropParameterTypes(0, 1));
+                MethodHandle shadow = SHADOW_OF.bindTo(shadows)
+                    .asType(MethodType.methodType(generation, site.type.parameterType(0)));
+                return MethodHandles.filterArguments(method, 0, shadow);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return thrower(site, original.getName() + "." + site.name + site.type.toMethodDescriptorString()
+                    + " is not in generation " + number + ": " + e.getMessage());
+            }
+        }
+
+        private static MethodHandle thrower(Site site, String message) {
+            MethodHandle thrower = MethodHandles.throwException(site.type.returnType(), NoSuchMethodError.class)
+                .bindTo(new NoSuchMethodError(message));
+            return MethodHandles.dropArguments(thrower, 0, site.type.parameterList());
+        }
+    }
+
+    private static final class Site {
+
+        private final String name;
+        private final MethodType type;
+        private final boolean isStatic;
+        private final MutableCallSite callSite;
+
+        private Site(String name, MethodType type, boolean isStatic) {
+            this.name = name;
+            this.type = type;
+            this.isStatic = isStatic;
+            this.callSite = new MutableCallSite(type);
+        }
+    }
+
+    /** Shadow instances of one generation, keyed weakly by the identity of the original instance. */
+    private static final class ShadowTable {
+
+        private final Class<?> generation;
+        private final Map<InstanceKey, Object> shadows = new ConcurrentHashMap<>();
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        private volatile Object[] last = new Object[2];
+
+        private ShadowTable(Class<?> generation) {
+            this.generation = generation;
+        }
+
+        @SuppressWarnings("unused") // called through SHADOW_OF
+        private Object shadowOf(Object instance) {
+            Object[] cached = last;
+            if (cached[0] == instance) {
+                return cached[1];
+            }
+            Object shadow = shadows.get(new InstanceKey(instance, null));
+            if (shadow == null) {
+                expunge();
+                shadow = shadows.computeIfAbsent(new InstanceKey(instance, queue), key -> newShadow(instance));
+            }
+            last = new Object[]{instance, shadow};
+            return shadow;
+        }
+
+        private void migrateTo(ShadowTable next) {
+            shadows.forEach((key, shadow) -> {
+                Object instance = key.get();
+                if (instance != null) {
+                    next.shadows.put(new InstanceKey(instance, next.queue), next.newShadow(shadow));
+                }
+            });
+        }
+
+        private Object newShadow(Object state) {
+            try {
+                Object shadow = (Object) ALLOCATE_INSTANCE.invokeExact(generation);
+                copyInstanceFields(state, shadow);
+                return shadow;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot create a shadow instance of " + generation.getName(), e);
+            }
+        }
+
+        private void expunge() {
+            for (Object key; (key = queue.poll()) != null; ) {
+                shadows.remove(key);
+            }
+        }
+    }
+
+    /** Weak reference compared by the identity of its referent. */
+    private static final class InstanceKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        private InstanceKey(Object instance, ReferenceQueue<Object> queue) {
+            super(instance, queue);
+            this.hash = System.identityHashCode(instance);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof InstanceKey key)) return false;
+            Object referent = get();
+            return referent != null && referent == key.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Copies instance fields declared by {@code to}'s class and its superclasses
+     * from the field with the same name in the corresponding class of {@code from},
+     * which is either the same class or an earlier generation of it.
+     */
+    private static void copyInstanceFields(Object from, Object to) {
+        Class<?> source = from.getClass();
+        for (Class<?> type = to.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            Class<?> counterpart = type.isAssignableFrom(source) ? type : source;
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    copy(declaredField(counterpart, field.getName()), from, field, to);
+                }
+            }
+            if (counterpart == source) {
+                source = source.getSuperclass();
+            }
+        }
+    }
+
+    private static void copyStaticFields(Class<?> from, Class<?> to) {
+        for (Field field : to.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+                Field source = declaredField(from, field.getName());
+                if (source != null && Modifier.isStatic(source.getModifiers())) {
+                    copy(source, null, field, null);
+                }
+            }
+        }
+    }
+
+    private static void copy(Field source, Object from, Field target, Object to) {
+        if (source == null || source.getType().isPrimitive() != target.getType().isPrimitive()
+                || source.getType().isPrimitive() && source.getType() != target.getType()) {
+            return;
+        }
+        try {
+            source.setAccessible(true);
+            target.setAccessible(true);
+            Object value = source.get(from);
+            if (value == null || target.getType().isPrimitive() || target.getType().isInstance(value)) {
+                target.set(to, value);
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            LOG.log(Level.FINE, "[HotReload] Could not copy {0} into the new generation: {1}",
+                new Object[]{target, e});
+        }
+    }
+
+    private static Field declaredField(Class<?> type, String name) {
+        try {
+            return type.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+}
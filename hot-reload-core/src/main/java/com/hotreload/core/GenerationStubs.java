@@ -0,0 +1,321 @@
+package com.hotreload.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites a class so that its methods forward every call to the newest
+ * generation of the class through {@link GenerationDispatch}.
+ *
+ * <p>Each routed method body becomes a single {@code invokedynamic} passing the
+ * receiver and arguments on, whose call site is switched when a new generation
+ * is loaded. Only method bodies, the constant pool and the bootstrap method table
+ * change, so the result is a valid redefinition even though the generations
+ * themselves may add or remove members. Constructors, static initializers,
+ * private methods and methods whose descriptor mentions the class or its nested
+ * classes keep their original code.
+ */
+final class GenerationStubs {
+
+    private static final int ACC_STATIC = 0x0008;
+    private static final String DISPATCH = "com/hotreload/core/GenerationDispatch";
+    private static final String BOOTSTRAP_DESCRIPTOR = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;"
+        + "Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;";
+
+    private GenerationStubs() {}
+
+    /**
+     * Whether redefining {@code before} with {@code after} would be rejected by
+     * {@code redefineClasses}: members, modifiers or supertypes differ.
+     */
+    static boolean isStructuralChange(byte[] before, byte[] after) {
+        return !shape(new ClassFileReader(before)).equals(shape(new ClassFileReader(after)));
+    }
+
+    /** Whether a method keeps its original code in the stub class. */
+    static boolean isRouted(String className, ClassFileReader.Member method) {
+        if (method.name().startsWith("<") || method.isPrivate() || !method.attributeTable().containsKey("Code")) {
+            return false;
+        }
+        String internalName = className.replace('.', '/');
+        String descriptor = method.descriptor();
+        return !descriptor.contains("L" + internalName + ";") && !descriptor.contains("L" + internalName + "$");
+    }
+
+    static byte[] stub(byte[] original) {
+        try {
+            return new Writer(new ClassFileReader(original)).write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Set<String> shape(ClassFileReader reader) {
+        Set<String> shape = new HashSet<>();
+        shape.add("class " + reader.accessFlags() + " " + reader.superName() + " " + reader.interfaceNames());
+        for (ClassFileReader.Member field : reader.fields()) {
+            shape.add("field " + field.access() + " " + field.name() + " " + field.descriptor());
+        }
+        for (ClassFileReader.Member method : reader.methods()) {
+            shape.add("method " + method.access() + " " + method.name() + method.descriptor());
+        }
+        return shape;
+    }
+
+    /** Copies the class file, appending constants and replacing the code of routed methods. */
+    private static final class Writer {
+
+        private final ClassFileReader reader;
+        private final byte[] bytes;
+        private final ByteArrayOutputStream constants = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(constants);
+        private int constantCount;
+
+        private Writer(ClassFileReader reader) {
+            this.reader = reader;
+            this.bytes = reader.bytes();
+            this.constantCount = reader.readUnsignedShort(8);
+        }
+
+        private byte[] write() throws IOException {
+            int codeName = utf8("Code");
+            int dispatchClass = classRef(DISPATCH);
+            int bootstrapStatic = bootstrapHandle(dispatchClass, "bootstrapStatic");
+            int bootstrapVirtual = bootstrapHandle(dispatchClass, "bootstrapVirtual");
+            int[] existingBootstraps = reader.attributeTable().get("BootstrapMethods");
+            int bootstrapBase = existingBootstraps == null ? 0 : reader.readUnsignedShort(existingBootstraps[0]);
+
+            // the header, interfaces and fields are copied as they are
+            int headerOffset = reader.headerOffset();
+            int offset = headerOffset + 6;
+            offset = skipMembers(offset + 2 + 2 * reader.readUnsignedShort(offset));
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.write(bytes, headerOffset, offset - headerOffset);
+
+            int methodCount = reader.readUnsignedShort(offset);
+            out.writeShort(methodCount);
+            offset += 2;
+            String className = reader.className();
+            for (ClassFileReader.Member method : reader.methods()) {
+                int start = offset;
+                offset = skipAttributes(offset + 6);
+                if (!isRouted(className, method)) {
+                    out.write(bytes, start, offset - start);
+                    continue;
+                }
+                boolean isStatic = (method.access() & ACC_STATIC) != 0;
+                int indy = invokeDynamic(isStatic ? bootstrapBase : bootstrapBase + 1,
+                    method.name(), isStatic ? method.descriptor() : receiverDescriptor(className, method.descriptor()));
+                writeStubMethod(out, start, method, isStatic, codeName, indy);
+            }
+
+            writeClassAttributes(out, offset, existingBootstraps, bootstrapStatic, bootstrapVirtual);
+
+            ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.length + constants.size() + 256);
+            DataOutputStream file = new DataOutputStream(result);
+            file.write(bytes, 0, 8);
+            file.writeShort(constantCount);
+            file.write(bytes, 10, headerOffset - 10);
+            file.write(constants.toByteArray());
+            file.write(body.toByteArray());
+            return result.toByteArray();
+        }
+
+        private void writeStubMethod(DataOutputStream out, int start, ClassFileReader.Member method,
+                                     boolean isStatic, int codeName, int indy) throws IOException {
+            out.write(bytes, start, 6);
+            List<int[]> kept = new ArrayList<>();
+            int attributeCount = reader.readUnsignedShort(start + 6);
+            int offset = start + 8;
+            for (int i = 0; i < attributeCount; i++) {
+                int length = reader.readInt(offset + 2);
+                if (!reader.utf8(reader.readUnsignedShort(offset)).equals("Code")) {
+                    kept.add(new int[]{offset, 6 + length});
+                }
+                offset += 6 + length;
+            }
+            out.writeShort(kept.size() + 1);
+            for (int[] attribute : kept) {
+                out.write(bytes, attribute[0], attribute[1]);
+            }
+
+            ByteArrayOutputStream code = new ByteArrayOutputStream();
+            int slot = 0;
+            if (!isStatic) {
+                code.write(0x2A); // aload_0
+                slot = 1;
+            }
+            String descriptor = method.descriptor();
+            int i = 1;
+            while (descriptor.charAt(i) != ')') {
+                char type = descriptor.charAt(i);
+                int end = typeEnd(descriptor, i);
+                writeLoad(code, loadOpcode(type), slot);
+                slot += type == 'J' || type == 'D' ? 2 : 1;
+                i = end;
+            }
+            code.write(0xBA); // invokedynamic
+            code.write(indy >> 8);
+            code.write(indy);
+            code.write(0);
+            code.write(0);
+            char returnType = descriptor.charAt(i + 1);
+            code.write(returnOpcode(returnType));
+
+            int maxStack = Math.max(slot, returnType == 'J' || returnType == 'D' ? 2 : 1);
+            byte[] instructions = code.toByteArray();
+            out.writeShort(codeName);
+            out.writeInt(12 + instructions.length);
+            out.writeShort(maxStack);
+            out.writeShort(slot);
+            out.writeInt(instructions.length);
+            out.write(instructions);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }
+
+        private void writeClassAttributes(DataOutputStream out, int offset, int[] existingBootstraps,
+                                          int bootstrapStatic, int bootstrapVirtual) throws IOException {
+            int attributeCount = reader.readUnsignedShort(offset);
+            out.writeShort(existingBootstraps == null ? attributeCount + 1 : attributeCount);
+            offset += 2;
+            for (int i = 0; i < attributeCount; i++) {
+                int length = reader.readInt(offset + 2);
+                if (existingBootstraps != null && offset + 6 == existingBootstraps[0]) {
+                    out.write(bytes, offset, 2);
+                    out.writeInt(length + 8);
+                    out.writeShort(reader.readUnsignedShort(offset + 6) + 2);
+                    out.write(bytes, offset + 8, length - 2);
+                    writeBootstrap(out, bootstrapStatic);
+                    writeBootstrap(out, bootstrapVirtual);
+                } else {
+                    out.write(bytes, offset, 6 + length);
+                }
+                offset += 6 + length;
+            }
+            if (existingBootstraps == null) {
+                out.writeShort(utf8("BootstrapMethods"));
+                out.writeInt(10);
+                out.writeShort(2);
+                writeBootstrap(out, bootstrapStatic);
+                writeBootstrap(out, bootstrapVirtual);
+            }
+        }
+
+        private static void writeBootstrap(DataOutputStream out, int handle) throws IOException {
+            out.writeShort(handle);
+            out.writeShort(0);
+        }
+
+        private int skipMembers(int offset) {
+            int count = reader.readUnsignedShort(offset);
+            offset += 2;
+            for (int i = 0; i < count; i++) {
+                offset = skipAttributes(offset + 6);
+            }
+            return offset;
+        }
+
+        private int skipAttributes(int offset) {
+            int count = reader.readUnsignedShort(offset);
+            offset += 2;
+            for (int i = 0; i < count; i++) {
+                offset += 6 + reader.readInt(offset + 2);
+            }
+            return offset;
+        }
+
+        private int utf8(String value) throws IOException {
+            pool.writeByte(1);
+            pool.writeUTF(value);
+            return constantCount++;
+        }
+
+        private int classRef(String internalName) throws IOException {
+            int name = utf8(internalName);
+            pool.writeByte(7);
+            pool.writeShort(name);
+            return constantCount++;
+        }
+
+        private int nameAndType(String name, String descriptor) throws IOException {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            pool.writeByte(12);
+            pool.writeShort(nameIndex);
+            pool.writeShort(descriptorIndex);
+            return constantCount++;
+        }
+
+        private int bootstrapHandle(int owner, String name) throws IOException {
+            int nameAndType = nameAndType(name, BOOTSTRAP_DESCRIPTOR);
+            pool.writeByte(10);
+            pool.writeShort(owner);
+            pool.writeShort(nameAndType);
+            int methodRef = constantCount++;
+            pool.writeByte(15);
+            pool.writeByte(6); // REF_invokeStatic
+            pool.writeShort(methodRef);
+            return constantCount++;
+        }
+
+        private int invokeDynamic(int bootstrap, String name, String descriptor) throws IOException {
+            int nameAndType = nameAndType(name, descriptor);
+            pool.writeByte(18);
+            pool.writeShort(bootstrap);
+            pool.writeShort(nameAndType);
+            return constantCount++;
+        }
+    }
+
+    private static String receiverDescriptor(String className, String descriptor) {
+        return "(L" + className.replace('.', '/') + ";" + descriptor.substring(1);
+    }
+
+    private static int typeEnd(String descriptor, int start) {
+        int i = start;
+        while (descriptor.charAt(i) == '[') i++;
+        return descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+    }
+
+    private static int loadOpcode(char type) {
+        return switch (type) {
+            case 'J' -> 0x16;
+            case 'F' -> 0x17;
+            case 'D' -> 0x18;
+            case 'L', '[' -> 0x19;
+            default -> 0x15;
+        };
+    }
+
+    private static int returnOpcode(char type) {
+        return switch (type) {
+            case 'V' -> 0xB1;
+            case 'J' -> 0xAD;
+            case 'F' -> 0xAE;
+            case 'D' -> 0xAF;
+            case 'L', '[' -> 0xB0;
+            default -> 0xAC;
+        };
+    }
+
+    private static void writeLoad(ByteArrayOutputStream code, int opcode, int slot) {
+        if (slot < 256) {
+            code.write(opcode);
+            code.write(slot);
+        } else {
+            code.write(0xC4); // wide
+            code.write(opcode);
+            code.write(slot >> 8);
+            code.write(slot);
+        }
+    }
+}
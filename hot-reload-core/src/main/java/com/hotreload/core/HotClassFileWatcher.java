@@ -1,63 +1,143 @@
 package com.hotreload.core;
 
 import java.io.IOException;
-import java.lang.instrument.UnmodifiableClassException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
-import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 
 public class HotClassFileWatcher implements Runnable {
 
     private static final Logger LOG = Logger.getLogger(HotClassFileWatcher.class.getName());
 
+    public static final long DEFAULT_DEBOUNCE_MS = HotReloadOptions.DEFAULT_DEBOUNCE_MS;
+
     private final String[] sourcePaths;
+    private final List<Path> sourceRoots = new ArrayList<>();
     private final long pollIntervalMs;
-    private final Map<Path, Class<?>> sourceToClass;
-    private final HotSourceCompiler compiler;
-    private final HotClassReloader reloader;
+    private final long debounceMs;
+    private final String fileSuffix;
+    private final HotReloadPipeline pipeline;
+    private final boolean ownsPipeline;
+
+    public HotClassFileWatcher(
+            String[] sourcePaths,
+            long pollIntervalMs,
+            Map<Path, Class<?>> sourceToClass,
+            HotSourceCompiler compiler,
+            HotClassReloader reloader) {
+        this(sourcePaths, pollIntervalMs, DEFAULT_DEBOUNCE_MS, sourceToClass, compiler, reloader);
+    }
 
     public HotClassFileWatcher(
             String[] sourcePaths,
             long pollIntervalMs,
+            long debounceMs,
             Map<Path, Class<?>> sourceToClass,
             HotSourceCompiler compiler,
             HotClassReloader reloader) {
+        this(sourcePaths, pollIntervalMs, debounceMs, registryOf(sourceToClass), compiler, reloader);
+    }
+
+    public HotClassFileWatcher(
+            String[] sourcePaths,
+            long pollIntervalMs,
+            long debounceMs,
+            HotClassRegistry registry,
+            HotSourceCompiler compiler,
+            HotClassReloader reloader) {
+        this(sourcePaths, pollIntervalMs, debounceMs,
+            new HotReloadPipeline(sourcePaths, registry, compiler, reloader, HotReloadOptions.of(sourcePaths)),
+            ".java", true);
+    }
+
+    /**
+     * @param debounceMs quiet period after the last file event before the
+     *                   accumulated changes are handed to the pipeline as one batch
+     * @param pipeline   compile and redefine stages, started and stopped by the caller
+     */
+    public HotClassFileWatcher(
+            String[] sourcePaths,
+            long pollIntervalMs,
+            long debounceMs,
+            HotReloadPipeline pipeline) {
+        this(sourcePaths, pollIntervalMs, debounceMs, pipeline, ".java", false);
+    }
+
+    /**
+     * @param fileSuffix suffix of the files to report, {@code .java} or {@code .class}
+     */
+    public HotClassFileWatcher(
+            String[] sourcePaths,
+            long pollIntervalMs,
+            long debounceMs,
+            HotReloadPipeline pipeline,
+            String fileSuffix) {
+        this(sourcePaths, pollIntervalMs, debounceMs, pipeline, fileSuffix, false);
+    }
+
+    private HotClassFileWatcher(
+            String[] sourcePaths,
+            long pollIntervalMs,
+            long debounceMs,
+            HotReloadPipeline pipeline,
+            String fileSuffix,
+            boolean ownsPipeline) {
         this.sourcePaths = sourcePaths.clone();
+        for (String sourcePath : sourcePaths) {
+            sourceRoots.add(Paths.get(sourcePath).toAbsolutePath().normalize());
+        }
         this.pollIntervalMs = pollIntervalMs;
-        this.sourceToClass = new HashMap<>(sourceToClass);
-        this.compiler = compiler;
-        this.reloader = reloader;
+        this.debounceMs = debounceMs;
+        this.fileSuffix = fileSuffix;
+        this.pipeline = pipeline;
+        this.ownsPipeline = ownsPipeline;
+    }
+
+    private static HotClassRegistry registryOf(Map<Path, Class<?>> sourceToClass) {
+        HotClassRegistry registry = new HotClassRegistry();
+        sourceToClass.forEach((path, clazz) -> registry.register(clazz, path));
+        return registry;
     }
 
     @Override
     public void run() {
+        if (ownsPipeline) {
+            pipeline.start();
+        }
         try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-            Map<WatchKey, Path> keyToDir = new HashMap<>();
-
-            for (String sourcePath : sourcePaths) {
-                Path dir = Paths.get(sourcePath).toAbsolutePath();
-                registerAll(dir, watchService, keyToDir);
+            long start = System.nanoTime();
+            WatchedTree tree = new WatchedTree(watchService, fileSuffix);
+            for (Path dir : sourceRoots) {
+                tree.register(dir, false);
             }
 
-            LOG.log(Level.INFO, "[HotReload] Watching for changes in: {0}", String.join(", ", sourcePaths));
+            LOG.log(Level.INFO, "[HotReload] Watching {0} directories in {1} ms: {2}",
+                new Object[]{tree.size(), (System.nanoTime() - start) / 1_000_000, String.join(", ", sourcePaths)});
+
+            ChangeBatcher batcher = new ChangeBatcher(debounceMs, pipeline.metrics());
 
             while (!Thread.currentThread().isInterrupted()) {
+                long timeoutMs = batcher.flush(pipeline, pollIntervalMs);
+
                 WatchKey key;
                 try {
-                    key = watchService.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    key = watchService.poll(timeoutMs, TimeUnit.MILLISECONDS);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     break;
@@ -65,72 +145,55 @@ public class HotClassFileWatcher implements Runnable {
 
                 if (key == null) continue;
 
-                Path dir = keyToDir.get(key);
+                Path dir = tree.dirOf(key);
                 if (dir == null) {
                     key.cancel();
                     continue;
                 }
 
+                boolean overflowed = false;
                 for (WatchEvent<?> event : key.pollEvents()) {
                     WatchEvent.Kind<?> kind = event.kind();
-                    if (kind == StandardWatchEventKinds.OVERFLOW) continue;
+                    if (kind == StandardWatchEventKinds.OVERFLOW) {
+                        overflowed = true;
+                        continue;
+                    }
 
                     @SuppressWarnings("unchecked")
                     Path changed = dir.resolve(((WatchEvent<Path>) event).context());
 
-                    if ((kind == ENTRY_MODIFY || kind == ENTRY_CREATE)
-                            && changed.toString().endsWith(".java")) {
-                        handleChange(changed);
+                    if (kind == ENTRY_DELETE) {
+                        // a save by rename may delete the file before creating it again; the create re-adds it
+                        batcher.remove(changed);
+                        if (tree.isWatched(changed)) {
+                            tree.unregister(changed);
+                        }
+                    } else if (kind == ENTRY_CREATE && Files.isDirectory(changed, LinkOption.NOFOLLOW_LINKS)) {
+                        // files may have been written, or moved in with the directory, before it was watched
+                        batcher.addAll(tree.register(changed, true));
+                    } else if (changed.toString().endsWith(fileSuffix)) {
+                        tree.touched(changed);
+                        batcher.add(changed);
                     }
                 }
 
-                key.reset();
+                if (overflowed) {
+                    Set<Path> lost = tree.rescan(dir);
+                    LOG.log(Level.FINE, "[HotReload] Events lost in {0}, rescan found {1} change(s)",
+                        new Object[]{dir, lost.size()});
+                    batcher.addAll(lost);
+                }
+
+                if (!key.reset()) {
+                    tree.invalidated(key);
+                }
             }
         } catch (IOException e) {
             LOG.log(Level.SEVERE, "[HotReload] WatchService error", e);
-        }
-    }
-
-    private void handleChange(Path changedFile) {
-        Class<?> targetClass = sourceToClass.get(changedFile);
-        if (targetClass == null) {
-            String fileName = changedFile.getFileName().toString();
-            for (Map.Entry<Path, Class<?>> entry : sourceToClass.entrySet()) {
-                if (entry.getKey().getFileName().toString().equals(fileName)) {
-                    targetClass = entry.getValue();
-                    break;
-                }
+        } finally {
+            if (ownsPipeline) {
+                pipeline.close();
             }
         }
-
-        if (targetClass == null) {
-            LOG.log(Level.FINE, "[HotReload] No @HotReload class mapped for: {0}", changedFile);
-            return;
-        }
-
-        LOG.log(Level.INFO, "[HotReload] Detected change in: {0}", changedFile.getFileName());
-
-        try {
-            byte[] newBytecode = compiler.compile(changedFile);
-            reloader.reload(targetClass, newBytecode);
-            LOG.log(Level.INFO, "[HotReload] Successfully reloaded: {0}", targetClass.getName());
-        } catch (IOException | ClassNotFoundException | UnmodifiableClassException e) {
-            LOG.log(Level.WARNING, "[HotReload] Reload failed for " + targetClass.getName(), e);
-        }
-    }
-
-    private static void registerAll(Path dir, WatchService watchService, Map<WatchKey, Path> keyToDir)
-            throws IOException {
-        if (!Files.isDirectory(dir)) return;
-        try (var stream = Files.walk(dir)) {
-            stream.filter(Files::isDirectory).forEach(d -> {
-                try {
-                    WatchKey key = d.register(watchService, ENTRY_MODIFY, ENTRY_CREATE);
-                    keyToDir.put(key, d);
-                } catch (IOException e) {
-                    LOG.log(Level.WARNING, "[HotReload] Cannot watch directory: " + d, e);
-                }
-            });
-        }
     }
 }
@@ -0,0 +1,463 @@
+package com.hotreload.core;
+
+import com.hotreload.annotation.HotReload;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index of loaded {@code @HotReload} classes, filled incrementally as they are
+ * loaded rather than by scanning every loaded class.
+ *
+ * <p>Entries are keyed by binary name and hold only weak references to the class
+ * and its defining loaders, so registering a class never prevents it from being
+ * unloaded. A class defined by several loaders, such as two deployments of the
+ * same application, has a definition per loader and is reloaded in each. Source
+ * files are resolved lazily and then indexed by path.
+ *
+ * <p>When a {@link HotReloadIndex} written at build time is on the class path,
+ * classes loaded before the registry was installed are taken from it instead of
+ * scanning every loaded class, and their source files are known up front.
+ */
+public class HotClassRegistry {
+
+    private static final Logger LOG = Logger.getLogger(HotClassRegistry.class.getName());
+    private static final HotClassRegistry SHARED = new HotClassRegistry();
+
+    private final Map<String, Entry> byName = new ConcurrentHashMap<>();
+    private final Map<Path, String> bySource = new ConcurrentHashMap<>();
+    private volatile boolean tracking;
+    private volatile BytecodeCache bytecodeCache;
+
+    /** The registry filled by the agent's transformer. */
+    public static HotClassRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Makes classes that load from now on run their last applied version from
+     * {@code cache}, and has applied versions recorded in it.
+     */
+    public void useBytecodeCache(BytecodeCache cache) {
+        this.bytecodeCache = cache;
+    }
+
+    /** The cache set with {@link #useBytecodeCache}, or {@code null}. */
+    public BytecodeCache bytecodeCache() {
+        return bytecodeCache;
+    }
+
+    /** Whether a transformer keeps this registry up to date as classes load. */
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * Installs the transformer that keeps this registry up to date, once.
+     *
+     * @param registerLoaded whether to also register classes loaded before this
+     *                       call; needed unless installed from {@code premain}
+     */
+    public synchronized void install(Instrumentation instrumentation, boolean registerLoaded) {
+        if (!tracking) {
+            instrumentation.addTransformer(new HotClassRegistryTransformer(this), false);
+            tracking = true;
+        }
+        if (registerLoaded) {
+            ClassLoader context = Thread.currentThread().getContextClassLoader();
+            ClassLoader loader = context != null ? context : ClassLoader.getSystemClassLoader();
+            HotReloadIndex index = HotReloadIndex.load(loader);
+            if (index.isEmpty()) {
+                registerLoaded(instrumentation);
+            } else {
+                registerIndexed(index, loader);
+                markLoaded(instrumentation);
+            }
+        }
+    }
+
+    /**
+     * Registers the classes of a build-time index as defined by {@code loader},
+     * without loading them; each is resolved when it is first needed.
+     */
+    public void registerIndexed(HotReloadIndex index, ClassLoader loader) {
+        for (HotReloadIndex.Entry indexed : index.entries()) {
+            Entry entry = byName.computeIfAbsent(indexed.className(), Entry::new);
+            entry.define(loader, true);
+            if (indexed.sourceFile() != null && entry.sourceFile == null) {
+                entry.indexedSource = indexed.sourceFile();
+                bySource.putIfAbsent(indexed.sourceFile(), indexed.className());
+            }
+            if (entry.sourceHash == null) {
+                entry.sourceHash = indexed.sourceHash();
+            }
+        }
+        LOG.log(Level.INFO, "[HotReload] Registered {0} class(es) from the build-time reload index", index.size());
+    }
+
+    private void registerLoaded(Instrumentation instrumentation) {
+        Class<?>[] loadedClasses = instrumentation.getAllLoadedClasses();
+        for (Class<?> clazz : loadedClasses) {
+            if (clazz.isAnnotationPresent(HotReload.class)
+                    && !isRegistered(clazz.getName(), clazz.getClassLoader())) {
+                register(clazz, null);
+            }
+        }
+        for (Class<?> clazz : loadedClasses) {
+            if (clazz.getName().indexOf('$') > 0) {
+                registerNested(clazz.getName(), clazz.getClassLoader());
+            }
+        }
+    }
+
+    /** Records which indexed classes and their nested classes were loaded before the transformer was installed. */
+    private void markLoaded(Instrumentation instrumentation) {
+        for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+            Entry entry = byName.get(clazz.getName());
+            Definition definition = entry == null ? null : entry.definedBy(clazz.getClassLoader());
+            if (definition != null) {
+                definition.indexed = false;
+                definition.clazz = new WeakReference<>(clazz);
+            } else if (clazz.getName().indexOf('$') > 0) {
+                registerNested(clazz.getName(), clazz.getClassLoader());
+            }
+        }
+    }
+
+    /** Registers a top-level {@code @HotReload} class that is being loaded. */
+    public void register(String binaryName, ClassLoader loader) {
+        register(binaryName, loader, null);
+    }
+
+    /**
+     * Registers a top-level {@code @HotReload} class that is being loaded,
+     * remembering the bytecode it is defined with.
+     */
+    public void register(String binaryName, ClassLoader loader, byte[] bytecode) {
+        Definition definition = byName.computeIfAbsent(binaryName, Entry::new).define(loader, false);
+        if (bytecode != null) {
+            definition.activeBytecode.put(binaryName, bytecode);
+        }
+        LOG.log(Level.FINE, "[HotReload] Registered {0}", binaryName);
+    }
+
+    /** Registers an already loaded class with a known source file. */
+    public void register(Class<?> clazz, Path sourceFile) {
+        Entry entry = byName.computeIfAbsent(clazz.getName(), Entry::new);
+        entry.define(clazz.getClassLoader(), false).clazz = new WeakReference<>(clazz);
+        if (sourceFile != null) {
+            Path absolute = sourceFile.toAbsolutePath().normalize();
+            entry.sourceFile = absolute;
+            bySource.put(absolute, clazz.getName());
+        }
+    }
+
+    /**
+     * Records that a nested, inner or anonymous class of a registered class was
+     * loaded by the same loader.
+     *
+     * @return {@code false} if its top-level class is not registered
+     */
+    public boolean registerNested(String binaryName, ClassLoader loader) {
+        return registerNested(binaryName, loader, null);
+    }
+
+    /** Same as {@link #registerNested(String, ClassLoader)}, remembering the bytecode it is defined with. */
+    public boolean registerNested(String binaryName, ClassLoader loader, byte[] bytecode) {
+        Definition host = definition(binaryName, loader);
+        if (host == null) return false;
+        host.loadedNested.add(binaryName);
+        if (bytecode != null) {
+            host.activeBytecode.put(binaryName, bytecode);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bytecode a registered or nested class currently runs in
+     * {@code loader}, if known: as recorded at load time or by the last {@link #recordBytecode}.
+     */
+    public byte[] activeBytecode(String binaryName, ClassLoader loader) {
+        Definition host = definition(binaryName, loader);
+        return host == null ? null : host.activeBytecode.get(binaryName);
+    }
+
+    /** Records the bytecode a registered or nested class was redefined with in {@code loader}. */
+    public void recordBytecode(String binaryName, ClassLoader loader, byte[] bytecode) {
+        Definition host = definition(binaryName, loader);
+        if (host != null) {
+            host.activeBytecode.put(binaryName, bytecode);
+        }
+    }
+
+    /**
+     * SHA-256 of the source a registered class was last compiled from, as in the
+     * build-time index or recorded by {@link #recordSourceHash}, or {@code null}.
+     */
+    public String sourceHash(String binaryName) {
+        Entry entry = byName.get(binaryName);
+        return entry == null ? null : entry.sourceHash;
+    }
+
+    public void recordSourceHash(String binaryName, String sourceHash) {
+        Entry entry = byName.get(binaryName);
+        if (entry != null) {
+            entry.sourceHash = sourceHash;
+        }
+    }
+
+    public boolean isRegistered(String binaryName) {
+        return byName.containsKey(binaryName);
+    }
+
+    /** Whether {@code loader} defines the registered class. */
+    public boolean isRegistered(String binaryName, ClassLoader loader) {
+        Entry entry = byName.get(binaryName);
+        return entry != null && entry.definedBy(loader) != null;
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    public List<String> classNames() {
+        return new ArrayList<>(byName.keySet());
+    }
+
+    /**
+     * Returns the registered top-level class, or {@code null} if unknown or unloaded.
+     * Of a class defined by several loaders, the one registered first is returned.
+     */
+    public Class<?> find(String binaryName) {
+        List<Class<?>> classes = findAll(binaryName);
+        return classes.isEmpty() ? null : classes.get(0);
+    }
+
+    /** Returns the registered top-level class as defined by each of its loaders. */
+    public List<Class<?>> findAll(String binaryName) {
+        Entry entry = byName.get(binaryName);
+        if (entry == null) return List.of();
+        List<Class<?>> classes = new ArrayList<>();
+        for (Definition definition : entry.definitions) {
+            Class<?> clazz = definition.resolve(binaryName);
+            if (clazz != null) {
+                if (!classes.contains(clazz)) classes.add(clazz);
+            } else if (definition.isCollected()) {
+                remove(entry, definition);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Returns the loader that defines a registered class or the class it is nested
+     * in, without loading it, or {@code null} if unknown or defined by the bootstrap
+     * loader. Of several loaders, the one registered first is returned.
+     */
+    public ClassLoader loaderOf(String binaryName) {
+        Entry entry = byName.get(HotDependencyGraph.topLevelName(binaryName));
+        if (entry == null) return null;
+        Definition first = entry.first();
+        return first == null ? null : first.loader();
+    }
+
+    /**
+     * Returns a loaded class that is either registered or nested in a registered
+     * class, without triggering class loading for classes that were never loaded.
+     * Of several loaders, the one registered first is used.
+     */
+    public Class<?> findLoaded(String binaryName) {
+        Entry entry = byName.get(HotDependencyGraph.topLevelName(binaryName));
+        Definition first = entry == null ? null : entry.first();
+        return first == null ? null : findLoaded(binaryName, first.loader());
+    }
+
+    /** Same as {@link #findLoaded(String)}, for the class as defined by {@code loader}. */
+    public Class<?> findLoaded(String binaryName, ClassLoader loader) {
+        Definition host = definition(binaryName, loader);
+        if (host == null) return null;
+        if (HotDependencyGraph.topLevelName(binaryName).equals(binaryName)) {
+            return host.isLoaded(binaryName) ? host.resolve(binaryName) : null;
+        }
+        if (!host.loadedNested.contains(binaryName)) return null;
+        return host.load(binaryName);
+    }
+
+    /**
+     * Maps a changed source file to the registered class it declares: either an
+     * explicitly registered path, or the path relative to one of the source roots.
+     */
+    public String classNameForSource(Path sourceFile, Collection<Path> sourceRoots) {
+        Path absolute = sourceFile.toAbsolutePath().normalize();
+        String indexed = bySource.get(absolute);
+        if (indexed != null) return indexed;
+
+        for (Path root : sourceRoots) {
+            if (!absolute.startsWith(root)) continue;
+            String relative = root.relativize(absolute).toString();
+            if (!relative.endsWith(".java")) continue;
+            String candidate = relative.substring(0, relative.length() - ".java".length())
+                .replace(absolute.getFileSystem().getSeparator(), ".");
+            Entry entry = byName.get(candidate);
+            if (entry != null) {
+                entry.sourceFile = absolute;
+                bySource.put(absolute, candidate);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the source file of a registered class under the given roots, or {@code null}. */
+    public Path sourceOf(String binaryName, Collection<Path> sourceRoots) {
+        Entry entry = byName.get(binaryName);
+        if (entry == null) return null;
+        if (entry.sourceFile != null) return entry.sourceFile;
+
+        Path indexed = entry.indexedSource;
+        if (indexed != null) {
+            for (Path root : sourceRoots) {
+                if (indexed.startsWith(root.toAbsolutePath().normalize())) {
+                    entry.sourceFile = indexed;
+                    return indexed;
+                }
+            }
+        }
+
+        String relativePath = binaryName.replace('.', '/') + ".java";
+        for (Path root : sourceRoots) {
+            Path candidate = root.resolve(relativePath);
+            if (Files.exists(candidate)) {
+                Path absolute = candidate.toAbsolutePath().normalize();
+                entry.sourceFile = absolute;
+                bySource.put(absolute, binaryName);
+                return absolute;
+            }
+        }
+        return null;
+    }
+
+    /** The definition by {@code loader} of a registered class or the class it is nested in. */
+    private Definition definition(String binaryName, ClassLoader loader) {
+        Entry entry = byName.get(HotDependencyGraph.topLevelName(binaryName));
+        return entry == null ? null : entry.definedBy(loader);
+    }
+
+    private void remove(Entry entry, Definition definition) {
+        entry.definitions.remove(definition);
+        LOG.log(Level.FINE, "[HotReload] {0} was unloaded from a class loader", entry.name);
+        synchronized (entry) {
+            if (!entry.definitions.isEmpty() || !byName.remove(entry.name, entry)) return;
+        }
+        if (entry.sourceFile != null) {
+            bySource.remove(entry.sourceFile, entry.name);
+        }
+        LOG.log(Level.FINE, "[HotReload] {0} was unloaded, dropping it from the registry", entry.name);
+    }
+
+    private static final class Entry {
+
+        private final String name;
+        private final List<Definition> definitions = new CopyOnWriteArrayList<>();
+        private volatile Path sourceFile;
+        private volatile Path indexedSource;
+        private volatile String sourceHash;
+
+        private Entry(String name) {
+            this.name = name;
+        }
+
+        private Definition first() {
+            return definitions.stream().findFirst().orElse(null);
+        }
+
+        private Definition definedBy(ClassLoader loader) {
+            for (Definition definition : definitions) {
+                if (definition.loader() == loader && !definition.isCollected()) return definition;
+            }
+            return null;
+        }
+
+        /**
+         * Returns the definition by {@code loader}, adding it if needed. A class seen
+         * loading replaces definitions only assumed from the index, e.g. by the context
+         * loader for a class one of its parents defines.
+         */
+        private synchronized Definition define(ClassLoader loader, boolean indexed) {
+            Definition existing = definedBy(loader);
+            if (existing != null) {
+                if (!indexed) existing.indexed = false;
+                return existing;
+            }
+            if (!indexed) {
+                definitions.removeIf(definition -> definition.indexed || definition.isCollected());
+            }
+            Definition created = new Definition(loader, indexed);
+            definitions.add(created);
+            return created;
+        }
+    }
+
+    /** A registered class as defined by one loader. */
+    private static final class Definition {
+
+        private final WeakReference<ClassLoader> loaderRef;
+        private final boolean bootstrap;
+        private final Set<String> loadedNested = ConcurrentHashMap.newKeySet();
+        private final Map<String, byte[]> activeBytecode = new ConcurrentHashMap<>();
+        private volatile WeakReference<Class<?>> clazz;
+        private volatile boolean indexed;
+
+        private Definition(ClassLoader loader, boolean indexed) {
+            this.loaderRef = new WeakReference<>(loader);
+            this.bootstrap = loader == null;
+            this.indexed = indexed;
+        }
+
+        private ClassLoader loader() {
+            return loaderRef.get();
+        }
+
+        private boolean isCollected() {
+            return !bootstrap && loaderRef.get() == null;
+        }
+
+        /** Whether the class was seen loading or was resolved, as opposed to only known from the index. */
+        private boolean isLoaded(String name) {
+            WeakReference<Class<?>> ref = clazz;
+            return ref != null && ref.get() != null || activeBytecode.containsKey(name);
+        }
+
+        private Class<?> resolve(String name) {
+            WeakReference<Class<?>> ref = clazz;
+            Class<?> resolved = ref == null ? null : ref.get();
+            if (resolved == null) {
+                resolved = load(name);
+                if (resolved != null) {
+                    clazz = new WeakReference<>(resolved);
+                }
+            }
+            return resolved;
+        }
+
+        private Class<?> load(String binaryName) {
+            if (isCollected()) return null;
+            try {
+                return Class.forName(binaryName, false, loader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.hotreload.core;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.nio.charset.StandardCharsets;
+import java.security.ProtectionDomain;
+
+/**
+ * Feeds {@link HotClassRegistry} as classes load: top-level classes carrying
+ * {@code @HotReload} are registered, and nested classes of registered classes
+ * are recorded as loaded, together with the bytecode they are defined with, so
+ * the first reload can be compared against it. Generations of a class loaded by
+ * the reloader are not registered.
+ *
+ * <p>Bytecode is only modified with a {@link BytecodeCache}: registered classes
+ * then load as they were last reloaded, if the build has not changed them since.
+ */
+public class HotClassRegistryTransformer implements ClassFileTransformer {
+
+    private static final byte[] ANNOTATION_DESCRIPTOR =
+            "Lcom/hotreload/annotation/HotReload;".getBytes(StandardCharsets.US_ASCII);
+
+    private final HotClassRegistry registry;
+
+    public HotClassRegistryTransformer(HotClassRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        if (classBeingRedefined != null || loader instanceof GenerationClassLoader
+                || ClassAnnotationScanner.isExcluded(loader, className)
+                || ClassAnnotationScanner.isSkipped(className, classfileBuffer, ANNOTATION_DESCRIPTOR)) {
+            return null;
+        }
+
+        String binaryName = className.replace('/', '.');
+        BytecodeCache cache = registry.bytecodeCache();
+        String host = HotDependencyGraph.topLevelName(binaryName);
+        if (!host.equals(binaryName) && registry.isRegistered(host, loader)) {
+            byte[] cached = cache == null ? null : cache.forLoad(loader, binaryName, classfileBuffer);
+            registry.registerNested(binaryName, loader, cached != null ? cached : classfileBuffer);
+            return cached;
+        }
+        if (ClassAnnotationScanner.hasAnnotation(classfileBuffer, ANNOTATION_DESCRIPTOR)) {
+            byte[] cached = cache == null ? null : cache.forLoad(loader, binaryName, classfileBuffer);
+            registry.register(binaryName, loader, cached != null ? cached : classfileBuffer);
+            if (cached != null) {
+                // saving the source it was compiled from again must not count as a change
+                registry.recordSourceHash(binaryName, cache.appliedSourceHash(binaryName));
+            }
+            return cached;
+        }
+        return null;
+    }
+}
@@ -1,19 +1,475 @@
 package com.hotreload.core;
 
+import com.hotreload.annotation.HotReload;
+
 import java.lang.instrument.ClassDefinition;
 import java.lang.instrument.Instrumentation;
 import java.lang.instrument.UnmodifiableClassException;
+import java.lang.invoke.MethodHandles;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Applies new bytecode to running classes.
+ *
+ * <p>The bytecode each class currently runs is remembered, and a class whose new
+ * bytecode has the same {@link BytecodeFingerprint} is not redefined: a
+ * redefinition deoptimizes compiled code of the class even if nothing changed.
+ *
+ * <p>A bounded history of earlier versions is kept per class, starting with the
+ * bytecode it was loaded with when that is known, so any of them can be put back
+ * with {@link #rollback} without compiling.
+ *
+ * <p>Classes annotated {@code @HotReload(generations = true)} whose change cannot
+ * be redefined, e.g. because it adds a field or method, are loaded as a new
+ * generation in a fresh class loader instead, see {@link GenerationDispatch}.
+ */
 public class HotClassReloader {
 
+    private static final Logger LOG = Logger.getLogger(HotClassReloader.class.getName());
+
+    public static final int DEFAULT_HISTORY_DEPTH = 8;
+    public static final long DEFAULT_HISTORY_MAX_BYTES = 32L << 20;
+
     private final Instrumentation instrumentation;
+    private final BytecodeHistory history;
+    private final LongAdder skipped = new LongAdder();
+    private volatile ReloadImpactMonitor impactMonitor;
 
     public HotClassReloader(Instrumentation instrumentation) {
+        this(instrumentation, DEFAULT_HISTORY_DEPTH, DEFAULT_HISTORY_MAX_BYTES);
+    }
+
+    /**
+     * @param historyDepth    versions kept per class, including the original and the current one
+     * @param historyMaxBytes bytecode kept across all classes; the original and current
+     *                        versions are kept even beyond this limit
+     */
+    public HotClassReloader(Instrumentation instrumentation, int historyDepth, long historyMaxBytes) {
         this.instrumentation = instrumentation;
+        this.history = new BytecodeHistory(historyDepth, historyMaxBytes);
     }
 
     public void reload(Class<?> clazz, byte[] newBytecode)
             throws ClassNotFoundException, UnmodifiableClassException {
-        instrumentation.redefineClasses(new ClassDefinition(clazz, newBytecode));
+        reload(Map.of(clazz, newBytecode));
+    }
+
+    /**
+     * Redefines all given classes with a single {@code redefineClasses} call,
+     * so a batch of changes costs one safepoint and is applied all-or-nothing.
+     * Classes without executable changes since their last reload are skipped.
+     */
+    public synchronized void reload(Map<Class<?>, byte[]> newBytecode)
+            throws ClassNotFoundException, UnmodifiableClassException {
+        Map<Class<?>, byte[]> changed = withoutNoOps(newBytecode);
+        redefine(changed, newBytecode.size() - changed.size());
+        changed.forEach(history::recordApplied);
+    }
+
+    /**
+     * Applies every class emitted by a set of compilation units in one batch.
+     * Classes that are already loaded, including nested, inner and anonymous
+     * ones, are redefined together in a single {@code redefineClasses} call;
+     * classes that are new or not loaded yet are then defined in their nest
+     * host's class loader so the stale on-disk version is never picked up. If
+     * defining fails, the redefined classes are restored to their previous version.
+     *
+     * @param compiled bytecode keyed by binary name
+     * @param hosts    loaded top-level classes keyed by binary name; emitted classes
+     *                 whose top-level class is not listed are ignored
+     * @return binary names of the classes that were redefined or defined
+     */
+    public synchronized List<String> reload(Map<String, byte[]> compiled, Map<String, Class<?>> hosts)
+            throws ReflectiveOperationException, UnmodifiableClassException {
+        Map<ClassLoader, Map<String, Class<?>>> loadedByLoader = new HashMap<>();
+        return reload(compiled, name -> hosts.containsKey(name) ? List.of(hosts.get(name)) : List.of(), (host, name) ->
+            loadedByLoader.computeIfAbsent(host.getClassLoader(), this::loadedClasses).get(name),
+            clazz -> null, (clazz, bytecode) -> {});
+    }
+
+    /**
+     * Same as {@link #reload(Map, Map)}, resolving hosts and loaded nested classes
+     * through the registry instead of the class loader's loaded classes. A class
+     * defined by several loaders is redefined in each of them. The bytecode recorded
+     * by the registry at load time becomes the original version in the history, so
+     * even the first reload can be skipped or rolled back.
+     */
+    public synchronized List<String> reload(Map<String, byte[]> compiled, HotClassRegistry registry)
+            throws ReflectiveOperationException, UnmodifiableClassException {
+        return reload(compiled, registry::findAll,
+            (host, name) -> registry.findLoaded(name, host.getClassLoader()),
+            clazz -> registry.activeBytecode(clazz.getName(), clazz.getClassLoader()),
+            (clazz, bytecode) -> registry.recordBytecode(clazz.getName(), clazz.getClassLoader(), bytecode));
+    }
+
+    private List<String> reload(Map<String, byte[]> compiled, Function<String, List<Class<?>>> hosts,
+                                BiFunction<Class<?>, String, Class<?>> loadedClasses,
+                                Function<Class<?>, byte[]> loadedBytecode, BiConsumer<Class<?>, byte[]> record)
+            throws ReflectiveOperationException, UnmodifiableClassException {
+        Map<Class<?>, Map<String, byte[]>> byHost = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : compiled.entrySet()) {
+            for (Class<?> host : hosts.apply(HotDependencyGraph.topLevelName(entry.getKey()))) {
+                byHost.computeIfAbsent(host, h -> new LinkedHashMap<>()).put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Map<Class<?>, byte[]> redefinitions = new LinkedHashMap<>();
+        Map<Class<?>, Map<String, byte[]>> newClasses = new LinkedHashMap<>();
+        Map<Class<?>, Map<String, byte[]>> generations = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, Map<String, byte[]>> hostClasses : byHost.entrySet()) {
+            Class<?> host = hostClasses.getKey();
+            if (needsGeneration(host, hostClasses.getValue(), loadedClasses, loadedBytecode)) {
+                generations.put(host, hostClasses.getValue());
+                continue;
+            }
+            hostClasses.getValue().forEach((name, bytecode) -> {
+                Class<?> loaded = name.equals(host.getName()) ? host : loadedClasses.apply(host, name);
+                if (loaded != null) {
+                    redefinitions.put(loaded, bytecode);
+                } else {
+                    newClasses.computeIfAbsent(host, h -> new LinkedHashMap<>()).put(name, bytecode);
+                }
+            });
+        }
+
+        for (Class<?> clazz : redefinitions.keySet()) {
+            byte[] original = loadedBytecode.apply(clazz);
+            if (original != null) {
+                history.recordOriginal(clazz, original);
+            }
+        }
+        int candidates = redefinitions.size();
+        Map<Class<?>, byte[]> changed = withoutNoOps(redefinitions);
+        Map<Class<?>, byte[]> previous = new LinkedHashMap<>();
+        changed.keySet().forEach(clazz -> previous.put(clazz, history.current(clazz)));
+        Map<Class<?>, List<String>> definitionOrders = new LinkedHashMap<>();
+        newClasses.forEach((host, classes) -> definitionOrders.put(host, definitionOrder(classes)));
+        redefine(changed, candidates - changed.size());
+
+        Map<Class<?>, byte[]> defined = new LinkedHashMap<>();
+        List<String> loadedGenerations = new ArrayList<>();
+        try {
+            for (Map.Entry<Class<?>, List<String>> order : definitionOrders.entrySet()) {
+                Class<?> host = order.getKey();
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(host, MethodHandles.lookup());
+                for (String name : order.getValue()) {
+                    byte[] bytecode = newClasses.get(host).get(name);
+                    defined.put(lookup.defineClass(bytecode), bytecode);
+                }
+            }
+            for (Map.Entry<Class<?>, Map<String, byte[]>> generation : generations.entrySet()) {
+                loadedGenerations.addAll(loadGeneration(generation.getKey(), generation.getValue(),
+                    loadedBytecode, record, previous));
+            }
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            restore(previous, e);
+            throw e;
+        }
+
+        Set<String> applied = new LinkedHashSet<>();
+        changed.forEach((clazz, bytecode) -> {
+            history.recordApplied(clazz, bytecode);
+            record.accept(clazz, bytecode);
+            applied.add(clazz.getName());
+        });
+        defined.forEach((clazz, bytecode) -> {
+            history.recordOriginal(clazz, bytecode);
+            record.accept(clazz, bytecode);
+            applied.add(clazz.getName());
+        });
+        applied.addAll(loadedGenerations);
+        return new ArrayList<>(applied);
+    }
+
+    /**
+     * Whether a host and its nested classes go to a new generation: the host opted
+     * in with {@code @HotReload(generations = true)} and either already runs in
+     * generations or the change is structural.
+     */
+    private boolean needsGeneration(Class<?> host, Map<String, byte[]> classes,
+                                    BiFunction<Class<?>, String, Class<?>> loadedClasses,
+                                    Function<Class<?>, byte[]> loadedBytecode) {
+        HotReload annotation = host.getAnnotation(HotReload.class);
+        if (annotation == null || !annotation.generations() || host.isInterface()) {
+            return false;
+        }
+        if (GenerationDispatch.generation(host) > 0) {
+            return true;
+        }
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            String name = entry.getKey();
+            Class<?> loaded = name.equals(host.getName()) ? host : loadedClasses.apply(host, name);
+            if (loaded == null) continue;
+            byte[] current = history.current(loaded);
+            if (current == null) {
+                current = loadedBytecode.apply(loaded);
+            }
+            if (current != null && GenerationStubs.isStructuralChange(current, entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Defines the host and its nested classes in a fresh {@link GenerationClassLoader},
+     * routes calls to the host there and, the first time, redefines the host with
+     * its stub so calls are routed at all.
+     */
+    private List<String> loadGeneration(Class<?> host, Map<String, byte[]> classes,
+                                        Function<Class<?>, byte[]> loadedBytecode,
+                                        BiConsumer<Class<?>, byte[]> record, Map<Class<?>, byte[]> previous)
+            throws ReflectiveOperationException, UnmodifiableClassException {
+        Map<String, byte[]> running = GenerationDispatch.bytecode(host);
+        if (running != null && sameBytecode(running, classes)) {
+            skipped.add(classes.size());
+            LOG.log(Level.FINE, "[HotReload] No executable change in generation of {0}, skipping", host.getName());
+            return List.of();
+        }
+
+        byte[] current = history.current(host);
+        if (current == null) {
+            current = loadedBytecode.apply(host);
+            if (current != null) {
+                history.recordOriginal(host, current);
+            }
+        }
+        byte[] stub = GenerationDispatch.stub(host);
+        boolean needsStub = stub == null || current != stub;
+        if (needsStub && current == null) {
+            throw new UnmodifiableClassException("Bytecode of " + host.getName()
+                + " is unknown, cannot route its calls to a new generation");
+        }
+
+        int number = GenerationDispatch.generation(host) + 1;
+        GenerationClassLoader loader = new GenerationClassLoader(host.getName() + "@" + number,
+            host.getClassLoader(), classes, host.getProtectionDomain());
+        Class<?> generation = Class.forName(host.getName(), true, loader);
+        GenerationDispatch.switchTo(host, generation, classes);
+
+        if (needsStub) {
+            stub = GenerationStubs.stub(current);
+            previous.put(host, current);
+            redefine(Map.of(host, stub), 0);
+            GenerationDispatch.stubbed(host, stub);
+            history.recordApplied(host, stub);
+            record.accept(host, stub);
+        }
+        LOG.log(Level.INFO, "[HotReload] {0}: loaded generation {1}", new Object[]{host.getName(), number});
+        return new ArrayList<>(classes.keySet());
+    }
+
+    /**
+     * Redefines classes with versions from their history in a single
+     * {@code redefineClasses} call, without compiling. Any version still in the
+     * history can be selected, including one newer than the current version.
+     *
+     * @param versions version numbers, see {@link #history(Class)}, keyed by class
+     * @return the bytecode the classes now run, keyed by binary name
+     * @throws IllegalArgumentException if a version is not in the history
+     */
+    public synchronized Map<String, byte[]> rollback(Map<Class<?>, Integer> versions)
+            throws ClassNotFoundException, UnmodifiableClassException {
+        Map<Class<?>, byte[]> definitions = new LinkedHashMap<>();
+        Map<String, byte[]> selected = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<Class<?>, Integer> entry : versions.entrySet()) {
+            Class<?> clazz = entry.getKey();
+            byte[] bytecode = history.bytecode(clazz, entry.getValue());
+            if (bytecode == null) {
+                throw new IllegalArgumentException("Version " + entry.getValue() + " of " + clazz.getName()
+                    + " is not in the history: " + history.versions(clazz));
+            }
+            definitions.put(clazz, bytecode);
+            selected.put(clazz.getName(), bytecode);
+            names.add(clazz.getName() + " to v" + entry.getValue());
+        }
+        redefine(definitions, 0);
+        versions.forEach(history::select);
+        LOG.log(Level.INFO, "[HotReload] Rolled back {0}", String.join(", ", names));
+        return selected;
+    }
+
+    public Map<String, byte[]> rollback(Class<?> clazz, int version)
+            throws ClassNotFoundException, UnmodifiableClassException {
+        return rollback(Map.of(clazz, version));
+    }
+
+    /** Versions of a class available to {@link #rollback}, oldest first. */
+    public List<ClassVersion> history(Class<?> clazz) {
+        return history.versions(clazz);
+    }
+
+    /** Bytecode held by the version history of all classes. */
+    public long historyBytes() {
+        return history.bytes();
+    }
+
+    public int historyVersionCount() {
+        return history.versionCount();
+    }
+
+    /** Reports every redefinition from now on to {@code monitor}, or to none if {@code null}. */
+    public void useImpactMonitor(ReloadImpactMonitor monitor) {
+        this.impactMonitor = monitor;
+    }
+
+    /** Classes not redefined so far because their bytecode had no executable change. */
+    public long skippedCount() {
+        return skipped.sum();
+    }
+
+    private void redefine(Map<Class<?>, byte[]> newBytecode, int skippedCount)
+            throws ClassNotFoundException, UnmodifiableClassException {
+        if (newBytecode.isEmpty() && skippedCount == 0) return;
+
+        ReloadImpactMonitor monitor = impactMonitor;
+        RedefineEvent event = new RedefineEvent();
+        event.begin();
+        if (!newBytecode.isEmpty()) {
+            ClassDefinition[] definitions = new ClassDefinition[newBytecode.size()];
+            int i = 0;
+            for (Map.Entry<Class<?>, byte[]> entry : newBytecode.entrySet()) {
+                definitions[i++] = new ClassDefinition(entry.getKey(), entry.getValue());
+            }
+            Instant start = Instant.now();
+            instrumentation.redefineClasses(definitions);
+            if (monitor != null) {
+                monitor.redefined(names(newBytecode), start, Instant.now());
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            List<String> names = names(newBytecode);
+            long size = 0;
+            for (byte[] bytecode : newBytecode.values()) {
+                size += bytecode.length;
+            }
+            event.classes = String.join(", ", names);
+            event.classCount = names.size();
+            event.bytecodeSize = size;
+            event.skippedCount = skippedCount;
+            event.commit();
+        }
+    }
+
+    private static List<String> names(Map<Class<?>, byte[]> bytecode) {
+        List<String> names = new ArrayList<>();
+        for (Class<?> clazz : bytecode.keySet()) {
+            names.add(clazz.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Puts back the bytecode classes ran before a batch whose new classes could
+     * not be defined. Classes defined before the failure stay defined, but
+     * nothing refers to them once the old bytecode is restored.
+     */
+    private void restore(Map<Class<?>, byte[]> previous, Throwable failure) {
+        Map<Class<?>, byte[]> restorable = new LinkedHashMap<>();
+        previous.forEach((clazz, bytecode) -> {
+            if (bytecode != null) restorable.put(clazz, bytecode);
+        });
+        try {
+            redefine(restorable, 0);
+            if (restorable.size() < previous.size()) {
+                LOG.log(Level.WARNING, "[HotReload] Previous bytecode unknown for some classes of the failed batch,"
+                    + " they keep the new version: {0}", previous.keySet());
+            }
+        } catch (ClassNotFoundException | UnmodifiableClassException | RuntimeException | LinkageError e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Drops classes whose new bytecode matches what they currently run, ignoring
+     * debug information, and logs which methods of the others changed.
+     */
+    private Map<Class<?>, byte[]> withoutNoOps(Map<Class<?>, byte[]> newBytecode) {
+        Map<Class<?>, byte[]> changed = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, byte[]> entry : newBytecode.entrySet()) {
+            Class<?> clazz = entry.getKey();
+            byte[] previous = history.current(clazz);
+            if (previous == null) {
+                changed.put(clazz, entry.getValue());
+                continue;
+            }
+
+            BytecodeFingerprint before = BytecodeFingerprint.of(previous);
+            BytecodeFingerprint after = BytecodeFingerprint.of(entry.getValue());
+            if (after.sameAs(before)) {
+                skipped.increment();
+                LOG.log(Level.FINE, "[HotReload] No executable change in {0}, skipping redefinition", clazz.getName());
+            } else {
+                changed.put(clazz, entry.getValue());
+                Set<String> methods = after.changedMethods(before);
+                LOG.log(Level.INFO, "[HotReload] {0}: {1}", new Object[]{clazz.getName(),
+                    methods.isEmpty() ? "class structure changed" : "changed " + String.join(", ", methods)});
+            }
+        }
+        return changed;
+    }
+
+    private static boolean sameBytecode(Map<String, byte[]> running, Map<String, byte[]> classes) {
+        if (!running.keySet().containsAll(classes.keySet())) return false;
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            if (!BytecodeFingerprint.of(entry.getValue()).sameAs(BytecodeFingerprint.of(running.get(entry.getKey())))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, Class<?>> loadedClasses(ClassLoader loader) {
+        Map<String, Class<?>> byName = new HashMap<>();
+        for (Class<?> clazz : instrumentation.getInitiatedClasses(loader)) {
+            if (clazz.getClassLoader() == loader) {
+                byName.put(clazz.getName(), clazz);
+            }
+        }
+        return byName;
+    }
+
+    /**
+     * Orders new classes so that supertypes defined in the same batch come
+     * before their subtypes, since defining a class resolves its supertypes.
+     */
+    private static List<String> definitionOrder(Map<String, byte[]> newClasses) {
+        List<String> ordered = new ArrayList<>();
+        Set<String> remaining = new LinkedHashSet<>(newClasses.keySet());
+        while (!remaining.isEmpty()) {
+            boolean progressed = false;
+            for (Iterator<String> it = remaining.iterator(); it.hasNext(); ) {
+                String name = it.next();
+                ClassFileReader reader = new ClassFileReader(newClasses.get(name));
+                List<String> supertypes = new ArrayList<>(reader.interfaceNames());
+                supertypes.add(reader.superName());
+                if (supertypes.stream().noneMatch(remaining::contains)) {
+                    ordered.add(name);
+                    it.remove();
+                    progressed = true;
+                }
+            }
+            if (!progressed) {
+                ordered.addAll(remaining);
+                break;
+            }
+        }
+        return ordered;
     }
 }
@@ -0,0 +1,136 @@
+package com.hotreload.core;
+
+import com.sun.source.util.JavacTask;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Long-lived javac context for one compile classpath. The standard file manager,
+ * and with it every opened jar and its package index, stays warm between compiles
+ * instead of being rebuilt from the classpath string on each save.
+ */
+class HotCompilerSession implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(HotCompilerSession.class.getName());
+    private static final List<String> OPTIONS = List.of("-proc:none");
+
+    private final JavaCompiler compiler;
+    private final String classpath;
+    private final StandardJavaFileManager fileManager;
+
+    HotCompilerSession(JavaCompiler compiler, String classpath) throws IOException {
+        this.compiler = compiler;
+        this.classpath = classpath;
+        this.fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        this.fileManager.setLocation(StandardLocation.CLASS_PATH, toFiles(classpath));
+    }
+
+    String classpath() {
+        return classpath;
+    }
+
+    /**
+     * Compiles the sources and returns every emitted class keyed by binary name.
+     *
+     * @param constantUsage receives, per compiled top-level class, the classes whose
+     *                      compile-time constants it inlined
+     * @param counts        receives the error and warning counts, also when compilation fails
+     */
+    Map<String, byte[]> compile(Collection<? extends JavaFileObject> sources,
+                                Map<String, Set<String>> constantUsage,
+                                CompileDiagnostics counts) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        InMemoryClassFileManager memoryManager = new InMemoryClassFileManager(fileManager);
+
+        long start = System.nanoTime();
+        JavacTask task = (JavacTask) compiler.getTask(null, memoryManager, diagnostics, OPTIONS, null, sources);
+        ConstantUsageCollector collector = new ConstantUsageCollector(task);
+        task.addTaskListener(collector);
+
+        boolean succeeded = task.call();
+        counts.set(count(diagnostics, Diagnostic.Kind.ERROR),
+            count(diagnostics, Diagnostic.Kind.WARNING) + count(diagnostics, Diagnostic.Kind.MANDATORY_WARNING));
+        if (!succeeded) {
+            throw compilationFailed(sources, diagnostics);
+        }
+        constantUsage.putAll(collector.usage());
+        LOG.log(Level.FINE, "[HotReload] Compiled {0} in {1} ms",
+            new Object[]{names(sources), (System.nanoTime() - start) / 1_000_000});
+        return memoryManager.classes();
+    }
+
+    /**
+     * Parses and attributes the sources without generating code, returning the
+     * constant usage of each top-level class.
+     */
+    Map<String, Set<String>> analyzeConstantUsage(Collection<? extends JavaFileObject> sources) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics, OPTIONS, null, sources);
+        ConstantUsageCollector collector = new ConstantUsageCollector(task);
+        task.addTaskListener(collector);
+
+        task.analyze();
+        if (diagnostics.getDiagnostics().stream().anyMatch(d -> d.getKind() == Diagnostic.Kind.ERROR)) {
+            throw compilationFailed(sources, diagnostics);
+        }
+        return collector.usage();
+    }
+
+    private static IOException compilationFailed(Collection<? extends JavaFileObject> sources,
+                                                 DiagnosticCollector<JavaFileObject> diagnostics) {
+        StringBuilder sb = new StringBuilder("Compilation failed for ").append(names(sources)).append(":\n");
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.ERROR) {
+                sb.append(d).append('\n');
+            }
+        }
+        return new IOException(sb.toString());
+    }
+
+    private static int count(DiagnosticCollector<JavaFileObject> diagnostics, Diagnostic.Kind kind) {
+        int count = 0;
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() == kind) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileManager.close();
+    }
+
+    private static List<File> toFiles(String classpath) {
+        List<File> files = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                files.add(new File(entry));
+            }
+        }
+        return files;
+    }
+
+    private static String names(Collection<? extends JavaFileObject> sources) {
+        List<String> names = new ArrayList<>();
+        for (JavaFileObject source : sources) {
+            names.add(source.getName());
+        }
+        return String.join(", ", names);
+    }
+}
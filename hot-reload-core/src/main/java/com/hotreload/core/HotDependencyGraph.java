@@ -0,0 +1,191 @@
+package com.hotreload.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class-level dependency graph between compilation units.
+ *
+ * <p>Nodes are top-level binary names, so edges from nested and anonymous
+ * classes are attributed to the source file that emits them. Edges come from
+ * the constant pools of compiled classes, plus constant references reported
+ * by javac, since inlined {@code static final} constants leave no trace in the
+ * referencing class file. Each node also carries a fingerprint of its
+ * non-private API, so a change that only touches method bodies does not
+ * invalidate any dependents. The fingerprint is that of the version running,
+ * so a compile that fails or is never applied leaves it as it was.
+ */
+public class HotDependencyGraph {
+
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+    private final Map<String, String> apiFingerprints = new HashMap<>();
+
+    /**
+     * Replaces everything known about the compilation units that emitted the
+     * given classes, which are running as they are.
+     *
+     * @param classes       bytecode of all classes emitted by the units, keyed by binary name
+     * @param constantUsage constant owners referenced by each unit, keyed by top-level name
+     * @return top-level names whose API fingerprint differs from the previously recorded one
+     */
+    public synchronized Set<String> record(Map<String, byte[]> classes, Map<String, Set<String>> constantUsage) {
+        return record(classes, constantUsage, true);
+    }
+
+    /**
+     * Replaces the dependencies of freshly compiled units, keeping the API
+     * fingerprint of the version running until {@link #recordApplied} is called.
+     *
+     * @return top-level names whose API differs from the version running
+     */
+    public synchronized Set<String> recordCompiled(Map<String, byte[]> classes,
+                                                   Map<String, Set<String>> constantUsage) {
+        return record(classes, constantUsage, false);
+    }
+
+    /** Takes the API of the given classes, just redefined, as the version running. */
+    public synchronized void recordApplied(Map<String, byte[]> classes) {
+        unitClasses(classes).forEach((unit, readers) -> apiFingerprints.put(unit, apiFingerprint(readers)));
+    }
+
+    private Set<String> record(Map<String, byte[]> classes, Map<String, Set<String>> constantUsage, boolean running) {
+        Map<String, Set<String>> unitDependencies = new HashMap<>();
+        Map<String, List<ClassFileReader>> unitClasses = new HashMap<>();
+
+        for (byte[] bytecode : classes.values()) {
+            ClassFileReader reader = new ClassFileReader(bytecode);
+            String unit = topLevelName(reader.className());
+            unitClasses.computeIfAbsent(unit, u -> new ArrayList<>()).add(reader);
+            Set<String> targets = unitDependencies.computeIfAbsent(unit, u -> new HashSet<>());
+            for (String referenced : reader.referencedClasses()) {
+                targets.add(topLevelName(referenced));
+            }
+        }
+        constantUsage.forEach((unit, owners) -> {
+            Set<String> targets = unitDependencies.computeIfAbsent(unit, u -> new HashSet<>());
+            for (String owner : owners) {
+                targets.add(topLevelName(owner));
+            }
+        });
+
+        Set<String> apiChanged = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<String>> entry : unitDependencies.entrySet()) {
+            String unit = entry.getKey();
+            Set<String> targets = entry.getValue();
+            targets.remove(unit);
+            replaceDependencies(unit, targets);
+
+            List<ClassFileReader> readers = unitClasses.get(unit);
+            if (readers != null) {
+                String fingerprint = apiFingerprint(readers);
+                String previous = apiFingerprints.get(unit);
+                if (running || previous == null) {
+                    // a unit compiled before anything was known about it is its own baseline
+                    apiFingerprints.put(unit, fingerprint);
+                }
+                if (previous != null && !previous.equals(fingerprint)) {
+                    apiChanged.add(unit);
+                }
+            }
+        }
+        return apiChanged;
+    }
+
+    private static Map<String, List<ClassFileReader>> unitClasses(Map<String, byte[]> classes) {
+        Map<String, List<ClassFileReader>> unitClasses = new HashMap<>();
+        for (byte[] bytecode : classes.values()) {
+            ClassFileReader reader = new ClassFileReader(bytecode);
+            unitClasses.computeIfAbsent(topLevelName(reader.className()), u -> new ArrayList<>()).add(reader);
+        }
+        return unitClasses;
+    }
+
+    /** Units that directly depend on any of the given units, excluding the units themselves. */
+    public synchronized Set<String> dependentsOf(Collection<String> units) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String unit : units) {
+            result.addAll(dependents.getOrDefault(unit, Set.of()));
+        }
+        result.removeAll(units);
+        return result;
+    }
+
+    public synchronized Set<String> dependenciesOf(String unit) {
+        return Set.copyOf(dependencies.getOrDefault(unit, Set.of()));
+    }
+
+    public synchronized int size() {
+        return dependencies.size();
+    }
+
+    static String topLevelName(String binaryName) {
+        int dollar = binaryName.indexOf('$', binaryName.lastIndexOf('.') + 1);
+        return dollar > 0 ? binaryName.substring(0, dollar) : binaryName;
+    }
+
+    private void replaceDependencies(String unit, Set<String> targets) {
+        Set<String> previous = dependencies.put(unit, targets);
+        if (previous != null) {
+            for (String target : previous) {
+                Set<String> sources = dependents.get(target);
+                if (sources != null) {
+                    sources.remove(unit);
+                }
+            }
+        }
+        for (String target : targets) {
+            dependents.computeIfAbsent(target, t -> new HashSet<>()).add(unit);
+        }
+    }
+
+    /**
+     * Hashes everything other classes can link against or inline: supertypes,
+     * non-private member signatures and compile-time constant values.
+     */
+    private static String apiFingerprint(List<ClassFileReader> readers) {
+        MessageDigest digest = sha256();
+        readers.stream()
+            .sorted(Comparator.comparing(ClassFileReader::className))
+            .forEach(reader -> {
+                update(digest, reader.className());
+                update(digest, Integer.toString(reader.accessFlags()));
+                update(digest, String.valueOf(reader.superName()));
+                reader.interfaceNames().forEach(name -> update(digest, name));
+                for (ClassFileReader.Member field : reader.fields()) {
+                    if (field.isPrivate()) continue;
+                    update(digest, field.access() + " " + field.name() + " " + field.descriptor()
+                        + " = " + field.constantValue());
+                }
+                for (ClassFileReader.Member method : reader.methods()) {
+                    if (method.isPrivate()) continue;
+                    update(digest, method.access() + " " + method.name() + method.descriptor());
+                }
+            });
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,109 +1,360 @@
 package com.hotreload.core;
 
-import com.hotreload.annotation.HotReload;
+import com.hotreload.annotation.WatchMode;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.instrument.UnmodifiableClassException;
 import java.lang.instrument.Instrumentation;
-import java.nio.file.Files;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class HotReloadEngine {
+public class HotReloadEngine implements HotReloadEngineMXBean {
 
     private static final Logger LOG = Logger.getLogger(HotReloadEngine.class.getName());
-    private static final long DEFAULT_POLL_INTERVAL_MS = 500;
     private static final AtomicBoolean RUNNING = new AtomicBoolean(false);
+    private static final HotReloadMetrics NO_METRICS = new HotReloadMetrics();
 
     public static final String[] DEFAULT_SOURCE_PATHS = {"src/main/java"};
 
+    /** JMX name the engine registers itself under when started. */
+    public static final String OBJECT_NAME = "com.hotreload:type=HotReloadEngine";
+
     private final Instrumentation instrumentation;
-    private final String[] sourcePaths;
-    private final long pollIntervalMs;
+    private final HotReloadOptions options;
+
+    private volatile HotClassRegistry registry;
+    private volatile HotClassReloader reloader;
+    private volatile HotReloadPipeline pipeline;
+    private volatile FleetCoordinator coordinator;
+    private volatile ReloadImpactMonitor impactMonitor;
 
     public HotReloadEngine(Instrumentation instrumentation, String[] sourcePaths, long pollIntervalMs) {
+        this(instrumentation, HotReloadOptions.of(sourcePaths).withPollIntervalMs(pollIntervalMs));
+    }
+
+    public HotReloadEngine(Instrumentation instrumentation, HotReloadOptions options) {
         this.instrumentation = instrumentation;
-        this.sourcePaths = sourcePaths.clone();
-        this.pollIntervalMs = pollIntervalMs;
+        this.options = options;
     }
 
     public static void startIfNotRunning(Instrumentation instrumentation, String[] sourcePaths) {
+        startIfNotRunning(instrumentation, HotReloadOptions.of(sourcePaths));
+    }
+
+    public static void startIfNotRunning(Instrumentation instrumentation, HotReloadOptions options) {
         if (RUNNING.compareAndSet(false, true)) {
-            new HotReloadEngine(instrumentation, sourcePaths, DEFAULT_POLL_INTERVAL_MS).start();
+            new HotReloadEngine(instrumentation, options).start();
         } else {
             LOG.info("[HotReload] Engine already running, skipping start.");
         }
     }
 
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
     public void start() {
         RUNNING.set(true);
 
-        Map<Path, Class<?>> sourceToClass = buildSourceMap();
-        if (sourceToClass.isEmpty()) {
-            LOG.warning("[HotReload] No @HotReload classes found. Nothing to watch.");
-            return;
+        HotClassRegistry registry = HotClassRegistry.shared();
+        this.registry = registry;
+        if (!options.bytecodeCacheDir().isEmpty() && registry.bytecodeCache() == null) {
+            // classes loaded before this point run the build's version until their next reload
+            registry.useBytecodeCache(new BytecodeCache(Path.of(options.bytecodeCacheDir())));
+        }
+        if (!registry.isTracking()) {
+            registry.install(instrumentation, true);
+        }
+        if (registry.size() == 0) {
+            LOG.info("[HotReload] No @HotReload classes loaded yet; they will be picked up as they load.");
         }
 
-        Path outputDir = resolveOutputDir();
-        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
-        HotClassReloader reloader = new HotClassReloader(instrumentation);
+        // with class paths configured, the build output is reloaded as is and javac never runs here
+        String[] classPaths = options.classPaths();
+        boolean classFileMode = classPaths.length > 0;
+        String[] watchedPaths = classFileMode ? classPaths : options.sourcePaths();
+        String fileSuffix = classFileMode ? ".class" : ".java";
 
-        HotClassFileWatcher watcher = new HotClassFileWatcher(
-            sourcePaths,
-            pollIntervalMs,
-            sourceToClass,
-            compiler,
-            reloader
-        );
+        HotSourceCompiler compiler = classFileMode ? null : newCompiler();
+        HotClassReloader reloader = new HotClassReloader(instrumentation, options.historyDepth(),
+            options.historyMaxBytes());
+        ReloadImpactMonitor impactMonitor = startImpactMonitor(registry);
+        reloader.useImpactMonitor(impactMonitor);
+        this.impactMonitor = impactMonitor;
+        FleetCoordinator coordinator = startCoordinator();
+        HotReloadPipeline pipeline = new HotReloadPipeline(watchedPaths, registry, compiler, reloader, options,
+            coordinator);
+        pipeline.start();
+        this.reloader = reloader;
+        this.pipeline = pipeline;
+        this.coordinator = coordinator;
+        registerMBean();
 
-        Thread watchThread = new Thread(watcher, "hot-reload-watcher");
+        Runnable intake;
+        if (options.watchMode() == WatchMode.POLLING) {
+            intake = new HotSourcePoller(
+                watchedPaths,
+                options.scanIntervalMs(),
+                options.debounceMs(),
+                options.scanThreads(),
+                pipeline,
+                fileSuffix
+            );
+        } else {
+            intake = new HotClassFileWatcher(
+                watchedPaths,
+                options.pollIntervalMs(),
+                options.debounceMs(),
+                pipeline,
+                fileSuffix
+            );
+        }
+
+        Thread watchThread = new Thread(intake, "hot-reload-watcher");
         watchThread.setDaemon(true);
         watchThread.start();
 
-        LOG.log(Level.INFO, "[HotReload] Engine started. Monitoring {0} class(es) across paths: {1}",
-            new Object[]{sourceToClass.size(), String.join(", ", sourcePaths)});
+        if (classFileMode) {
+            LOG.log(Level.INFO, "[HotReload] Engine started. Monitoring {0} class(es) across class paths: {1}",
+                new Object[]{registry.size(), String.join(", ", watchedPaths)});
+        } else {
+            LOG.log(Level.INFO, "[HotReload] Engine started. Monitoring {0} class(es) across paths: {1} "
+                    + "with {2} compile thread(s)",
+                new Object[]{registry.size(), String.join(", ", watchedPaths), options.compileThreads()});
+        }
     }
 
-    private Map<Path, Class<?>> buildSourceMap() {
-        Map<Path, Class<?>> map = new HashMap<>();
+    private HotSourceCompiler newCompiler() {
+        CompilerBackend backend;
+        String compilerId;
+        if (options.compileDaemon()) {
+            LOG.log(Level.INFO, "[HotReload] Compiling in a daemon JVM with at most {0} MB of heap",
+                options.compileDaemonHeapMb());
+            backend = CompileDaemonClient.from(options);
+            compilerId = "daemon " + options.compileDaemonJavaHome() + " " + Runtime.version();
+        } else {
+            backend = new LocalCompilerBackend();
+            compilerId = "local " + Runtime.version();
+        }
+        BytecodeCache cache = registry.bytecodeCache();
+        if (cache != null) {
+            backend = new CachingCompilerBackend(backend, cache, compilerId);
+        }
+        return new HotSourceCompiler(null, backend);
+    }
 
-        for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
-            if (clazz.isAnnotationPresent(HotReload.class)) {
-                Path sourceFile = findSourceFile(clazz);
-                if (sourceFile != null) {
-                    map.put(sourceFile, clazz);
-                    LOG.log(Level.FINE, "[HotReload] Mapped {0} -> {1}",
-                        new Object[]{clazz.getName(), sourceFile});
-                } else {
-                    LOG.log(Level.WARNING, "[HotReload] Could not locate source for {0}", clazz.getName());
-                }
-            }
+    private ReloadImpactMonitor startImpactMonitor(HotClassRegistry registry) {
+        if (!options.reportReloadImpact()) return null;
+        try {
+            return new ReloadImpactMonitor(name -> registry.isRegistered(HotDependencyGraph.topLevelName(name)),
+                ReloadImpactMonitor.DEFAULT_SETTLE_MS);
+        } catch (IllegalStateException | SecurityException e) {
+            LOG.log(Level.WARNING, "[HotReload] JFR is not available, reloads are not reported with their JIT impact", e);
+            return null;
         }
-        return map;
     }
 
-    private Path findSourceFile(Class<?> clazz) {
-        String relativePath = clazz.getName().replace('.', '/') + ".java";
-        for (String sourcePath : sourcePaths) {
-            Path candidate = Paths.get(sourcePath).toAbsolutePath().resolve(relativePath);
-            if (Files.exists(candidate)) {
-                return candidate;
+    private FleetCoordinator startCoordinator() {
+        if (options.fleetPort() == 0) return null;
+        try {
+            FleetCoordinator coordinator = new FleetCoordinator(options.fleetPort());
+            coordinator.start();
+            LOG.log(Level.INFO, "[HotReload] Publishing compiled changes to fleet subscribers on port {0}",
+                String.valueOf(coordinator.port()));
+            return coordinator;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Could not listen on fleet port " + options.fleetPort()
+                + ", changes are only applied to this JVM", e);
+            return null;
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
             }
+        } catch (JMException | RuntimeException e) {
+            LOG.log(Level.WARNING, "[HotReload] Could not register the JMX MBean " + OBJECT_NAME, e);
         }
-        return null;
     }
 
-    private static Path resolveOutputDir() {
-        Path outputDir = Paths.get("target", "classes").toAbsolutePath();
+    @Override
+    public long getEventCount() {
+        return metrics().events();
+    }
+
+    @Override
+    public long getCompileCount() {
+        return metrics().compiles();
+    }
+
+    @Override
+    public long getRedefineCount() {
+        return metrics().redefines();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return metrics().failures();
+    }
+
+    @Override
+    public long getSkippedCount() {
+        HotClassReloader current = reloader;
+        return current == null ? 0 : current.skippedCount();
+    }
+
+    @Override
+    public int getWatchedClassCount() {
+        HotClassRegistry current = registry;
+        return current == null ? 0 : current.size();
+    }
+
+    @Override
+    public int getChangeQueueDepth() {
+        HotReloadPipeline current = pipeline;
+        return current == null ? 0 : current.changeQueueDepth();
+    }
+
+    @Override
+    public int getRedefineQueueDepth() {
+        HotReloadPipeline current = pipeline;
+        return current == null ? 0 : current.redefineQueueDepth();
+    }
+
+    @Override
+    public int getFleetSubscriberCount() {
+        FleetCoordinator current = coordinator;
+        return current == null ? 0 : current.subscriberCount();
+    }
+
+    @Override
+    public long getHistoryBytes() {
+        HotClassReloader current = reloader;
+        return current == null ? 0 : current.historyBytes();
+    }
+
+    @Override
+    public int getHistoryVersionCount() {
+        HotClassReloader current = reloader;
+        return current == null ? 0 : current.historyVersionCount();
+    }
+
+    @Override
+    public String[] listVersions(String className) {
+        return startedReloader().history(loadedClass(className)).stream().map(ClassVersion::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public void rollback(String className, int version) {
         try {
-            Files.createDirectories(outputDir);
-        } catch (IOException e) {
-            LOG.log(Level.WARNING, "[HotReload] Could not create output directory: {0}", outputDir);
+            Map<String, byte[]> selected = startedReloader().rollback(loadedClass(className), version);
+            // subscribers must not keep running, or catch up to, the version rolled back from
+            FleetCoordinator fleet = coordinator;
+            if (fleet != null) {
+                fleet.publish(selected);
+            }
+            HotReloadPipeline current = pipeline;
+            if (current != null) {
+                current.compileAgainst(selected);
+            }
+            // the class no longer runs what its source compiles to, so the next save must not be skipped
+            String host = HotDependencyGraph.topLevelName(className);
+            registry.recordSourceHash(host, null);
+            BytecodeCache cache = registry.bytecodeCache();
+            if (cache != null) {
+                cache.forget(host);
+            }
+        } catch (ClassNotFoundException | UnmodifiableClassException e) {
+            throw new IllegalStateException("Cannot roll back " + className + ": " + e, e);
+        }
+    }
+
+    @Override
+    public String[] getDeferredClasses() {
+        HotReloadPipeline current = pipeline;
+        return current == null ? new String[0] : current.deferredClasses().toArray(String[]::new);
+    }
+
+    @Override
+    public String[] applyDeferred() {
+        HotReloadPipeline current = pipeline;
+        return current == null ? new String[0] : current.applyDeferred().toArray(String[]::new);
+    }
+
+    /**
+     * Recent reports of what redefinitions cost the JIT, oldest first; empty unless
+     * enabled with {@link HotReloadOptions#withReportReloadImpact}.
+     */
+    public List<ReloadImpactReport> reloadImpactReports() {
+        ReloadImpactMonitor current = impactMonitor;
+        return current == null ? List.of() : current.reports();
+    }
+
+    @Override
+    public String[] getReloadImpact() {
+        return reloadImpactReports().stream().map(ReloadImpactReport::toString).toArray(String[]::new);
+    }
+
+    private HotClassReloader startedReloader() {
+        HotClassReloader current = reloader;
+        if (current == null) {
+            throw new IllegalStateException("Engine not started");
         }
-        return outputDir;
+        return current;
+    }
+
+    private Class<?> loadedClass(String className) {
+        HotClassRegistry current = registry;
+        Class<?> clazz = current == null ? null : current.findLoaded(className);
+        if (clazz == null) {
+            throw new IllegalArgumentException("Not a loaded @HotReload class: " + className);
+        }
+        return clazz;
+    }
+
+    @Override
+    public LatencySnapshot getDetectLatency() {
+        return metrics().detectLatency().snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getCompileLatency() {
+        return metrics().compileLatency().snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getRedefineLatency() {
+        return metrics().redefineLatency().snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getTotalLatency() {
+        return metrics().totalLatency().snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getWarmupLatency() {
+        return metrics().warmupLatency().snapshot();
+    }
+
+    private HotReloadMetrics metrics() {
+        HotReloadPipeline current = pipeline;
+        return current == null ? NO_METRICS : current.metrics();
     }
 }
@@ -0,0 +1,59 @@
+package com.hotreload.core;
+
+/**
+ * Management interface of a running {@link HotReloadEngine}, registered as
+ * {@value HotReloadEngine#OBJECT_NAME}.
+ */
+public interface HotReloadEngineMXBean {
+
+    long getEventCount();
+
+    long getCompileCount();
+
+    long getRedefineCount();
+
+    long getFailureCount();
+
+    /** Classes not redefined because their bytecode had no executable change. */
+    long getSkippedCount();
+
+    int getWatchedClassCount();
+
+    int getChangeQueueDepth();
+
+    int getRedefineQueueDepth();
+
+    /** JVMs subscribed to compiled changes, {@code 0} unless a fleet port is configured. */
+    int getFleetSubscriberCount();
+
+    /** Bytecode held for rollback across all classes. */
+    long getHistoryBytes();
+
+    int getHistoryVersionCount();
+
+    /** Versions of a loaded {@code @HotReload} class, or one nested in it, available for rollback. */
+    String[] listVersions(String className);
+
+    /** Redefines a class with a version from its history, see {@link #listVersions}. */
+    void rollback(String className, int version);
+
+    /** Classes with compiled changes held back by the reload scheduler. */
+    String[] getDeferredClasses();
+
+    /** Applies the changes held back by the reload scheduler now and returns the classes applied. */
+    String[] applyDeferred();
+
+    /** Recent reports of what redefinitions cost the JIT, empty unless enabled. */
+    String[] getReloadImpact();
+
+    LatencySnapshot getDetectLatency();
+
+    LatencySnapshot getCompileLatency();
+
+    LatencySnapshot getRedefineLatency();
+
+    LatencySnapshot getTotalLatency();
+
+    /** Time spent in warmup callbacks after each applied batch. */
+    LatencySnapshot getWarmupLatency();
+}
@@ -0,0 +1,150 @@
+package com.hotreload.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Build-time index of {@code @HotReload} classes, written to {@value #RESOURCE}
+ * by {@code com.hotreload.processor.HotReloadIndexProcessor}. Each line holds a
+ * binary name, the absolute path of its source file and the SHA-256 of that
+ * file's content at build time, separated by tabs; the last two may be empty.
+ *
+ * <p>With an index on the class path the engine registers the listed classes
+ * directly instead of scanning all loaded classes, and knows their source files
+ * without probing the source roots.
+ */
+public final class HotReloadIndex {
+
+    private static final Logger LOG = Logger.getLogger(HotReloadIndex.class.getName());
+
+    public static final String RESOURCE = "META-INF/hotreload/index";
+
+    private final Map<String, Entry> entries;
+
+    private HotReloadIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /** Reads every index visible to {@code loader}, later entries for a class replacing earlier ones. */
+    public static HotReloadIndex load(ClassLoader loader) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try {
+            Enumeration<URL> resources = loader == null
+                ? ClassLoader.getSystemResources(RESOURCE)
+                : loader.getResources(RESOURCE);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                try (BufferedReader in = new BufferedReader(
+                        new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+                    for (Entry entry : read(in)) {
+                        entries.put(entry.className, entry);
+                    }
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "[HotReload] Cannot read reload index " + resource, e);
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Cannot list reload indexes", e);
+        }
+        return new HotReloadIndex(entries);
+    }
+
+    /** Parses one index resource. */
+    public static List<Entry> read(BufferedReader in) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (String line; (line = in.readLine()) != null; ) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] fields = line.split("\t", -1);
+            Path sourceFile = null;
+            if (fields.length > 1 && !fields[1].isEmpty()) {
+                try {
+                    sourceFile = Path.of(fields[1]);
+                } catch (InvalidPathException e) {
+                    // indexed on another machine, resolve the source from the roots instead
+                }
+            }
+            String hash = fields.length > 2 && !fields[2].isEmpty() ? fields[2] : null;
+            entries.add(new Entry(fields[0].trim(), sourceFile, hash));
+        }
+        return entries;
+    }
+
+    /** Writes entries in the format {@link #load} reads. */
+    public static void write(Writer out, Collection<Entry> entries) throws IOException {
+        out.write("# @HotReload classes: binary name, source file, SHA-256 of the source\n");
+        for (Entry entry : entries) {
+            out.write(entry.className + "\t" + (entry.sourceFile == null ? "" : entry.sourceFile) + "\t"
+                + (entry.sourceHash == null ? "" : entry.sourceHash) + "\n");
+        }
+    }
+
+    /** Hex SHA-256 of a source file's content, as stored in the index. */
+    public static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Collection<Entry> entries() {
+        return entries.values();
+    }
+
+    public Entry get(String className) {
+        return entries.get(className);
+    }
+
+    /** One indexed class. */
+    public static final class Entry {
+
+        private final String className;
+        private final Path sourceFile;
+        private final String sourceHash;
+
+        public Entry(String className, Path sourceFile, String sourceHash) {
+            this.className = className;
+            this.sourceFile = sourceFile;
+            this.sourceHash = sourceHash;
+        }
+
+        public String className() {
+            return className;
+        }
+
+        /** Absolute source path at build time, or {@code null} if unknown. */
+        public Path sourceFile() {
+            return sourceFile;
+        }
+
+        /** SHA-256 of the source at build time, or {@code null} if unknown. */
+        public String sourceHash() {
+            return sourceHash;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.hotreload.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and per-stage latencies of a {@link HotReloadPipeline}.
+ *
+ * <ul>
+ *   <li>detect: first file event of a batch until the dispatcher picks it up,
+ *       including debounce and queueing</li>
+ *   <li>compile: one compile task, or reading class files in class-file mode</li>
+ *   <li>redefine: applying a batch, including the bytecode comparison</li>
+ *   <li>total: first file event until the batch is applied</li>
+ *   <li>warmup: running the warmup callbacks of an applied batch, in the background</li>
+ * </ul>
+ */
+public final class HotReloadMetrics {
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder compiles = new LongAdder();
+    private final LongAdder redefines = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private final LatencyHistogram detectLatency = new LatencyHistogram();
+    private final LatencyHistogram compileLatency = new LatencyHistogram();
+    private final LatencyHistogram redefineLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final LatencyHistogram warmupLatency = new LatencyHistogram();
+
+    void recordEvent() {
+        events.increment();
+    }
+
+    void recordDetected(long nanos) {
+        detectLatency.record(nanos);
+    }
+
+    void recordCompile(long nanos) {
+        compiles.increment();
+        compileLatency.record(nanos);
+    }
+
+    void recordRedefine(int classes, long nanos, long totalNanos) {
+        redefines.add(classes);
+        redefineLatency.record(nanos);
+        totalLatency.record(totalNanos);
+    }
+
+    void recordWarmup(long nanos) {
+        warmupLatency.record(nanos);
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    /** File change events seen by the watcher, before coalescing. */
+    public long events() {
+        return events.sum();
+    }
+
+    /** Compile tasks run, one per independent group of source roots in a batch. */
+    public long compiles() {
+        return compiles.sum();
+    }
+
+    /** Classes redefined or defined. */
+    public long redefines() {
+        return redefines.sum();
+    }
+
+    /** Batches that failed to compile or redefine. */
+    public long failures() {
+        return failures.sum();
+    }
+
+    public LatencyHistogram detectLatency() {
+        return detectLatency;
+    }
+
+    public LatencyHistogram compileLatency() {
+        return compileLatency;
+    }
+
+    public LatencyHistogram redefineLatency() {
+        return redefineLatency;
+    }
+
+    public LatencyHistogram totalLatency() {
+        return totalLatency;
+    }
+
+    public LatencyHistogram warmupLatency() {
+        return warmupLatency;
+    }
+}
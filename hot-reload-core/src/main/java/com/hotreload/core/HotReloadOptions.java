@@ -0,0 +1,388 @@
+package com.hotreload.core;
+
+import com.hotreload.annotation.EnableHotReload;
+import com.hotreload.annotation.WatchMode;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Immutable engine settings, mirroring the attributes of {@link EnableHotReload}.
+ * The {@code with*} methods return modified copies.
+ */
+public final class HotReloadOptions {
+
+    public static final long DEFAULT_POLL_INTERVAL_MS = 500;
+    public static final long DEFAULT_DEBOUNCE_MS = 100;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    public static final long DEFAULT_SCAN_INTERVAL_MS = 1000;
+    public static final int DEFAULT_COMPILE_DAEMON_HEAP_MB = 512;
+    public static final long DEFAULT_COMPILE_DAEMON_IDLE_MS = 600_000;
+
+    private String[] sourcePaths = HotReloadEngine.DEFAULT_SOURCE_PATHS.clone();
+    private String[] classPaths = new String[0];
+    private long pollIntervalMs = DEFAULT_POLL_INTERVAL_MS;
+    private long debounceMs = DEFAULT_DEBOUNCE_MS;
+    private int compileThreads;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private WatchMode watchMode = WatchMode.WATCH_SERVICE;
+    private long scanIntervalMs = DEFAULT_SCAN_INTERVAL_MS;
+    private int scanThreads = 1;
+    private int fleetPort;
+    private int historyDepth = HotClassReloader.DEFAULT_HISTORY_DEPTH;
+    private long historyMaxBytes = HotClassReloader.DEFAULT_HISTORY_MAX_BYTES;
+    private int maxReloadsPerMinute;
+    private long quietWindowMs;
+    private BooleanSupplier loadSignal;
+    private long maxDeferMs;
+    private boolean compileDaemon;
+    private int compileDaemonHeapMb = DEFAULT_COMPILE_DAEMON_HEAP_MB;
+    private long compileDaemonIdleMs = DEFAULT_COMPILE_DAEMON_IDLE_MS;
+    private String compileDaemonJavaHome = "";
+    private String bytecodeCacheDir = "";
+    private boolean reportReloadImpact;
+
+    private HotReloadOptions() {}
+
+    private HotReloadOptions(HotReloadOptions other) {
+        this.sourcePaths = other.sourcePaths;
+        this.classPaths = other.classPaths;
+        this.pollIntervalMs = other.pollIntervalMs;
+        this.debounceMs = other.debounceMs;
+        this.compileThreads = other.compileThreads;
+        this.queueCapacity = other.queueCapacity;
+        this.watchMode = other.watchMode;
+        this.scanIntervalMs = other.scanIntervalMs;
+        this.scanThreads = other.scanThreads;
+        this.fleetPort = other.fleetPort;
+        this.historyDepth = other.historyDepth;
+        this.historyMaxBytes = other.historyMaxBytes;
+        this.maxReloadsPerMinute = other.maxReloadsPerMinute;
+        this.quietWindowMs = other.quietWindowMs;
+        this.loadSignal = other.loadSignal;
+        this.maxDeferMs = other.maxDeferMs;
+        this.compileDaemon = other.compileDaemon;
+        this.compileDaemonHeapMb = other.compileDaemonHeapMb;
+        this.compileDaemonIdleMs = other.compileDaemonIdleMs;
+        this.compileDaemonJavaHome = other.compileDaemonJavaHome;
+        this.bytecodeCacheDir = other.bytecodeCacheDir;
+        this.reportReloadImpact = other.reportReloadImpact;
+    }
+
+    public static HotReloadOptions defaults() {
+        return new HotReloadOptions();
+    }
+
+    public static HotReloadOptions of(String... sourcePaths) {
+        return defaults().withSourcePaths(sourcePaths);
+    }
+
+    public static HotReloadOptions from(EnableHotReload config) {
+        return of(config.sourcePaths())
+            .withClassPaths(config.classPaths())
+            .withDebounceMs(config.debounceMs())
+            .withCompileThreads(config.compileThreads())
+            .withQueueCapacity(config.queueCapacity())
+            .withWatchMode(config.watchMode())
+            .withScanIntervalMs(config.scanIntervalMs())
+            .withScanThreads(config.scanThreads())
+            .withFleetPort(config.fleetPort())
+            .withHistoryDepth(config.historyDepth())
+            .withMaxReloadsPerMinute(config.maxReloadsPerMinute())
+            .withQuietWindowMs(config.quietWindowMs())
+            .withLoadSignal(newLoadSignal(config.loadSignal()))
+            .withMaxDeferMs(config.maxDeferMs())
+            .withCompileDaemon(config.compileDaemon())
+            .withCompileDaemonHeapMb(config.compileDaemonHeapMb())
+            .withCompileDaemonIdleMs(config.compileDaemonIdleMs())
+            .withCompileDaemonJavaHome(config.compileDaemonJavaHome())
+            .withBytecodeCacheDir(config.bytecodeCacheDir())
+            .withReportReloadImpact(config.reportReloadImpact());
+    }
+
+    private static BooleanSupplier newLoadSignal(Class<? extends BooleanSupplier> type) {
+        if (type == BooleanSupplier.class) return null;
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("loadSignal " + type.getName()
+                + " needs an accessible no-argument constructor", e);
+        }
+    }
+
+    public String[] sourcePaths() {
+        return sourcePaths.clone();
+    }
+
+    /** Class output directories to watch instead of compiling sources; empty unless configured. */
+    public String[] classPaths() {
+        return classPaths.clone();
+    }
+
+    public long pollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public long debounceMs() {
+        return debounceMs;
+    }
+
+    /** Number of compile workers; defaults to one per available core, capped at the number of source roots. */
+    public int compileThreads() {
+        if (compileThreads > 0) return compileThreads;
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), sourcePaths.length));
+    }
+
+    /** Capacity of each queue between pipeline stages. */
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    public WatchMode watchMode() {
+        return watchMode;
+    }
+
+    /** Time between two rescans in {@link WatchMode#POLLING} mode. */
+    public long scanIntervalMs() {
+        return scanIntervalMs;
+    }
+
+    /** Threads walking the source roots in {@link WatchMode#POLLING} mode. */
+    public int scanThreads() {
+        return scanThreads;
+    }
+
+    /** Loopback port on which compiled changes are published to fleet subscribers; {@code 0} if disabled. */
+    public int fleetPort() {
+        return fleetPort;
+    }
+
+    /** Bytecode versions kept per class for rollback, including the original and the current one. */
+    public int historyDepth() {
+        return historyDepth;
+    }
+
+    /** Bytecode kept for rollback across all classes. */
+    public long historyMaxBytes() {
+        return historyMaxBytes;
+    }
+
+    /** Redefinitions applied per minute at most; {@code 0} if unlimited. */
+    public int maxReloadsPerMinute() {
+        return maxReloadsPerMinute;
+    }
+
+    /** Minimum time between two redefinitions; {@code 0} if none. */
+    public long quietWindowMs() {
+        return quietWindowMs;
+    }
+
+    /** Tells whether the application is too busy for a redefinition, or {@code null}. */
+    public BooleanSupplier loadSignal() {
+        return loadSignal;
+    }
+
+    /** Longest time changes are held back by a busy load signal; {@code 0} if unlimited. */
+    public long maxDeferMs() {
+        return maxDeferMs;
+    }
+
+    /** Whether sources compile in a separate daemon JVM instead of this one. */
+    public boolean compileDaemon() {
+        return compileDaemon;
+    }
+
+    /** Maximum heap of the compile daemon. */
+    public int compileDaemonHeapMb() {
+        return compileDaemonHeapMb;
+    }
+
+    /** Time after which an unused compile daemon exits; {@code 0} if never. */
+    public long compileDaemonIdleMs() {
+        return compileDaemonIdleMs;
+    }
+
+    /** JDK running the compile daemon; empty for this JVM's {@code java.home}. */
+    public String compileDaemonJavaHome() {
+        return compileDaemonJavaHome;
+    }
+
+    /** Directory of the persistent {@link BytecodeCache}; empty if disabled. */
+    public String bytecodeCacheDir() {
+        return bytecodeCacheDir;
+    }
+
+    /** Whether each redefinition is followed by a {@link ReloadImpactReport} of its cost to the JIT. */
+    public boolean reportReloadImpact() {
+        return reportReloadImpact;
+    }
+
+    public HotReloadOptions withSourcePaths(String... sourcePaths) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.sourcePaths = sourcePaths.clone();
+        return copy;
+    }
+
+    public HotReloadOptions withClassPaths(String... classPaths) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.classPaths = classPaths.clone();
+        return copy;
+    }
+
+    public HotReloadOptions withPollIntervalMs(long pollIntervalMs) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.pollIntervalMs = pollIntervalMs;
+        return copy;
+    }
+
+    public HotReloadOptions withDebounceMs(long debounceMs) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.debounceMs = debounceMs;
+        return copy;
+    }
+
+    /** @param compileThreads number of compile workers, or {@code 0} for the default */
+    public HotReloadOptions withCompileThreads(int compileThreads) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.compileThreads = compileThreads;
+        return copy;
+    }
+
+    public HotReloadOptions withQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.queueCapacity = queueCapacity;
+        return copy;
+    }
+
+    public HotReloadOptions withWatchMode(WatchMode watchMode) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.watchMode = watchMode;
+        return copy;
+    }
+
+    public HotReloadOptions withScanIntervalMs(long scanIntervalMs) {
+        if (scanIntervalMs < 1) {
+            throw new IllegalArgumentException("scanIntervalMs must be positive: " + scanIntervalMs);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.scanIntervalMs = scanIntervalMs;
+        return copy;
+    }
+
+    public HotReloadOptions withScanThreads(int scanThreads) {
+        if (scanThreads < 1) {
+            throw new IllegalArgumentException("scanThreads must be positive: " + scanThreads);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.scanThreads = scanThreads;
+        return copy;
+    }
+
+    /** @param fleetPort port to publish compiled changes on, or {@code 0} to only apply them locally */
+    public HotReloadOptions withFleetPort(int fleetPort) {
+        if (fleetPort < 0 || fleetPort > 65535) {
+            throw new IllegalArgumentException("fleetPort must be between 0 and 65535: " + fleetPort);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.fleetPort = fleetPort;
+        return copy;
+    }
+
+    public HotReloadOptions withHistoryDepth(int historyDepth) {
+        if (historyDepth < 2) {
+            throw new IllegalArgumentException("historyDepth must be at least 2: " + historyDepth);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.historyDepth = historyDepth;
+        return copy;
+    }
+
+    public HotReloadOptions withHistoryMaxBytes(long historyMaxBytes) {
+        if (historyMaxBytes < 0) {
+            throw new IllegalArgumentException("historyMaxBytes must not be negative: " + historyMaxBytes);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.historyMaxBytes = historyMaxBytes;
+        return copy;
+    }
+
+    public HotReloadOptions withMaxReloadsPerMinute(int maxReloadsPerMinute) {
+        if (maxReloadsPerMinute < 0) {
+            throw new IllegalArgumentException("maxReloadsPerMinute must not be negative: " + maxReloadsPerMinute);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.maxReloadsPerMinute = maxReloadsPerMinute;
+        return copy;
+    }
+
+    public HotReloadOptions withQuietWindowMs(long quietWindowMs) {
+        if (quietWindowMs < 0) {
+            throw new IllegalArgumentException("quietWindowMs must not be negative: " + quietWindowMs);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.quietWindowMs = quietWindowMs;
+        return copy;
+    }
+
+    /** @param loadSignal returns {@code true} while reloads should wait, or {@code null} to ignore load */
+    public HotReloadOptions withLoadSignal(BooleanSupplier loadSignal) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.loadSignal = loadSignal;
+        return copy;
+    }
+
+    public HotReloadOptions withMaxDeferMs(long maxDeferMs) {
+        if (maxDeferMs < 0) {
+            throw new IllegalArgumentException("maxDeferMs must not be negative: " + maxDeferMs);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.maxDeferMs = maxDeferMs;
+        return copy;
+    }
+
+    public HotReloadOptions withCompileDaemon(boolean compileDaemon) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.compileDaemon = compileDaemon;
+        return copy;
+    }
+
+    public HotReloadOptions withCompileDaemonHeapMb(int compileDaemonHeapMb) {
+        if (compileDaemonHeapMb < 1) {
+            throw new IllegalArgumentException("compileDaemonHeapMb must be positive: " + compileDaemonHeapMb);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.compileDaemonHeapMb = compileDaemonHeapMb;
+        return copy;
+    }
+
+    public HotReloadOptions withCompileDaemonIdleMs(long compileDaemonIdleMs) {
+        if (compileDaemonIdleMs < 0) {
+            throw new IllegalArgumentException("compileDaemonIdleMs must not be negative: " + compileDaemonIdleMs);
+        }
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.compileDaemonIdleMs = compileDaemonIdleMs;
+        return copy;
+    }
+
+    /** @param compileDaemonJavaHome JDK to run the compile daemon with, or empty for this JVM's */
+    public HotReloadOptions withCompileDaemonJavaHome(String compileDaemonJavaHome) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.compileDaemonJavaHome = compileDaemonJavaHome == null ? "" : compileDaemonJavaHome;
+        return copy;
+    }
+
+    /** @param bytecodeCacheDir directory of the persistent bytecode cache, or empty to disable it */
+    public HotReloadOptions withBytecodeCacheDir(String bytecodeCacheDir) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.bytecodeCacheDir = bytecodeCacheDir == null ? "" : bytecodeCacheDir;
+        return copy;
+    }
+
+    public HotReloadOptions withReportReloadImpact(boolean reportReloadImpact) {
+        HotReloadOptions copy = new HotReloadOptions(this);
+        copy.reportReloadImpact = reportReloadImpact;
+        return copy;
+    }
+}
@@ -0,0 +1,713 @@
+package com.hotreload.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.instrument.UnmodifiableClassException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Staged reload pipeline: change intake, compilation and redefinition run on
+ * separate threads connected by bounded queues.
+ *
+ * <pre>
+ * watcher ──offer──▶ [changes] ──▶ dispatcher ──▶ compile workers (one task per independent source root)
+ *                                      │
+ *                                      └──▶ [compiled, in order] ──▶ redefiner (single thread)
+ * </pre>
+ *
+ * <p>Changed {@code .class} files, e.g. from an IDE or {@code mvn compile}, skip
+ * compilation: their bytes are matched to registered classes by the binary name
+ * in the class file. Without a compiler the pipeline accepts only class files.
+ *
+ * <p>A full queue pushes back on the previous stage: the redefine queue blocks the
+ * dispatcher, the change queue then rejects {@link #offer}, and the watcher keeps
+ * coalescing events until there is room again. Batches are redefined in the order
+ * they were offered, while the next batch may already be compiling.
+ *
+ * <p>The {@link ReloadScheduler} configured in the options may hold compiled
+ * batches back, e.g. while the application is busy. Held batches are merged and
+ * applied together when it allows, or on demand with {@link #applyDeferred()}.
+ *
+ * <p>With a {@link FleetCoordinator}, every batch that was applied here is also
+ * published to the subscribed JVMs. Applied batches are then handed to the
+ * {@link HotReloadWarmer} so the JIT compiles the new code again.
+ */
+public class HotReloadPipeline implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(HotReloadPipeline.class.getName());
+
+    private final List<Path> sourceRoots = new ArrayList<>();
+    private final HotClassRegistry registry;
+    private final HotSourceCompiler compiler;
+    private final HotClassReloader reloader;
+    private final FleetCoordinator coordinator;
+    private final HotReloadWarmer warmer;
+    private final int compileThreads;
+    private final BlockingQueue<ChangeSet> changeQueue;
+    private final BlockingQueue<PendingReload> redefineQueue;
+    private final Set<String> indexedClasses = new HashSet<>();
+    /** Source hash of each class's newest batch still compiling, queued or held back. */
+    private final Map<String, String> inFlightHashes = new ConcurrentHashMap<>();
+    private final HotReloadMetrics metrics = new HotReloadMetrics();
+    private final ReloadScheduler scheduler;
+    private final Object deferredLock = new Object();
+    private DeferredReload deferred;
+
+    private ExecutorService compileExecutor;
+    private Thread dispatcherThread;
+    private Thread redefinerThread;
+
+    /**
+     * @param sourcePaths roots of the watched source or class files
+     * @param compiler    compiler for changed sources, or {@code null} to only accept class files
+     */
+    public HotReloadPipeline(
+            String[] sourcePaths,
+            HotClassRegistry registry,
+            HotSourceCompiler compiler,
+            HotClassReloader reloader,
+            HotReloadOptions options) {
+        this(sourcePaths, registry, compiler, reloader, options, null);
+    }
+
+    /** @param coordinator where to publish applied batches, or {@code null} to only apply them here */
+    public HotReloadPipeline(
+            String[] sourcePaths,
+            HotClassRegistry registry,
+            HotSourceCompiler compiler,
+            HotClassReloader reloader,
+            HotReloadOptions options,
+            FleetCoordinator coordinator) {
+        this(sourcePaths, registry, compiler, reloader, options, coordinator, HotReloadWarmer.shared());
+    }
+
+    /** @param warmer runs the warmup callbacks of the classes in each applied batch */
+    public HotReloadPipeline(
+            String[] sourcePaths,
+            HotClassRegistry registry,
+            HotSourceCompiler compiler,
+            HotClassReloader reloader,
+            HotReloadOptions options,
+            FleetCoordinator coordinator,
+            HotReloadWarmer warmer) {
+        for (String sourcePath : sourcePaths) {
+            sourceRoots.add(Path.of(sourcePath).toAbsolutePath().normalize());
+        }
+        this.registry = registry;
+        this.compiler = compiler;
+        this.reloader = reloader;
+        this.coordinator = coordinator;
+        this.warmer = warmer;
+        this.scheduler = ReloadScheduler.from(options);
+        this.compileThreads = options.compileThreads();
+        this.changeQueue = new ArrayBlockingQueue<>(options.queueCapacity());
+        this.redefineQueue = new ArrayBlockingQueue<>(options.queueCapacity());
+    }
+
+    public synchronized void start() {
+        if (dispatcherThread != null) return;
+
+        AtomicInteger workerCount = new AtomicInteger();
+        compileExecutor = new ThreadPoolExecutor(
+            compileThreads, compileThreads, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(compileThreads, changeQueue.remainingCapacity())),
+            r -> daemon(r, "hot-reload-compiler-" + workerCount.incrementAndGet()),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        ((ThreadPoolExecutor) compileExecutor).allowCoreThreadTimeOut(true);
+
+        dispatcherThread = daemon(this::dispatchLoop, "hot-reload-dispatcher");
+        redefinerThread = daemon(this::redefineLoop, "hot-reload-redefiner");
+        dispatcherThread.start();
+        redefinerThread.start();
+    }
+
+    /**
+     * Hands a set of changed source files to the pipeline without blocking.
+     *
+     * @return {@code false} if the pipeline is saturated; the caller should keep
+     *         the changes and offer them again, merged with any newer ones
+     */
+    public boolean offer(Set<Path> changedFiles) {
+        return offer(changedFiles, System.nanoTime());
+    }
+
+    /**
+     * @param detectedNanos {@link System#nanoTime()} of the first file event in
+     *                      the set, the start of the measured reload latency
+     */
+    public boolean offer(Set<Path> changedFiles, long detectedNanos) {
+        return changeQueue.offer(new ChangeSet(new LinkedHashSet<>(changedFiles), detectedNanos));
+    }
+
+    public HotReloadMetrics metrics() {
+        return metrics;
+    }
+
+    public int changeQueueDepth() {
+        return changeQueue.size();
+    }
+
+    public int redefineQueueDepth() {
+        return redefineQueue.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (dispatcherThread == null) return;
+        dispatcherThread.interrupt();
+        redefinerThread.interrupt();
+        compileExecutor.shutdownNow();
+        dispatcherThread = null;
+    }
+
+    private void dispatchLoop() {
+        if (compiler != null) {
+            indexDependencies();
+        }
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                ChangeSet changes = changeQueue.take();
+                metrics.recordDetected(System.nanoTime() - changes.detectedNanos);
+                PendingReload pending = dispatch(changes);
+                if (pending != null) {
+                    redefineQueue.put(pending);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PendingReload dispatch(ChangeSet changes) {
+        Map<Path, String> targets = new LinkedHashMap<>();
+        Map<String, String> sourceHashes = new HashMap<>();
+        List<Path> classFiles = new ArrayList<>();
+        for (Path changedFile : changes.files) {
+            if (changedFile.toString().endsWith(".class")) {
+                classFiles.add(changedFile);
+                continue;
+            }
+            String className = compiler == null ? null : registry.classNameForSource(changedFile, sourceRoots);
+            if (className == null) {
+                LOG.log(Level.FINE, "[HotReload] No @HotReload class mapped for: {0}", changedFile);
+                continue;
+            }
+            String hash = sourceHash(changedFile);
+            String newest = inFlightHashes.getOrDefault(className, registry.sourceHash(className));
+            if (hash != null && hash.equals(newest)) {
+                LOG.log(Level.FINE, "[HotReload] {0} is unchanged since it was last compiled", changedFile);
+                continue;
+            }
+            targets.put(changedFile, className);
+            if (hash != null) {
+                sourceHashes.put(className, hash);
+            }
+        }
+        Map<Path, String> sources = new LinkedHashMap<>(targets);
+        long readStart = System.nanoTime();
+        Map<String, byte[]> prebuilt = readClassFiles(classFiles, targets);
+        if (!prebuilt.isEmpty()) {
+            metrics.recordCompile(System.nanoTime() - readStart);
+        }
+        if (targets.isEmpty()) return null;
+        inFlightHashes.putAll(sourceHashes);
+
+        LOG.log(Level.INFO, "[HotReload] Detected change in {0} file(s): {1}",
+            new Object[]{targets.size(), fileNames(targets.keySet())});
+
+        List<CompletableFuture<Map<String, byte[]>>> tasks = new ArrayList<>();
+        tasks.add(CompletableFuture.completedFuture(prebuilt));
+        if (!sources.isEmpty()) {
+            indexDependencies();
+            for (Set<Path> group : independentGroups(sources)) {
+                ClassLoader loader = loaderOf(group, sources);
+                tasks.add(CompletableFuture.supplyAsync(() -> compileGroup(group, loader), compileExecutor));
+            }
+        }
+        CompletableFuture<Map<String, byte[]>> compiled = CompletableFuture
+            .allOf(tasks.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> {
+                Map<String, byte[]> merged = new LinkedHashMap<>();
+                tasks.forEach(task -> merged.putAll(task.join()));
+                return merged;
+            });
+        return new PendingReload(targets, compiled, sourceHashes, changes.detectedNanos);
+    }
+
+    /** Hash of a changed source as in {@link HotReloadIndex}, or {@code null} if it cannot be read. */
+    private static String sourceHash(Path sourceFile) {
+        try {
+            return HotReloadIndex.hash(Files.readAllBytes(sourceFile));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Map<String, byte[]> compileGroup(Set<Path> group, ClassLoader loader) {
+        long start = System.nanoTime();
+        try {
+            return compiler.compileAffected(group, className -> registry.sourceOf(className, sourceRoots), loader);
+        } catch (IOException e) {
+            throw new CompilationException(e);
+        } finally {
+            metrics.recordCompile(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Picks the loader whose classpath a group compiles against: the one defining
+     * its classes, or the most specific one if they come from a loader and its children.
+     */
+    private ClassLoader loaderOf(Set<Path> group, Map<Path, String> classNames) {
+        ClassLoader chosen = null;
+        for (Path file : group) {
+            ClassLoader loader = registry.loaderOf(classNames.get(file));
+            if (chosen == null || isAncestor(chosen, loader)) {
+                chosen = loader;
+            }
+        }
+        return chosen;
+    }
+
+    private static boolean isAncestor(ClassLoader ancestor, ClassLoader loader) {
+        for (ClassLoader current = loader; current != null; current = current.getParent()) {
+            if (current.getParent() == ancestor) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Splits changed files by source root so roots compile in parallel, merging
+     * roots whose changed classes depend on each other so each compile sees the
+     * new version of what it uses.
+     */
+    private List<Set<Path>> independentGroups(Map<Path, String> targets) {
+        Map<Path, Set<Path>> filesByRoot = new LinkedHashMap<>();
+        Map<Path, Set<String>> classesByRoot = new HashMap<>();
+        for (Map.Entry<Path, String> target : targets.entrySet()) {
+            Path root = rootOf(target.getKey());
+            filesByRoot.computeIfAbsent(root, r -> new LinkedHashSet<>()).add(target.getKey());
+            classesByRoot.computeIfAbsent(root, r -> new HashSet<>()).add(target.getValue());
+        }
+
+        List<Set<Path>> groups = new ArrayList<>();
+        List<Set<String>> groupClasses = new ArrayList<>();
+        for (Path root : filesByRoot.keySet()) {
+            Set<Path> files = new LinkedHashSet<>(filesByRoot.get(root));
+            Set<String> classes = new HashSet<>(classesByRoot.get(root));
+            for (int i = groups.size() - 1; i >= 0; i--) {
+                if (dependsOn(classes, groupClasses.get(i)) || dependsOn(groupClasses.get(i), classes)) {
+                    files.addAll(groups.remove(i));
+                    classes.addAll(groupClasses.remove(i));
+                }
+            }
+            groups.add(files);
+            groupClasses.add(classes);
+        }
+        return groups;
+    }
+
+    private boolean dependsOn(Set<String> classes, Set<String> others) {
+        HotDependencyGraph graph = compiler.dependencyGraph();
+        for (String className : classes) {
+            for (String dependency : graph.dependenciesOf(className)) {
+                if (others.contains(dependency)) return true;
+            }
+        }
+        return false;
+    }
+
+    private Path rootOf(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        for (Path root : sourceRoots) {
+            if (absolute.startsWith(root)) return root;
+        }
+        return absolute.getParent();
+    }
+
+    private void redefineLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long waitNanos = applyDeferredIfDue();
+                PendingReload next = waitNanos < 0
+                    ? redefineQueue.take()
+                    : redefineQueue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                if (next != null) {
+                    defer(next);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Waits for a batch to compile and adds it to the changes held for the next redefinition. */
+    private void defer(PendingReload pending) throws InterruptedException {
+        Collection<String> targets = pending.targets.values();
+        try {
+            Map<String, byte[]> compiled = pending.compiled.get();
+            for (String className : targets) {
+                if (!compiled.containsKey(className)) {
+                    throw new IOException("Compiled class not found: " + className);
+                }
+            }
+            synchronized (deferredLock) {
+                long now = System.nanoTime();
+                if (deferred == null) {
+                    deferred = new DeferredReload(pending.detectedNanos, now);
+                }
+                DeferredReload group = new DeferredReload(pending.detectedNanos, now);
+                group.add(targets, compiled, pending.sourceHashes);
+                deferred.add(targets, compiled, pending.sourceHashes);
+                deferred.groups.add(group);
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompilationException ? e.getCause().getCause() : e.getCause();
+            metrics.recordFailure();
+            settled(pending.sourceHashes);
+            LOG.log(Level.WARNING, "[HotReload] Reload failed for " + String.join(", ", targets), cause);
+        } catch (IOException e) {
+            metrics.recordFailure();
+            settled(pending.sourceHashes);
+            LOG.log(Level.WARNING, "[HotReload] Reload failed for " + String.join(", ", targets), e);
+        }
+    }
+
+    /**
+     * Forgets the in-flight hashes of a batch that was applied or failed, unless a
+     * newer batch of the class was dispatched since.
+     */
+    private void settled(Map<String, String> sourceHashes) {
+        sourceHashes.forEach(inFlightHashes::remove);
+    }
+
+    /**
+     * Applies the held changes if the scheduler allows it.
+     *
+     * @return nanoseconds until the scheduler should be asked again, or {@code -1}
+     *         if nothing is held back
+     */
+    private long applyDeferredIfDue() {
+        synchronized (deferredLock) {
+            if (deferred == null) return -1;
+            ReloadScheduler.Delay delay = scheduler.delay(deferred.deferredSinceNanos, System.nanoTime());
+            if (delay.nanos > 0) {
+                if (!delay.reason.equals(deferred.reason)) {
+                    deferred.reason = delay.reason;
+                    LOG.log(Level.INFO, "[HotReload] Deferring reload of {0}: {1}",
+                        new Object[]{String.join(", ", deferred.targets), delay.reason});
+                }
+                return delay.nanos;
+            }
+            applyHeld();
+            return -1;
+        }
+    }
+
+    /** Classes whose changes are compiled but held back by the {@link ReloadScheduler}. */
+    public List<String> deferredClasses() {
+        synchronized (deferredLock) {
+            return deferred == null ? List.of() : new ArrayList<>(deferred.targets);
+        }
+    }
+
+    /**
+     * Applies the changes held back by the scheduler now, on the calling thread.
+     *
+     * @return binary names of the classes redefined or defined
+     */
+    public List<String> applyDeferred() {
+        synchronized (deferredLock) {
+            return deferred == null ? List.of() : applyHeld();
+        }
+    }
+
+    /** Applies the held changes; holding the lock keeps batches in order with {@link #applyDeferred()}. */
+    private List<String> applyHeld() {
+        DeferredReload reload = deferred;
+        deferred = null;
+        return apply(reload);
+    }
+
+    /**
+     * Applies held changes together, or batch by batch as they were offered if
+     * they cannot be applied together, so one rejected change keeps only its own
+     * batch from being applied.
+     */
+    private List<String> apply(DeferredReload reload) {
+        try {
+            return redefine(reload);
+        } catch (ReflectiveOperationException | UnmodifiableClassException | RuntimeException | LinkageError e) {
+            if (reload.groups.size() <= 1) {
+                metrics.recordFailure();
+                settled(reload.sourceHashes);
+                LOG.log(Level.WARNING, "[HotReload] Reload failed for " + String.join(", ", reload.targets), e);
+                return List.of();
+            }
+            LOG.log(Level.INFO, "[HotReload] Held changes could not be applied together ({0}), applying {1} "
+                + "batches one at a time", new Object[]{e, reload.groups.size()});
+        }
+        Set<String> applied = new LinkedHashSet<>();
+        for (DeferredReload group : reload.groups) {
+            try {
+                applied.addAll(redefine(group));
+            } catch (ReflectiveOperationException | UnmodifiableClassException | RuntimeException | LinkageError e) {
+                metrics.recordFailure();
+                settled(group.sourceHashes);
+                LOG.log(Level.WARNING, "[HotReload] Reload failed for " + String.join(", ", group.targets), e);
+            }
+        }
+        return new ArrayList<>(applied);
+    }
+
+    private List<String> redefine(DeferredReload reload)
+            throws ReflectiveOperationException, UnmodifiableClassException {
+        Collection<String> targets = reload.targets;
+        long start = System.nanoTime();
+        List<String> applied = reloader.reload(reload.compiled, registry);
+        long end = System.nanoTime();
+        compileAgainst(reload.compiled);
+        scheduler.recordReload(end);
+        metrics.recordRedefine(applied.size(), end - start, end - reload.detectedNanos);
+        if (applied.isEmpty()) {
+            LOG.log(Level.INFO, "[HotReload] No executable changes in {0}, nothing redefined",
+                String.join(", ", targets));
+        } else {
+            LOG.log(Level.INFO, "[HotReload] Successfully reloaded: {0}", String.join(", ", applied));
+            warmer.warmUp(applied, registry).thenAccept(nanos -> {
+                if (nanos > 0) metrics.recordWarmup(nanos);
+            });
+        }
+        reload.sourceHashes.forEach(registry::recordSourceHash);
+        settled(reload.sourceHashes);
+        BytecodeCache cache = registry.bytecodeCache();
+        if (cache != null) {
+            recordApplied(cache, reload);
+        }
+        if (coordinator != null) {
+            coordinator.publish(reload.compiled);
+        }
+        return applied;
+    }
+
+    /** Lets later compiles see {@code classes} as they now run, e.g. after a rollback. */
+    void compileAgainst(Map<String, byte[]> classes) {
+        if (compiler == null) return;
+        try {
+            compiler.recordApplied(classes);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Dependents saved later may compile against the build's version of "
+                + String.join(", ", classes.keySet()), e);
+        }
+    }
+
+    /**
+     * Records the classes of each reloaded host in the bytecode cache, to load
+     * them after a restart. Hosts running a generation keep loading the build's
+     * version, since their callers were compiled against its structure.
+     */
+    private void recordApplied(BytecodeCache cache, DeferredReload reload) {
+        Map<String, Map<String, byte[]>> byHost = new LinkedHashMap<>();
+        reload.compiled.forEach((className, bytecode) -> byHost
+            .computeIfAbsent(HotDependencyGraph.topLevelName(className), h -> new LinkedHashMap<>())
+            .put(className, bytecode));
+        byHost.forEach((host, classes) -> {
+            Class<?> hostClass = registry.find(host);
+            if (hostClass == null) return;
+            if (GenerationDispatch.generation(hostClass) > 0) {
+                cache.forget(host);
+            } else {
+                cache.recordApplied(host, reload.sourceHashes.get(host), classes, hostClass.getClassLoader());
+            }
+        });
+    }
+
+    /**
+     * Reads changed class files whose top-level class is registered, adding
+     * each one to {@code targets}.
+     */
+    private Map<String, byte[]> readClassFiles(List<Path> classFiles, Map<Path, String> targets) {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (Path classFile : classFiles) {
+            try {
+                byte[] bytecode = Files.readAllBytes(classFile);
+                String className = new ClassFileReader(bytecode).className();
+                if (registry.isRegistered(HotDependencyGraph.topLevelName(className))) {
+                    classes.put(className, bytecode);
+                    targets.put(classFile, className);
+                } else {
+                    LOG.log(Level.FINE, "[HotReload] No @HotReload class mapped for: {0}", classFile);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "[HotReload] Cannot read class file " + classFile, e);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Seeds the dependency graph with classes registered since the last call,
+     * so indexing cost follows class loading instead of the project size.
+     */
+    private void indexDependencies() {
+        long start = System.nanoTime();
+        Map<ClassLoader, Map<String, Path>> sourcesByLoader = new LinkedHashMap<>();
+        for (String className : registry.classNames()) {
+            if (indexedClasses.contains(className)) continue;
+            // indexed classes that have not loaded yet are indexed by a later call, once they load
+            Class<?> clazz = registry.findLoaded(className);
+            Path source = registry.sourceOf(className, sourceRoots);
+            // a source missing for a moment, as during an atomic save, is indexed by a later call
+            if (clazz == null || source == null || !Files.isRegularFile(source)) continue;
+            sourcesByLoader.computeIfAbsent(clazz.getClassLoader(), l -> new LinkedHashMap<>()).put(className, source);
+        }
+        if (sourcesByLoader.isEmpty()) return;
+
+        int count = 0;
+        for (Map.Entry<ClassLoader, Map<String, Path>> entry : sourcesByLoader.entrySet()) {
+            ClassLoader loader = entry.getKey();
+            Map<String, Path> sources = entry.getValue();
+            Map<String, byte[]> loaded = new HashMap<>();
+            sources.keySet().forEach(className -> readLoadedBytecode(className, loader, loaded));
+            try {
+                compiler.indexDependencies(loaded, sources.values(), loader);
+                count += loaded.size();
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "[HotReload] Could not index class dependencies together, "
+                    + "indexing " + sources.size() + " source(s) one at a time", e);
+                count += indexOneByOne(sources, loader);
+            }
+            // a source that does not compile gets its dependencies recorded once it is saved and compiled
+            indexedClasses.addAll(sources.keySet());
+        }
+        LOG.log(Level.FINE, "[HotReload] Indexed dependencies of {0} class(es) in {1} ms",
+            new Object[]{count, (System.nanoTime() - start) / 1_000_000});
+    }
+
+    private int indexOneByOne(Map<String, Path> sources, ClassLoader loader) {
+        int count = 0;
+        for (Map.Entry<String, Path> source : sources.entrySet()) {
+            Map<String, byte[]> loaded = new HashMap<>();
+            readLoadedBytecode(source.getKey(), loader, loaded);
+            try {
+                compiler.indexDependencies(loaded, List.of(source.getValue()), loader);
+                count += loaded.size();
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "[HotReload] Could not index dependencies of " + source.getKey(), e);
+            }
+        }
+        return count;
+    }
+
+    private static void readLoadedBytecode(String className, ClassLoader loader, Map<String, byte[]> into) {
+        String resource = className.replace('.', '/') + ".class";
+        try (InputStream in = loader == null
+                ? ClassLoader.getSystemResourceAsStream(resource)
+                : loader.getResourceAsStream(resource)) {
+            if (in == null) return;
+            byte[] bytecode = in.readAllBytes();
+            into.put(className, bytecode);
+            for (String member : new ClassFileReader(bytecode).nestMembers()) {
+                if (!into.containsKey(member)) {
+                    readLoadedBytecode(member, loader, into);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.log(Level.FINE, "[HotReload] Cannot read bytecode of " + className, e);
+        }
+    }
+
+    private static String fileNames(Collection<Path> files) {
+        StringJoiner joiner = new StringJoiner(", ");
+        files.forEach(f -> joiner.add(f.getFileName().toString()));
+        return joiner.toString();
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static final class ChangeSet {
+
+        private final Set<Path> files;
+        private final long detectedNanos;
+
+        private ChangeSet(Set<Path> files, long detectedNanos) {
+            this.files = files;
+            this.detectedNanos = detectedNanos;
+        }
+    }
+
+    private static final class PendingReload {
+
+        private final Map<Path, String> targets;
+        private final CompletableFuture<Map<String, byte[]>> compiled;
+        private final Map<String, String> sourceHashes;
+        private final long detectedNanos;
+
+        private PendingReload(Map<Path, String> targets, CompletableFuture<Map<String, byte[]>> compiled,
+                              Map<String, String> sourceHashes, long detectedNanos) {
+            this.targets = targets;
+            this.compiled = compiled;
+            this.sourceHashes = sourceHashes;
+            this.detectedNanos = detectedNanos;
+        }
+    }
+
+    /** Compiled changes waiting for the scheduler, merged in the order they were offered. */
+    private static final class DeferredReload {
+
+        private final Set<String> targets = new LinkedHashSet<>();
+        private final Map<String, byte[]> compiled = new LinkedHashMap<>();
+        private final Map<String, String> sourceHashes = new HashMap<>();
+        /** The batches merged here, each on its own, to fall back to. */
+        private final List<DeferredReload> groups = new ArrayList<>();
+        private final long detectedNanos;
+        private final long deferredSinceNanos;
+        private String reason = "";
+
+        private DeferredReload(long detectedNanos, long deferredSinceNanos) {
+            this.detectedNanos = detectedNanos;
+            this.deferredSinceNanos = deferredSinceNanos;
+        }
+
+        private void add(Collection<String> targets, Map<String, byte[]> compiled, Map<String, String> sourceHashes) {
+            this.targets.addAll(targets);
+            this.compiled.putAll(compiled);
+            this.sourceHashes.putAll(sourceHashes);
+        }
+    }
+
+    private static final class CompilationException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private CompilationException(IOException cause) {
+            super(cause);
+        }
+    }
+}
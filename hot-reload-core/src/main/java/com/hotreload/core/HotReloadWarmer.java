@@ -0,0 +1,129 @@
+package com.hotreload.core;
+
+import com.hotreload.annotation.Warmup;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Re-warms the JIT after a reload. Redefined methods run interpreted until they
+ * are compiled again, so right after a batch is applied the {@link Warmup}
+ * methods of the reloaded {@code @HotReload} classes and the callbacks
+ * registered for them run on a background thread, one batch after the other.
+ * A failing callback is logged and does not stop the others.
+ */
+public class HotReloadWarmer {
+
+    private static final Logger LOG = Logger.getLogger(HotReloadWarmer.class.getName());
+    private static final HotReloadWarmer SHARED = new HotReloadWarmer();
+
+    private final Map<Class<?>, List<Runnable>> callbacks = new WeakHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    public HotReloadWarmer() {
+        executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "hot-reload-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Warmer used by the engine and fleet subscribers. */
+    public static HotReloadWarmer shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs {@code callback} after every reload of {@code hotReloadClass} or a
+     * class nested in it, in addition to its {@link Warmup} methods.
+     */
+    public synchronized void register(Class<?> hotReloadClass, Runnable callback) {
+        callbacks.computeIfAbsent(hotReloadClass, c -> new ArrayList<>()).add(callback);
+    }
+
+    /**
+     * Warms up the {@code @HotReload} classes of the given reloaded classes.
+     *
+     * @param classNames binary names of reloaded classes, as returned by {@link HotClassReloader#reload(Map, HotClassRegistry)}
+     * @return completes with the warmup time in nanoseconds, {@code 0} if there was nothing to run
+     */
+    public CompletableFuture<Long> warmUp(Collection<String> classNames, HotClassRegistry registry) {
+        Set<Class<?>> hosts = new LinkedHashSet<>();
+        for (String className : classNames) {
+            hosts.addAll(registry.findAll(HotDependencyGraph.topLevelName(className)));
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        for (Class<?> host : hosts) {
+            tasks.addAll(tasks(host));
+        }
+        if (tasks.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            for (Runnable task : tasks) {
+                try {
+                    task.run();
+                } catch (RuntimeException | LinkageError e) {
+                    LOG.log(Level.WARNING, "[HotReload] Warmup callback failed", e);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            LOG.log(Level.INFO, "[HotReload] Warmed up {0} in {1} ms",
+                new Object[]{hostNames(hosts), elapsed / 1_000_000});
+            return elapsed;
+        }, executor);
+    }
+
+    private List<Runnable> tasks(Class<?> host) {
+        List<Runnable> tasks = new ArrayList<>();
+        for (Method method : host.getDeclaredMethods()) {
+            Warmup warmup = method.getAnnotation(Warmup.class);
+            if (warmup == null) continue;
+            if (!Modifier.isStatic(method.getModifiers()) || method.getParameterCount() > 0) {
+                LOG.log(Level.WARNING, "[HotReload] @Warmup method {0}.{1} must be static and take no parameters",
+                    new Object[]{host.getName(), method.getName()});
+                continue;
+            }
+            tasks.add(() -> invoke(method, warmup.iterations()));
+        }
+        synchronized (this) {
+            tasks.addAll(callbacks.getOrDefault(host, List.of()));
+        }
+        return tasks;
+    }
+
+    private static void invoke(Method method, int iterations) {
+        try {
+            method.setAccessible(true);
+            for (int i = 0; i < iterations; i++) {
+                method.invoke(null);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot call " + method, e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Warmup method " + method + " threw", e.getCause());
+        }
+    }
+
+    private static String hostNames(Set<Class<?>> hosts) {
+        List<String> names = new ArrayList<>();
+        hosts.forEach(host -> names.add(host.getName()));
+        return String.join(", ", names);
+    }
+}
@@ -1,72 +1,279 @@
 package com.hotreload.core;
 
-import javax.tools.Diagnostic;
-import javax.tools.DiagnosticCollector;
-import javax.tools.JavaCompiler;
-import javax.tools.JavaFileObject;
-import javax.tools.StandardJavaFileManager;
-import javax.tools.ToolProvider;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public class HotSourceCompiler {
+public class HotSourceCompiler implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(HotSourceCompiler.class.getName());
 
     private final Path outputDir;
-    private final JavaCompiler compiler;
+    private final CompilerBackend backend;
+    private final HotDependencyGraph dependencyGraph = new HotDependencyGraph();
+    /** Classes as last redefined, ahead of the build's class files on every compile classpath. */
+    private volatile Path appliedDir;
+
+    /**
+     * Creates a compiler that keeps all emitted classes in memory and never
+     * writes to the build tool's output directory.
+     */
+    public HotSourceCompiler() {
+        this(null);
+    }
 
+    /**
+     * Creates a compiler that additionally writes every emitted class file
+     * under {@code outputDir}, or keeps them in memory only if it is {@code null}.
+     */
     public HotSourceCompiler(Path outputDir) {
+        this(outputDir, new LocalCompilerBackend());
+    }
+
+    /** Creates a compiler that runs javac through {@code backend}, e.g. in a compile daemon. */
+    HotSourceCompiler(Path outputDir, CompilerBackend backend) {
         this.outputDir = outputDir;
-        this.compiler = ToolProvider.getSystemJavaCompiler();
-        if (this.compiler == null) {
-            throw new IllegalStateException(
-                "Java compiler not available. Make sure you are running on a JDK, not a JRE.");
-        }
+        this.backend = backend;
     }
 
+    /**
+     * Compiles the source file and returns the bytecode of its top-level class.
+     */
     public byte[] compile(Path sourceFile) throws IOException {
-        String classpath = System.getProperty("java.class.path");
+        Map<String, byte[]> classes = compileClasses(sourceFile);
+        String primaryName = primaryClassName(sourceFile, classes);
+        if (primaryName == null) {
+            throw new IOException("Compiled class not found for " + sourceFile + " among " + classes.keySet());
+        }
+        return classes.get(primaryName);
+    }
+
+    /**
+     * Compiles the source file and returns every class it emitted, including
+     * nested, inner and anonymous classes, keyed by binary name.
+     */
+    public Map<String, byte[]> compileClasses(Path sourceFile) throws IOException {
+        return compileClasses(List.of(sourceFile));
+    }
+
+    /**
+     * Compiles all source files in a single javac invocation and returns every
+     * class they emitted, keyed by binary name.
+     */
+    public Map<String, byte[]> compileClasses(Collection<Path> sourceFiles) throws IOException {
+        return compileClasses(sourceFiles, null);
+    }
 
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-        try (StandardJavaFileManager fileManager =
-                 compiler.getStandardFileManager(diagnostics, null, null)) {
+    /**
+     * Compiles all source files against the classpath of {@code loader}, the loader
+     * defining the classes they declare, or {@code java.class.path} if it is {@code null}.
+     */
+    public Map<String, byte[]> compileClasses(Collection<Path> sourceFiles, ClassLoader loader) throws IOException {
+        return compileClasses(sourceFiles, loader, new HashSet<>());
+    }
+
+    private Map<String, byte[]> compileClasses(Collection<Path> sourceFiles, ClassLoader loader,
+                                               Set<String> apiChanges) throws IOException {
+        Map<String, Set<String>> constantUsage = new HashMap<>();
+        CompileDiagnostics diagnostics = new CompileDiagnostics();
+        Map<Path, String> sources = read(sourceFiles);
+        // recorded here rather than where javac runs, which may be the compile daemon's JVM
+        CompileEvent event = new CompileEvent();
+        event.begin();
+        Map<String, byte[]> classes = null;
+        try {
+            classes = backend.compile(sources, classpath(loader), constantUsage, diagnostics);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.sources = sources.keySet().stream().map(Path::toString).collect(Collectors.joining(", "));
+                event.sourceCount = sources.size();
+                event.classCount = classes == null ? 0 : classes.size();
+                event.errorCount = diagnostics.errors;
+                event.warningCount = diagnostics.warnings;
+                event.succeeded = classes != null;
+                event.commit();
+            }
+        }
+        apiChanges.addAll(dependencyGraph.recordCompiled(classes, constantUsage));
 
-            Iterable<? extends JavaFileObject> compilationUnits =
-                fileManager.getJavaFileObjects(sourceFile.toFile());
+        if (outputDir != null) {
+            writeClasses(outputDir, classes);
+        }
+        return classes;
+    }
 
-            List<String> options = List.of(
-                "-classpath", classpath,
-                "-d", outputDir.toAbsolutePath().toString()
-            );
+    /**
+     * Compiles the changed sources together with every known dependent whose
+     * compiled form may be stale: a dependent is only pulled in when the class it
+     * uses changed its non-private API or a constant value, and this repeats until
+     * no further API changes ripple out.
+     *
+     * @param sourceLocator maps a top-level binary name to its source file, or
+     *                      {@code null} if the class is not reloadable
+     */
+    public Map<String, byte[]> compileAffected(Collection<Path> changedFiles,
+                                              Function<String, Path> sourceLocator) throws IOException {
+        return compileAffected(changedFiles, sourceLocator, null);
+    }
 
-            JavaCompiler.CompilationTask task =
-                compiler.getTask(null, fileManager, diagnostics, options, null, compilationUnits);
+    /**
+     * Like {@link #compileAffected(Collection, Function)}, compiling against the
+     * classpath of {@code loader} as in {@link #compileClasses(Collection, ClassLoader)}.
+     */
+    public Map<String, byte[]> compileAffected(Collection<Path> changedFiles, Function<String, Path> sourceLocator,
+                                              ClassLoader loader) throws IOException {
+        Set<Path> toCompile = new LinkedHashSet<>(changedFiles);
+        while (true) {
+            Set<String> apiChanges = new LinkedHashSet<>();
+            Map<String, byte[]> classes = compileClasses(toCompile, loader, apiChanges);
 
-            if (!task.call()) {
-                StringBuilder sb = new StringBuilder("Compilation failed for ").append(sourceFile).append(":\n");
-                for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
-                    if (d.getKind() == Diagnostic.Kind.ERROR) {
-                        sb.append(d).append('\n');
-                    }
+            Set<Path> affected = new LinkedHashSet<>();
+            for (String dependent : dependencyGraph.dependentsOf(apiChanges)) {
+                Path source = sourceLocator.apply(dependent);
+                if (source == null) {
+                    LOG.log(Level.WARNING, "[HotReload] {0} depends on a changed API but is not reloadable",
+                        dependent);
+                } else if (!toCompile.contains(source)) {
+                    affected.add(source);
                 }
-                throw new IOException(sb.toString());
             }
+            if (affected.isEmpty()) {
+                return classes;
+            }
+            LOG.log(Level.INFO, "[HotReload] API change in {0}, also recompiling {1} dependent(s)",
+                new Object[]{apiChanges, affected.size()});
+            toCompile.addAll(affected);
         }
+    }
 
-        String sourceFileName = sourceFile.getFileName().toString();
-        String classFileName = sourceFileName.replace(".java", ".class");
-        return findClassBytes(outputDir, classFileName);
+    /**
+     * Seeds the dependency graph with the currently loaded bytecode of the given
+     * classes and the constant usage of their sources.
+     */
+    public void indexDependencies(Map<String, byte[]> loadedClasses, Collection<Path> sourceFiles)
+            throws IOException {
+        indexDependencies(loadedClasses, sourceFiles, null);
+    }
+
+    /**
+     * Like {@link #indexDependencies(Map, Collection)}, analyzing the sources
+     * against the classpath of {@code loader}.
+     */
+    public void indexDependencies(Map<String, byte[]> loadedClasses, Collection<Path> sourceFiles,
+                                  ClassLoader loader) throws IOException {
+        if (sourceFiles.isEmpty()) {
+            dependencyGraph.record(loadedClasses, Map.of());
+            return;
+        }
+        dependencyGraph.record(loadedClasses,
+            backend.analyzeConstantUsage(read(sourceFiles), classpath(loader)));
+    }
+
+    /**
+     * Makes classes just redefined in the running JVM visible to later compiles in
+     * place of the build's class files, so a dependent saved on its own compiles
+     * against their current constants and members rather than the built ones.
+     * Their API becomes what later compiles are compared with to find dependents.
+     */
+    public synchronized void recordApplied(Map<String, byte[]> classes) throws IOException {
+        dependencyGraph.recordApplied(classes);
+        if (appliedDir == null) {
+            appliedDir = Files.createTempDirectory("hot-reload-applied");
+            appliedDir.toFile().deleteOnExit();
+        }
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            Path classFile = appliedDir.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            // deleted on exit in reverse order of registration, so files before their directories
+            Path registered = appliedDir;
+            for (Path name : appliedDir.relativize(classFile)) {
+                registered = registered.resolve(name);
+                registered.toFile().deleteOnExit();
+            }
+            // a concurrent compile must never read a partly written class file
+            Path temp = Files.createTempFile(classFile.getParent(), classFile.getFileName().toString(), ".tmp");
+            Files.write(temp, entry.getValue());
+            Files.move(temp, classFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private String classpath(ClassLoader loader) {
+        Path applied = appliedDir;
+        String classpath = LoaderClasspath.of(loader);
+        return applied == null ? classpath : applied + File.pathSeparator + classpath;
+    }
+
+    public HotDependencyGraph dependencyGraph() {
+        return dependencyGraph;
+    }
+
+    /** Returns the session the next in-process compile for {@code java.class.path} would use. */
+    HotCompilerSession session() throws IOException {
+        return ((LocalCompilerBackend) backend).session(LoaderClasspath.of(null));
+    }
+
+    /** Closes the warm compiler sessions, or stops the compile daemon, and deletes the applied classes. */
+    @Override
+    public synchronized void close() throws IOException {
+        backend.close();
+        Path applied = appliedDir;
+        appliedDir = null;
+        if (applied != null) {
+            try (Stream<Path> files = Files.walk(applied)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads sources once up front. javac's own file objects cache content by
+     * millisecond timestamp inside a long-lived file manager, which returns stale
+     * sources for saves that land within the same tick.
+     */
+    private static Map<Path, String> read(Collection<Path> sourceFiles) throws IOException {
+        Map<Path, String> sources = new LinkedHashMap<>();
+        for (Path sourceFile : sourceFiles) {
+            sources.put(sourceFile.toAbsolutePath(), Files.readString(sourceFile, StandardCharsets.UTF_8));
+        }
+        return sources;
+    }
+
+    static String primaryClassName(Path sourceFile, Map<String, byte[]> classes) {
+        String simpleName = sourceFile.getFileName().toString().replace(".java", "");
+        for (String name : classes.keySet()) {
+            if (name.equals(simpleName) || name.endsWith("." + simpleName)) {
+                return name;
+            }
+        }
+        return null;
     }
 
-    private static byte[] findClassBytes(Path dir, String classFileName) throws IOException {
-        try (var stream = Files.walk(dir)) {
-            Path classFile = stream
-                .filter(p -> p.getFileName().toString().equals(classFileName))
-                .findFirst()
-                .orElseThrow(() -> new IOException(
-                    "Compiled class not found: " + classFileName + " under " + dir));
-            return Files.readAllBytes(classFile);
+    private static void writeClasses(Path dir, Map<String, byte[]> classes) throws IOException {
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            Path classFile = dir.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, entry.getValue());
         }
     }
 }
@@ -0,0 +1,265 @@
+package com.hotreload.core;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Polling alternative to {@link HotClassFileWatcher} for file systems where
+ * {@code WatchService} misses changes, such as bind-mounted container volumes
+ * and network mounts.
+ *
+ * <p>Keeps a snapshot of modification time, size and content hash of every
+ * watched file under the source roots and rescans it on an interval.
+ * Files are only read when their time or size differs from the snapshot, and a
+ * file whose content hash is unchanged (e.g. touched, or checked out again) is
+ * not reported. Hashes are computed lazily: the first scan only stats files and
+ * the next one hashes them, so only a file touched between those two scans is
+ * reported without a content change.
+ * With more than one scan thread, top-level subdirectories are walked in parallel.
+ */
+public class HotSourcePoller implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger(HotSourcePoller.class.getName());
+
+    private static final long UNKNOWN_HASH = -1;
+
+    private final String[] sourcePaths;
+    private final List<Path> sourceRoots = new ArrayList<>();
+    private final long scanIntervalMs;
+    private final long debounceMs;
+    private final int scanThreads;
+    private final String fileSuffix;
+    private final HotReloadPipeline pipeline;
+    private final Map<Path, FileState> snapshot = new ConcurrentHashMap<>();
+
+    private ExecutorService scanExecutor;
+    private boolean baselined;
+
+    /**
+     * @param scanIntervalMs time between two rescans of the source roots
+     * @param debounceMs     quiet period after the last detected change before the
+     *                       accumulated changes are handed to the pipeline
+     * @param scanThreads    threads walking the source roots during a rescan
+     * @param pipeline       compile and redefine stages, started and stopped by the caller
+     */
+    public HotSourcePoller(
+            String[] sourcePaths,
+            long scanIntervalMs,
+            long debounceMs,
+            int scanThreads,
+            HotReloadPipeline pipeline) {
+        this(sourcePaths, scanIntervalMs, debounceMs, scanThreads, pipeline, ".java");
+    }
+
+    /**
+     * @param fileSuffix suffix of the files to report, {@code .java} or {@code .class}
+     */
+    public HotSourcePoller(
+            String[] sourcePaths,
+            long scanIntervalMs,
+            long debounceMs,
+            int scanThreads,
+            HotReloadPipeline pipeline,
+            String fileSuffix) {
+        this.sourcePaths = sourcePaths.clone();
+        for (String sourcePath : sourcePaths) {
+            sourceRoots.add(Path.of(sourcePath).toAbsolutePath().normalize());
+        }
+        this.scanIntervalMs = scanIntervalMs;
+        this.debounceMs = debounceMs;
+        this.scanThreads = Math.max(1, scanThreads);
+        this.fileSuffix = fileSuffix;
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public void run() {
+        try {
+            scan();
+            LOG.log(Level.INFO, "[HotReload] Polling {0} file(s) every {1} ms in: {2}",
+                new Object[]{snapshot.size(), scanIntervalMs, String.join(", ", sourcePaths)});
+
+            ChangeBatcher batcher = new ChangeBatcher(debounceMs, pipeline.metrics());
+            long nextScanNanos = System.nanoTime() + scanIntervalMs * 1_000_000;
+            while (!Thread.currentThread().isInterrupted()) {
+                long untilScanMs = Math.max(0, (nextScanNanos - System.nanoTime()) / 1_000_000);
+                Thread.sleep(batcher.flush(pipeline, untilScanMs));
+
+                if (System.nanoTime() - nextScanNanos >= 0) {
+                    batcher.addAll(scan());
+                    nextScanNanos = System.nanoTime() + scanIntervalMs * 1_000_000;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (scanExecutor != null) {
+                scanExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Rescans the source roots and updates the snapshot.
+     *
+     * @return files created or whose content changed since the previous scan;
+     *         empty on the first scan, which only records the baseline
+     */
+    Set<Path> scan() throws InterruptedException {
+        long start = System.nanoTime();
+        if (scanThreads > 1 && scanExecutor == null) {
+            AtomicInteger count = new AtomicInteger();
+            scanExecutor = Executors.newFixedThreadPool(scanThreads, r -> {
+                Thread thread = new Thread(r, "hot-reload-scanner-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Set<Path> seen = ConcurrentHashMap.newKeySet();
+        Set<Path> changed = ConcurrentHashMap.newKeySet();
+
+        List<Path> units = new ArrayList<>();
+        for (Path root : sourceRoots) {
+            if (!Files.isDirectory(root)) continue;
+            if (scanExecutor == null) {
+                units.add(root);
+                continue;
+            }
+            // one unit per top-level subdirectory; files directly in the root go with the root itself
+            units.add(root);
+            try (var children = Files.list(root)) {
+                children.filter(Files::isDirectory).forEach(units::add);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "[HotReload] Cannot list source root: " + root, e);
+            }
+        }
+
+        if (scanExecutor == null) {
+            for (Path unit : units) {
+                walk(unit, false, seen, changed);
+            }
+        } else {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (Path unit : units) {
+                boolean shallow = sourceRoots.contains(unit);
+                tasks.add(scanExecutor.submit(() -> walk(unit, shallow, seen, changed)));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    LOG.log(Level.WARNING, "[HotReload] Source scan failed", e.getCause());
+                }
+            }
+        }
+        snapshot.keySet().retainAll(seen);
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        if (elapsedMs > scanIntervalMs) {
+            LOG.log(Level.WARNING, "[HotReload] Scanning {0} file(s) took {1} ms, longer than the {2} ms "
+                + "scan interval; consider more scan threads or a longer interval",
+                new Object[]{seen.size(), elapsedMs, scanIntervalMs});
+        } else {
+            LOG.log(Level.FINE, "[HotReload] Scanned {0} file(s) in {1} ms", new Object[]{seen.size(), elapsedMs});
+        }
+
+        if (!baselined) {
+            baselined = true;
+            return Set.of();
+        }
+        return new LinkedHashSet<>(changed);
+    }
+
+    private void walk(Path dir, boolean shallow, Set<Path> seen, Set<Path> changed) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subdir, BasicFileAttributes attrs) {
+                    return shallow && !subdir.equals(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && file.toString().endsWith(fileSuffix)) {
+                        seen.add(file);
+                        if (update(file, attrs)) {
+                            changed.add(file);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    LOG.log(Level.FINE, "[HotReload] Cannot stat " + file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Cannot scan directory: " + dir, e);
+        }
+    }
+
+    /** Records the current state of a file and returns whether its content changed. */
+    private boolean update(Path file, BasicFileAttributes attrs) {
+        long modified = attrs.lastModifiedTime().toMillis();
+        long size = attrs.size();
+        FileState previous = snapshot.get(file);
+        if (previous == null) {
+            snapshot.put(file, new FileState(modified, size, UNKNOWN_HASH));
+            return baselined;
+        }
+        if (previous.modified == modified && previous.size == size) {
+            if (previous.hash == UNKNOWN_HASH && baselined) {
+                snapshot.put(file, new FileState(modified, size, hash(file)));
+            }
+            return false;
+        }
+
+        long hash = hash(file);
+        snapshot.put(file, new FileState(modified, size, hash));
+        return hash == UNKNOWN_HASH || previous.hash == UNKNOWN_HASH || previous.hash != hash;
+    }
+
+    private static long hash(Path file) {
+        try {
+            CRC32C crc = new CRC32C();
+            crc.update(Files.readAllBytes(file));
+            return crc.getValue();
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "[HotReload] Cannot read " + file, e);
+            return UNKNOWN_HASH;
+        }
+    }
+
+    private static final class FileState {
+
+        private final long modified;
+        private final long size;
+        private final long hash;
+
+        private FileState(long modified, long size, long hash) {
+            this.modified = modified;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+}
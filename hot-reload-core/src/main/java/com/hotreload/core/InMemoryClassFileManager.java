@@ -0,0 +1,49 @@
+package com.hotreload.core;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Captures every class file emitted by javac in memory, keyed by binary name,
+ * instead of writing it to the build tool's output directory.
+ */
+class InMemoryClassFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+    private final Map<String, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+
+    InMemoryClassFileManager(JavaFileManager delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                               JavaFileObject.Kind kind, FileObject sibling) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        outputs.put(className, buffer);
+        return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+            @Override
+            public OutputStream openOutputStream() {
+                return buffer;
+            }
+        };
+    }
+
+    Map<String, byte[]> classes() {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        outputs.forEach((name, buffer) -> result.put(name, buffer.toByteArray()));
+        return result;
+    }
+
+    @Override
+    public void close() {
+        // the delegate is owned by the caller
+    }
+}
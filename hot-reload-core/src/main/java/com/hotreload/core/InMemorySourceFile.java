@@ -0,0 +1,23 @@
+package com.hotreload.core;
+
+import javax.tools.SimpleJavaFileObject;
+import java.nio.file.Path;
+
+/**
+ * Source compilation unit whose content was read once up front, see
+ * {@link HotSourceCompiler}.
+ */
+class InMemorySourceFile extends SimpleJavaFileObject {
+
+    private final String content;
+
+    InMemorySourceFile(Path path, String content) {
+        super(path.toUri(), Kind.SOURCE);
+        this.content = content;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return content;
+    }
+}
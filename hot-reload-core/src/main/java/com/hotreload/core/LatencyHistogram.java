@@ -0,0 +1,65 @@
+package com.hotreload.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets, from
+ * under 1 µs up to about 18 minutes. Percentiles are reported as the upper
+ * bound of the bucket they fall in, so they overestimate by at most 2x.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 31;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public LatencySnapshot snapshot() {
+        long total = count.sum();
+        long max = maxMicros.get();
+        return new LatencySnapshot(
+            total,
+            total == 0 ? 0 : totalMicros.sum() / 1_000.0 / total,
+            percentileMicros(0.50, max) / 1_000.0,
+            percentileMicros(0.95, max) / 1_000.0,
+            percentileMicros(0.99, max) / 1_000.0,
+            max / 1_000.0);
+    }
+
+    private long percentileMicros(double quantile, long max) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,59 @@
+package com.hotreload.core;
+
+import javax.management.openmbean.CompositeData;
+
+/** Point-in-time view of a {@link LatencyHistogram}, in milliseconds. */
+public final class LatencySnapshot {
+
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    public LatencySnapshot(long count, double meanMillis, double p50Millis, double p95Millis,
+                           double p99Millis, double maxMillis) {
+        this.count = count;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    /** Lets JMX clients using an MXBean proxy rebuild the snapshot. */
+    public static LatencySnapshot from(CompositeData data) {
+        return new LatencySnapshot(
+            (Long) data.get("count"),
+            (Double) data.get("meanMillis"),
+            (Double) data.get("p50Millis"),
+            (Double) data.get("p95Millis"),
+            (Double) data.get("p99Millis"),
+            (Double) data.get("maxMillis"));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP95Millis() {
+        return p95Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+}
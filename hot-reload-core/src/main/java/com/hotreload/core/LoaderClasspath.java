@@ -0,0 +1,232 @@
+package com.hotreload.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Compile classpath of the classes a {@link ClassLoader} defines: the entries of
+ * the loader and its parents, parents first. Entries javac cannot read directly,
+ * such as {@code BOOT-INF/classes} and {@code BOOT-INF/lib/*.jar} inside a Spring
+ * Boot fat jar, are extracted once under {@code java.io.tmpdir}. The result is
+ * cached per loader, so only the first compile for a loader pays for resolution.
+ */
+final class LoaderClasspath {
+
+    private static final Logger LOG = Logger.getLogger(LoaderClasspath.class.getName());
+    private static final Path EXTRACT_ROOT = Path.of(System.getProperty("java.io.tmpdir"), "hot-reload-classpath");
+    private static final Map<ClassLoader, Resolved> CACHE = new WeakHashMap<>();
+
+    private LoaderClasspath() {
+    }
+
+    /**
+     * Returns the classpath to compile sources of classes defined by {@code loader},
+     * or {@code java.class.path} for {@code null}.
+     */
+    static String of(ClassLoader loader) {
+        String systemClasspath = System.getProperty("java.class.path", "");
+        if (loader == null || loader == ClassLoader.getSystemClassLoader()) {
+            return systemClasspath;
+        }
+        synchronized (CACHE) {
+            Resolved cached = CACHE.get(loader);
+            if (cached != null && cached.systemClasspath.equals(systemClasspath)) {
+                return cached.classpath;
+            }
+        }
+        long start = System.nanoTime();
+        String classpath = resolve(loader, systemClasspath);
+        synchronized (CACHE) {
+            CACHE.put(loader, new Resolved(systemClasspath, classpath));
+        }
+        LOG.log(Level.FINE, "[HotReload] Resolved compile classpath of {0} in {1} ms: {2}",
+            new Object[]{loader, (System.nanoTime() - start) / 1_000_000, classpath});
+        return classpath;
+    }
+
+    private static String resolve(ClassLoader loader, String systemClasspath) {
+        List<ClassLoader> chain = new ArrayList<>();
+        for (ClassLoader current = loader; current != null; current = current.getParent()) {
+            chain.add(0, current);
+        }
+        Set<String> entries = new LinkedHashSet<>();
+        for (ClassLoader current : chain) {
+            if (current == ClassLoader.getPlatformClassLoader()) continue;
+            if (current == ClassLoader.getSystemClassLoader()) {
+                for (String entry : systemClasspath.split(File.pathSeparator)) {
+                    if (!entry.isEmpty()) entries.add(entry);
+                }
+            } else if (current instanceof URLClassLoader urlLoader) {
+                for (URL url : urlLoader.getURLs()) {
+                    add(url, entries);
+                }
+            } else {
+                addRoots(current, entries);
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    /** Finds the roots of a loader that does not expose its URLs through the resources it serves. */
+    private static void addRoots(ClassLoader loader, Set<String> entries) {
+        try {
+            for (URL root : Collections.list(loader.getResources(""))) {
+                add(root, entries);
+            }
+            String manifest = "META-INF/MANIFEST.MF";
+            Enumeration<URL> manifests = loader.getResources(manifest);
+            while (manifests.hasMoreElements()) {
+                String spec = manifests.nextElement().toString();
+                add(new URL(spec.substring(0, spec.length() - manifest.length())), entries);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Cannot list the class path of " + loader, e);
+        }
+    }
+
+    private static void add(URL url, Set<String> entries) {
+        try {
+            Path entry = toPath(url);
+            if (entry != null) {
+                entries.add(entry.toString());
+            } else {
+                LOG.log(Level.FINE, "[HotReload] Ignoring class path entry {0}", url);
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            LOG.log(Level.WARNING, "[HotReload] Cannot use class path entry " + url, e);
+        }
+    }
+
+    /**
+     * Maps a class path URL to a file javac can read: {@code file:} URLs as they are,
+     * {@code jar:file:/app.jar!/BOOT-INF/lib/dep.jar!/} and Spring Boot 3.2
+     * {@code jar:nested:/app.jar/!BOOT-INF/classes/!/} URLs to an extracted copy.
+     */
+    static Path toPath(URL url) throws IOException, URISyntaxException {
+        String spec = url.toString();
+        if (spec.startsWith("file:")) {
+            return Path.of(url.toURI());
+        }
+        if (!spec.startsWith("jar:")) {
+            return null;
+        }
+        String location = spec.substring("jar:".length());
+        if (location.endsWith("!/")) {
+            location = location.substring(0, location.length() - 2);
+        }
+        String jar;
+        String entry;
+        if (location.startsWith("nested:")) {
+            int separator = location.indexOf("/!");
+            if (separator < 0) return null;
+            jar = "file:" + location.substring("nested:".length(), separator);
+            entry = location.substring(separator + 2);
+        } else {
+            int separator = location.indexOf("!/");
+            jar = separator < 0 ? location : location.substring(0, separator);
+            entry = separator < 0 ? "" : location.substring(separator + 2);
+        }
+        if (!jar.startsWith("file:") || entry.contains("!/")) {
+            return null;
+        }
+        Path jarFile = Path.of(new URI(jar));
+        return entry.isEmpty() ? jarFile : extract(jarFile, entry);
+    }
+
+    /**
+     * Extracts a nested jar or directory of {@code jar} next to the extractions of
+     * earlier runs, keyed by the jar's path, size and modification time.
+     */
+    private static Path extract(Path jar, String entry) throws IOException {
+        String key = jar.toAbsolutePath() + "|" + Files.size(jar) + "|" + Files.getLastModifiedTime(jar).toMillis();
+        Path base = EXTRACT_ROOT.resolve(HotReloadIndex.hash(key.getBytes(StandardCharsets.UTF_8)).substring(0, 16));
+        String prefix = entry.endsWith("/") ? entry : entry + "/";
+        Path target = base.resolve(entry).normalize();
+        if (!target.startsWith(base)) {
+            throw new IOException("Entry " + entry + " of " + jar + " points outside its jar");
+        }
+        if (Files.exists(target)) {
+            return target;
+        }
+        Files.createDirectories(target.getParent());
+
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            ZipEntry file = zip.getEntry(entry);
+            if (file != null && !file.isDirectory()) {
+                Path temp = Files.createTempFile(target.getParent(), "nested", ".tmp");
+                try (InputStream in = zip.getInputStream(file)) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                publish(temp, target);
+                return target;
+            }
+            Path temp = Files.createTempDirectory(target.getParent(), "nested");
+            for (ZipEntry nested : Collections.list(zip.entries())) {
+                if (nested.isDirectory() || !nested.getName().startsWith(prefix)) continue;
+                Path out = temp.resolve(nested.getName().substring(prefix.length())).normalize();
+                if (!out.startsWith(temp)) continue;
+                Files.createDirectories(out.getParent());
+                try (InputStream in = zip.getInputStream(nested)) {
+                    Files.copy(in, out);
+                }
+            }
+            publish(temp, target);
+            return target;
+        }
+    }
+
+    /** Moves a finished extraction into place, keeping the copy of another JVM that got there first. */
+    private static void publish(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            delete(temp);
+        } catch (IOException e) {
+            if (!Files.exists(target)) throw e;
+            delete(temp);
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static final class Resolved {
+
+        private final String systemClasspath;
+        private final String classpath;
+
+        private Resolved(String systemClasspath, String classpath) {
+            this.systemClasspath = systemClasspath;
+            this.classpath = classpath;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.hotreload.core;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Runs javac in this JVM, keeping warm {@link HotCompilerSession}s per classpath.
+ * Sessions are not thread-safe, so concurrent compiles each get their own.
+ */
+final class LocalCompilerBackend implements CompilerBackend {
+
+    private static final int MAX_IDLE_SESSIONS = 8;
+
+    private final JavaCompiler compiler;
+    private final Deque<HotCompilerSession> idleSessions = new ConcurrentLinkedDeque<>();
+
+    LocalCompilerBackend() {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (this.compiler == null) {
+            throw new IllegalStateException(
+                "Java compiler not available. Make sure you are running on a JDK, not a JRE.");
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> compile(Map<Path, String> sources, String classpath,
+                                       Map<String, Set<String>> constantUsage,
+                                       CompileDiagnostics diagnostics) throws IOException {
+        HotCompilerSession session = acquireSession(classpath);
+        try {
+            return session.compile(files(sources), constantUsage, diagnostics);
+        } finally {
+            releaseSession(session);
+        }
+    }
+
+    @Override
+    public Map<String, Set<String>> analyzeConstantUsage(Map<Path, String> sources, String classpath)
+            throws IOException {
+        HotCompilerSession session = acquireSession(classpath);
+        try {
+            return session.analyzeConstantUsage(files(sources));
+        } finally {
+            releaseSession(session);
+        }
+    }
+
+    /** Returns the session the next compile for {@code classpath} would use. */
+    HotCompilerSession session(String classpath) throws IOException {
+        HotCompilerSession session = acquireSession(classpath);
+        releaseSession(session);
+        return session;
+    }
+
+    @Override
+    public void close() throws IOException {
+        HotCompilerSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            session.close();
+        }
+    }
+
+    private HotCompilerSession acquireSession(String classpath) throws IOException {
+        for (HotCompilerSession session : idleSessions) {
+            if (session.classpath().equals(classpath) && idleSessions.removeFirstOccurrence(session)) {
+                return session;
+            }
+        }
+        return new HotCompilerSession(compiler, classpath);
+    }
+
+    /**
+     * Returns a session to the pool, closing the least recently used ones beyond
+     * {@link #MAX_IDLE_SESSIONS}, such as those for an outdated classpath.
+     */
+    private void releaseSession(HotCompilerSession session) throws IOException {
+        idleSessions.offerFirst(session);
+        HotCompilerSession evicted;
+        while (idleSessions.size() > MAX_IDLE_SESSIONS && (evicted = idleSessions.pollLast()) != null) {
+            evicted.close();
+        }
+    }
+
+    private static List<InMemorySourceFile> files(Map<Path, String> sources) {
+        List<InMemorySourceFile> files = new ArrayList<>();
+        sources.forEach((path, content) -> files.add(new InMemorySourceFile(path, content)));
+        return files;
+    }
+}
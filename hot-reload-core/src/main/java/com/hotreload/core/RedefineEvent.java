@@ -0,0 +1,31 @@
+package com.hotreload.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.hotreload.Redefine")
+@Label("Redefine")
+@Category("Hot Reload")
+@Description("A batch of classes redefined with Instrumentation.redefineClasses()")
+@StackTrace(false)
+final class RedefineEvent extends Event {
+
+    @Label("Classes")
+    String classes;
+
+    @Label("Class Count")
+    int classCount;
+
+    @Label("Bytecode Size")
+    @DataAmount
+    long bytecodeSize;
+
+    @Label("Skipped Count")
+    @Description("Classes left out of the batch because their bytecode had no executable change")
+    int skippedCount;
+}
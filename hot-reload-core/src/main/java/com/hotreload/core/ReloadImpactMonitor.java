@@ -0,0 +1,298 @@
+package com.hotreload.core;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.io.Closeable;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures what each redefinition costs the JIT, see {@link ReloadImpactReport}.
+ *
+ * <p>Streams {@code jdk.Compilation}, {@code jdk.ExecuteVMOperation} and
+ * {@code jdk.SafepointStateSynchronization} events from JFR in this JVM, and
+ * remembers the highest tier each method of a tracked class was compiled at.
+ * When a {@link HotClassReloader} reports a redefinition, the compiled methods of
+ * the redefined classes are counted as invalidated, and a report stays open until
+ * they have all been compiled again or the settle window has passed. Methods
+ * compiled before the monitor started are not known to it.
+ *
+ * <p>All compilations are streamed, so the monitor costs a little during
+ * warmup; it is only started when enabled with
+ * {@link HotReloadOptions#withReportReloadImpact}.
+ */
+public final class ReloadImpactMonitor implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ReloadImpactMonitor.class.getName());
+
+    public static final long DEFAULT_SETTLE_MS = 30_000;
+
+    static final int MAX_REPORTS = 32;
+
+    private static final String REDEFINE_OPERATION = "RedefineClasses";
+    private static final int MAX_UNMATCHED_SAFEPOINTS = 64;
+    /** JFR and {@link Instant#now()} are different clocks; a VM operation this close to a redefinition is its own. */
+    private static final Duration MATCH_SLACK = Duration.ofMillis(50);
+
+    private final Predicate<String> tracked;
+    private final long settleNanos;
+    private final CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+    private final RecordingStream stream;
+
+    private final Map<String, Map<String, Integer>> compiledLevels = new HashMap<>();
+    private final List<Pending> pending = new ArrayList<>();
+    private final Map<Long, Pending> bySafepoint = new HashMap<>();
+    private final Map<Long, Long> synchronization = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_UNMATCHED_SAFEPOINTS;
+        }
+    };
+    private final Deque<ReloadImpactReport> reports = new ArrayDeque<>();
+    private long lastReloadId;
+
+    /**
+     * Starts streaming JFR events.
+     *
+     * @param tracked  binary names of the classes whose compiled methods to remember
+     * @param settleMs time after a redefinition to wait for its methods to be compiled again
+     * @throws IllegalStateException if JFR is not available in this JVM
+     */
+    public ReloadImpactMonitor(Predicate<String> tracked, long settleMs) {
+        if (settleMs <= 0) {
+            throw new IllegalArgumentException("settleMs must be positive: " + settleMs);
+        }
+        this.tracked = tracked;
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMs);
+        this.stream = new RecordingStream();
+        stream.enable("jdk.Compilation").withThreshold(Duration.ZERO);
+        stream.enable("jdk.ExecuteVMOperation").withThreshold(Duration.ZERO);
+        stream.enable("jdk.SafepointStateSynchronization").withThreshold(Duration.ZERO);
+        stream.onEvent("jdk.Compilation", this::compiled);
+        stream.onEvent("jdk.ExecuteVMOperation", this::vmOperation);
+        stream.onEvent("jdk.SafepointStateSynchronization", this::safepointSynchronized);
+        stream.onFlush(this::expire);
+        stream.setMaxAge(Duration.ofMinutes(1));
+        stream.startAsync();
+    }
+
+    /**
+     * Opens the report of a redefinition, called right after {@code redefineClasses}
+     * returned. An open report of a class redefined again ends unsettled.
+     *
+     * @return the report, completed once it settles or the settle window passes
+     */
+    synchronized CompletableFuture<ReloadImpactReport> redefined(Collection<String> classNames,
+                                                                 Instant start, Instant end) {
+        for (Pending open : List.copyOf(pending)) {
+            if (!Collections.disjoint(open.classes, classNames)) {
+                finish(open);
+            }
+        }
+        Pending report = new Pending(++lastReloadId, classNames, start, end, jitMillis());
+        for (String className : classNames) {
+            Map<String, Integer> methods = compiledLevels.remove(className);
+            if (methods != null) {
+                report.invalidate(methods);
+            }
+        }
+        pending.add(report);
+        return report.future;
+    }
+
+    /** Recent reports, oldest first. */
+    public synchronized List<ReloadImpactReport> reports() {
+        return List.copyOf(reports);
+    }
+
+    /** Compiled methods currently known for a class; for tests. */
+    synchronized int compiledMethods(String className) {
+        Map<String, Integer> methods = compiledLevels.get(className);
+        return methods == null ? 0 : methods.size();
+    }
+
+    private synchronized void compiled(RecordedEvent event) {
+        RecordedMethod method = event.getValue("method");
+        if (method == null || method.getType() == null) return;
+        String className = method.getType().getName();
+        if (!tracked.test(className)) return;
+
+        boolean succeeded = !event.hasField("succeded") || event.getBoolean("succeded");
+        boolean osr = event.hasField("isOsr") && event.getBoolean("isOsr");
+        String key = className + "." + method.getName() + method.getDescriptor();
+        int level = event.getInt("compileLevel");
+        boolean replacesCode = succeeded && !osr;
+
+        Pending report = openFor(className);
+        if (report != null && event.getEndTime().isBefore(report.start)) {
+            // compiled before the redefinition, but streamed after it
+            if (replacesCode) {
+                report.invalidate(Map.of(key, level));
+            }
+            return;
+        }
+        if (report != null) {
+            report.compileNanos += event.getDuration().toNanos();
+            Integer required = report.remaining.get(key);
+            if (replacesCode && required != null && level >= required) {
+                report.remaining.remove(key);
+                report.lastRecompiled = event.getEndTime();
+            }
+        }
+        if (replacesCode) {
+            compiledLevels.computeIfAbsent(className, c -> new HashMap<>()).merge(key, level, Math::max);
+        }
+        if (report != null) {
+            finishIfSettled(report);
+        }
+    }
+
+    private synchronized void vmOperation(RecordedEvent event) {
+        if (!REDEFINE_OPERATION.equals(event.getString("operation"))) return;
+        Instant at = event.getStartTime();
+        for (Pending report : pending) {
+            if (at.isBefore(report.start.minus(MATCH_SLACK)) || at.isAfter(report.end.plus(MATCH_SLACK))) continue;
+            report.addSafepoint(event.getDuration().toNanos());
+            if (event.hasField("safepointId")) {
+                long safepointId = event.getLong("safepointId");
+                Long synchronizing = synchronization.remove(safepointId);
+                if (synchronizing != null) {
+                    report.addSafepoint(synchronizing);
+                } else {
+                    bySafepoint.put(safepointId, report);
+                }
+            }
+            finishIfSettled(report);
+            return;
+        }
+    }
+
+    private synchronized void safepointSynchronized(RecordedEvent event) {
+        long safepointId = event.getLong("safepointId");
+        long nanos = event.getDuration().toNanos();
+        Pending report = bySafepoint.remove(safepointId);
+        if (report != null) {
+            report.addSafepoint(nanos);
+        } else {
+            synchronization.put(safepointId, nanos);
+        }
+    }
+
+    private synchronized void expire() {
+        long now = System.nanoTime();
+        for (Pending report : List.copyOf(pending)) {
+            if (now - report.endNanos >= settleNanos) {
+                finish(report);
+            }
+        }
+    }
+
+    private Pending openFor(String className) {
+        for (Pending report : pending) {
+            if (report.classes.contains(className)) return report;
+        }
+        return null;
+    }
+
+    private void finishIfSettled(Pending report) {
+        if (report.remaining.isEmpty() && report.safepointNanos >= 0) {
+            finish(report);
+        }
+    }
+
+    private void finish(Pending report) {
+        pending.remove(report);
+        bySafepoint.values().removeIf(r -> r == report);
+
+        boolean settled = report.remaining.isEmpty();
+        long recompileNanos = !settled ? -1
+            : report.lastRecompiled == null ? 0
+            : Math.max(0, Duration.between(report.end, report.lastRecompiled).toNanos());
+        long jitMillis = jitMillis();
+        long jitNanos = report.jitStartMillis < 0 || jitMillis < 0 ? -1
+            : TimeUnit.MILLISECONDS.toNanos(jitMillis - report.jitStartMillis);
+        ReloadImpactReport result = new ReloadImpactReport(report.reloadId, report.classes, report.end,
+            report.invalidated.size(), report.invalidated.size() - report.remaining.size(), report.safepointNanos,
+            recompileNanos, report.compileNanos, jitNanos, settled);
+
+        reports.addLast(result);
+        while (reports.size() > MAX_REPORTS) {
+            reports.removeFirst();
+        }
+        LOG.log(Level.INFO, "[HotReload] JIT impact of {0}: {1}", new Object[]{
+            String.join(", ", report.classes), result});
+        report.future.complete(result);
+    }
+
+    private long jitMillis() {
+        return compilation != null && compilation.isCompilationTimeMonitoringSupported()
+            ? compilation.getTotalCompilationTime() : -1;
+    }
+
+    /** Stops streaming; open reports end with what was observed so far. */
+    @Override
+    public void close() {
+        stream.close();
+        synchronized (this) {
+            for (Pending report : List.copyOf(pending)) {
+                finish(report);
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        private final long reloadId;
+        private final List<String> classes;
+        private final Instant start;
+        private final Instant end;
+        private final long endNanos = System.nanoTime();
+        private final long jitStartMillis;
+        private final Set<String> invalidated = new HashSet<>();
+        /** Invalidated methods not compiled again yet, with the tier they had reached. */
+        private final Map<String, Integer> remaining = new HashMap<>();
+        private final CompletableFuture<ReloadImpactReport> future = new CompletableFuture<>();
+        private long safepointNanos = -1;
+        private long compileNanos;
+        private Instant lastRecompiled;
+
+        private Pending(long reloadId, Collection<String> classes, Instant start, Instant end, long jitStartMillis) {
+            this.reloadId = reloadId;
+            this.classes = List.copyOf(classes);
+            this.start = start;
+            this.end = end;
+            this.jitStartMillis = jitStartMillis;
+        }
+
+        private void invalidate(Map<String, Integer> methods) {
+            methods.forEach((method, level) -> {
+                invalidated.add(method);
+                remaining.merge(method, level, Math::max);
+            });
+        }
+
+        private void addSafepoint(long nanos) {
+            safepointNanos = Math.max(0, safepointNanos) + nanos;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.hotreload.core;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What one redefinition cost the JIT, as observed by a {@link ReloadImpactMonitor}:
+ * compiled methods of the redefined classes that were thrown away, the pause of
+ * the redefinition, and how long the invalidated methods took to be compiled
+ * again at the tier they had reached before.
+ */
+public final class ReloadImpactReport {
+
+    private final long reloadId;
+    private final List<String> classes;
+    private final Instant redefinedAt;
+    private final int invalidatedMethods;
+    private final int recompiledMethods;
+    private final long safepointNanos;
+    private final long recompileNanos;
+    private final long compileNanos;
+    private final long jitNanos;
+    private final boolean settled;
+
+    ReloadImpactReport(long reloadId, List<String> classes, Instant redefinedAt, int invalidatedMethods,
+                       int recompiledMethods, long safepointNanos, long recompileNanos, long compileNanos,
+                       long jitNanos, boolean settled) {
+        this.reloadId = reloadId;
+        this.classes = List.copyOf(classes);
+        this.redefinedAt = redefinedAt;
+        this.invalidatedMethods = invalidatedMethods;
+        this.recompiledMethods = recompiledMethods;
+        this.safepointNanos = safepointNanos;
+        this.recompileNanos = recompileNanos;
+        this.compileNanos = compileNanos;
+        this.jitNanos = jitNanos;
+        this.settled = settled;
+    }
+
+    public long reloadId() {
+        return reloadId;
+    }
+
+    /** Classes redefined together in one {@code redefineClasses} call. */
+    public List<String> classes() {
+        return classes;
+    }
+
+    public Instant redefinedAt() {
+        return redefinedAt;
+    }
+
+    /**
+     * Compiled methods of the redefined classes discarded by the redefinition.
+     * Code of other classes that inlined them is deoptimized too but not counted.
+     */
+    public int invalidatedMethods() {
+        return invalidatedMethods;
+    }
+
+    /** Invalidated methods compiled again, at their previous tier or higher, within the settle window. */
+    public int recompiledMethods() {
+        return recompiledMethods;
+    }
+
+    /**
+     * Time to bring all threads to the safepoint plus the redefinition itself,
+     * or {@code -1} if JFR did not report it.
+     */
+    public long safepointNanos() {
+        return safepointNanos;
+    }
+
+    /**
+     * Time from the end of the redefinition until the last invalidated method was
+     * compiled again, or {@code -1} if some were not within the settle window.
+     */
+    public long recompileNanos() {
+        return recompileNanos;
+    }
+
+    /** Time the JIT spent compiling methods of the redefined classes after the redefinition. */
+    public long compileNanos() {
+        return compileNanos;
+    }
+
+    /**
+     * Time the JIT spent compiling anything while the report was open, from the
+     * {@code CompilationMXBean}, or {@code -1} if the JVM does not measure it.
+     */
+    public long jitNanos() {
+        return jitNanos;
+    }
+
+    /** Whether every invalidated method was compiled again before the settle window ended. */
+    public boolean settled() {
+        return settled;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder()
+            .append("reload ").append(reloadId).append(" (").append(classes.size()).append(" class(es)): ")
+            .append(invalidatedMethods).append(" compiled method(s) invalidated, safepoint ")
+            .append(safepointNanos < 0 ? "unknown" : safepointNanos / 1_000 + " µs").append(", ")
+            .append(recompiledMethods).append('/').append(invalidatedMethods).append(" recompiled");
+        if (recompileNanos >= 0) {
+            text.append(" after ").append(recompileNanos / 1_000_000).append(" ms");
+        }
+        text.append(", ").append(compileNanos / 1_000_000).append(" ms compiling them");
+        if (jitNanos >= 0) {
+            text.append(", ").append(jitNanos / 1_000_000).append(" ms JIT time overall");
+        }
+        return text.toString();
+    }
+}
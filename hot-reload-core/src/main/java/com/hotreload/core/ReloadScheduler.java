@@ -0,0 +1,122 @@
+package com.hotreload.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides when the redefine stage of a {@link HotReloadPipeline} may apply the
+ * changes it holds. Every redefinition stops the JVM at a safepoint, so instead
+ * of applying each batch as soon as it compiled, changes can be held back while:
+ *
+ * <ul>
+ *   <li>{@code maxReloadsPerMinute} redefinitions were already applied in the last minute,</li>
+ *   <li>less than {@code quietWindowMs} passed since the last redefinition, or</li>
+ *   <li>the load signal reports the application as busy, for at most {@code maxDeferMs}.</li>
+ * </ul>
+ *
+ * Batches held back are merged and applied together once the policies allow it,
+ * or one at a time if they cannot be applied together.
+ * A {@code 0} limit disables the respective policy.
+ */
+public final class ReloadScheduler {
+
+    private static final Logger LOG = Logger.getLogger(ReloadScheduler.class.getName());
+
+    /** How often a busy load signal is asked again. */
+    static final long BUSY_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final int maxReloadsPerMinute;
+    private final long quietWindowNanos;
+    private final BooleanSupplier loadSignal;
+    private final long maxDeferNanos;
+    private final Deque<Long> recentReloads = new ArrayDeque<>();
+    private long lastReloadNanos;
+    private boolean reloaded;
+
+    /**
+     * @param loadSignal returns {@code true} while the application is too busy
+     *                   for a redefinition, or {@code null} to ignore load
+     */
+    public ReloadScheduler(int maxReloadsPerMinute, long quietWindowMs, BooleanSupplier loadSignal, long maxDeferMs) {
+        if (maxReloadsPerMinute < 0 || quietWindowMs < 0 || maxDeferMs < 0) {
+            throw new IllegalArgumentException("scheduler limits must not be negative");
+        }
+        this.maxReloadsPerMinute = maxReloadsPerMinute;
+        this.quietWindowNanos = TimeUnit.MILLISECONDS.toNanos(quietWindowMs);
+        this.loadSignal = loadSignal;
+        this.maxDeferNanos = TimeUnit.MILLISECONDS.toNanos(maxDeferMs);
+    }
+
+    static ReloadScheduler from(HotReloadOptions options) {
+        return new ReloadScheduler(options.maxReloadsPerMinute(), options.quietWindowMs(), options.loadSignal(),
+            options.maxDeferMs());
+    }
+
+    /**
+     * How long changes held since {@code deferredSinceNanos} have to wait at
+     * {@code nowNanos}, both from {@link System#nanoTime()}.
+     */
+    synchronized Delay delay(long deferredSinceNanos, long nowNanos) {
+        if (quietWindowNanos > 0 && reloaded && nowNanos - lastReloadNanos < quietWindowNanos) {
+            return new Delay(lastReloadNanos + quietWindowNanos - nowNanos, "quiet window");
+        }
+        if (maxReloadsPerMinute > 0) {
+            while (!recentReloads.isEmpty() && nowNanos - recentReloads.peekFirst() >= MINUTE_NANOS) {
+                recentReloads.removeFirst();
+            }
+            if (recentReloads.size() >= maxReloadsPerMinute) {
+                return new Delay(recentReloads.peekFirst() + MINUTE_NANOS - nowNanos,
+                    maxReloadsPerMinute + " reload(s) per minute reached");
+            }
+        }
+        if (loadSignal != null && isBusy()) {
+            long deferred = nowNanos - deferredSinceNanos;
+            if (maxDeferNanos == 0) {
+                return new Delay(BUSY_RECHECK_NANOS, "application busy");
+            }
+            if (deferred < maxDeferNanos) {
+                return new Delay(Math.min(BUSY_RECHECK_NANOS, maxDeferNanos - deferred), "application busy");
+            }
+        }
+        return Delay.NONE;
+    }
+
+    /** Counts a redefinition applied at {@code nowNanos} against the limits. */
+    synchronized void recordReload(long nowNanos) {
+        recentReloads.addLast(nowNanos);
+        if (recentReloads.size() > Math.max(1, maxReloadsPerMinute)) {
+            recentReloads.removeFirst();
+        }
+        lastReloadNanos = nowNanos;
+        reloaded = true;
+    }
+
+    private boolean isBusy() {
+        try {
+            return loadSignal.getAsBoolean();
+        } catch (RuntimeException e) {
+            LOG.log(Level.FINE, "[HotReload] Load signal failed, treating the application as idle", e);
+            return false;
+        }
+    }
+
+    /** Time to wait before applying, and why. */
+    static final class Delay {
+
+        static final Delay NONE = new Delay(0, "");
+
+        final long nanos;
+        final String reason;
+
+        Delay(long nanos, String reason) {
+            this.nanos = Math.max(0, nanos);
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.hotreload.core;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Directories registered with a {@link WatchService} for a {@link HotClassFileWatcher}.
+ *
+ * <p>The snapshot used to recover from an {@code OVERFLOW} is one timestamp per
+ * directory: the newest modification time of its watched files seen so far. A
+ * rescan reports the files of a directory at least that new, so memory grows with
+ * the number of directories rather than files. Files restored with an older
+ * modification time while events were lost are not found; reporting a file
+ * twice is harmless, as the pipeline skips sources whose content it already
+ * compiled. Used by a single intake thread.
+ */
+final class WatchedTree {
+
+    private static final Logger LOG = Logger.getLogger(WatchedTree.class.getName());
+
+    private final WatchService watchService;
+    private final String fileSuffix;
+    private final Map<WatchKey, Dir> byKey = new HashMap<>();
+    private final Map<Path, Dir> byPath = new HashMap<>();
+    private boolean limitReported;
+
+    WatchedTree(WatchService watchService, String fileSuffix) {
+        this.watchService = watchService;
+        this.fileSuffix = fileSuffix;
+    }
+
+    /**
+     * Watches {@code root} and every directory below it that is not watched yet.
+     *
+     * @param report whether to return the watched files found, for directories
+     *               created or moved in after the watcher started
+     * @return the watched files in newly registered directories if {@code report}, else empty
+     */
+    Set<Path> register(Path root, boolean report) {
+        Set<Path> found = new LinkedHashSet<>();
+        Set<Path> registered = new HashSet<>();
+        if (!Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) return found;
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (byPath.containsKey(dir)) {
+                        // already watched, e.g. created twice; its files were seen when it was registered
+                        return dir.equals(root) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (!watch(dir)) return FileVisitResult.SKIP_SUBTREE;
+                    registered.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && file.toString().endsWith(fileSuffix)
+                            && registered.contains(file.getParent())) {
+                        byPath.get(file.getParent()).seen(attrs.lastModifiedTime().toMillis());
+                        if (report) found.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // deleted while walking, or unreadable
+                    LOG.log(Level.FINE, "[HotReload] Cannot read " + file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Cannot watch directory: " + root, e);
+        }
+        return found;
+    }
+
+    private boolean watch(Path dir) {
+        try {
+            WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            Dir watched = new Dir(dir, key);
+            byKey.put(key, watched);
+            byPath.put(dir, watched);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            if (!limitReported) {
+                limitReported = true;
+                LOG.log(Level.WARNING, "[HotReload] Cannot watch directory " + dir + " after watching "
+                    + byPath.size() + " directories; changes below it are missed. On Linux, raise "
+                    + "fs.inotify.max_user_watches or use watchMode = POLLING", e);
+            } else {
+                LOG.log(Level.FINE, "[HotReload] Cannot watch directory: " + dir, e);
+            }
+            return false;
+        }
+    }
+
+    /** Directory of a key, or {@code null} if it is no longer watched. */
+    Path dirOf(WatchKey key) {
+        Dir dir = byKey.get(key);
+        return dir == null ? null : dir.path;
+    }
+
+    boolean isWatched(Path dir) {
+        return byPath.containsKey(dir);
+    }
+
+    int size() {
+        return byPath.size();
+    }
+
+    /** Records an event for a watched file, keeping its directory's snapshot current. */
+    void touched(Path file) {
+        Dir dir = byPath.get(file.getParent());
+        if (dir == null) return;
+        try {
+            dir.seen(Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException e) {
+            // gone again, nothing to remember
+        }
+    }
+
+    /** Stops watching {@code root} and every directory below it, after it was deleted or moved away. */
+    void unregister(Path root) {
+        for (Iterator<Dir> it = byPath.values().iterator(); it.hasNext(); ) {
+            Dir dir = it.next();
+            if (dir.path.startsWith(root)) {
+                it.remove();
+                byKey.remove(dir.key);
+                dir.key.cancel();
+            }
+        }
+    }
+
+    /** Forgets a key the watch service invalidated, together with the directories below it. */
+    void invalidated(WatchKey key) {
+        Dir dir = byKey.remove(key);
+        if (dir != null) {
+            unregister(dir.path);
+        }
+    }
+
+    /**
+     * Re-checks a directory whose events were lost: its files modified since the
+     * newest one seen before, and subdirectories not watched yet, which are
+     * registered and reported in full.
+     */
+    Set<Path> rescan(Path path) {
+        Set<Path> changed = new LinkedHashSet<>();
+        Dir dir = byPath.get(path);
+        if (dir == null) return changed;
+        long since = dir.newestModified;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (attrs.isDirectory()) {
+                    if (!byPath.containsKey(entry)) {
+                        changed.addAll(register(entry, true));
+                    }
+                } else if (attrs.isRegularFile() && entry.toString().endsWith(fileSuffix)) {
+                    long modified = attrs.lastModifiedTime().toMillis();
+                    // equal times count as changed: a coarse clock can give two writes the same time
+                    if (modified >= since) {
+                        changed.add(entry);
+                    }
+                    dir.seen(modified);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            unregister(path);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "[HotReload] Cannot rescan directory: " + path, e);
+        }
+        return changed;
+    }
+
+    private static final class Dir {
+
+        private final Path path;
+        private final WatchKey key;
+        private long newestModified = Long.MIN_VALUE;
+
+        private Dir(Path path, WatchKey key) {
+            this.path = path;
+            this.key = key;
+        }
+
+        private void seen(long modified) {
+            newestModified = Math.max(newestModified, modified);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.hotreload.processor;
+
+import com.hotreload.core.HotReloadIndex;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the {@link HotReloadIndex} of the {@code @HotReload} classes in a
+ * compilation into the class output. Picked up from the class path by javac
+ * through {@code META-INF/services}; entries of an existing index are kept
+ * unless their class or source file was compiled again or their source file
+ * is gone, so incremental builds keep a complete index and drop classes that
+ * are no longer annotated. Runs on every compilation, with or without
+ * {@code @HotReload} classes, for that reason.
+ */
+@SupportedAnnotationTypes("*")
+public class HotReloadIndexProcessor extends AbstractProcessor {
+
+    private static final String HOT_RELOAD = "com.hotreload.annotation.HotReload";
+
+    private final Map<String, HotReloadIndex.Entry> entries = new LinkedHashMap<>();
+    private final Set<String> compiledClasses = new HashSet<>();
+    private final Set<Path> compiledSources = new HashSet<>();
+    private Trees trees;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        try {
+            trees = Trees.instance(processingEnv);
+        } catch (IllegalArgumentException e) {
+            // not javac: classes are indexed without their source files
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element root : roundEnv.getRootElements()) {
+            if (root instanceof TypeElement type) {
+                compiledClasses.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+                Path source = sourceFile(type);
+                if (source != null) compiledSources.add(source);
+            }
+        }
+        TypeElement hotReload = processingEnv.getElementUtils().getTypeElement(HOT_RELOAD);
+        if (hotReload != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(hotReload)) {
+                if (element instanceof TypeElement type && type.getNestingKind() == NestingKind.TOP_LEVEL) {
+                    String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+                    entries.put(name, entry(name, type));
+                }
+            }
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    /** Source file a type was compiled from, or {@code null} if not a local file or not javac. */
+    private Path sourceFile(TypeElement type) {
+        TreePath path = trees == null ? null : trees.getPath(type);
+        if (path == null) return null;
+        URI uri = path.getCompilationUnit().getSourceFile().toUri();
+        return "file".equals(uri.getScheme()) ? Path.of(uri).toAbsolutePath().normalize() : null;
+    }
+
+    private HotReloadIndex.Entry entry(String name, TypeElement type) {
+        Path source = sourceFile(type);
+        if (source == null) {
+            return new HotReloadIndex.Entry(name, null, null);
+        }
+        try {
+            return new HotReloadIndex.Entry(name, source, HotReloadIndex.hash(Files.readAllBytes(source)));
+        } catch (IOException e) {
+            return new HotReloadIndex.Entry(name, source, null);
+        }
+    }
+
+    private void writeIndex() {
+        Map<String, HotReloadIndex.Entry> merged = new LinkedHashMap<>();
+        boolean dropped = false;
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                HotReloadIndex.RESOURCE);
+            try (BufferedReader in = new BufferedReader(existing.openReader(true))) {
+                for (HotReloadIndex.Entry entry : HotReloadIndex.read(in)) {
+                    // compiled again: still indexed only if this round found it annotated
+                    boolean recompiled = compiledClasses.contains(entry.className())
+                        || entry.sourceFile() != null && compiledSources.contains(entry.sourceFile());
+                    if (!recompiled && (entry.sourceFile() == null || Files.exists(entry.sourceFile()))) {
+                        merged.put(entry.className(), entry);
+                    } else {
+                        dropped = true;
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // no index from an earlier build
+        }
+        merged.putAll(entries);
+        if (entries.isEmpty() && !dropped) return;
+
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                HotReloadIndex.RESOURCE);
+            try (Writer out = index.openWriter()) {
+                HotReloadIndex.write(out, merged.values());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                "Cannot write " + HotReloadIndex.RESOURCE + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.hotreload.core;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BytecodeCacheTest {
+
+    static Instrumentation instrumentation;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void installAgent() {
+        instrumentation = ByteBuddyAgent.install();
+    }
+
+    @Test
+    void compile_withSameSourcesAgain_skipsJavac_evenAfterRestart() throws Exception {
+        Path sourceFile = writeSource("Cached", "v1");
+        AtomicInteger compiles = new AtomicInteger();
+
+        HotSourceCompiler compiler = cachingCompiler(compiles);
+        Map<String, byte[]> first = compiler.compileClasses(List.of(sourceFile));
+        Map<String, byte[]> second = compiler.compileClasses(List.of(sourceFile));
+        Map<String, byte[]> afterRestart = cachingCompiler(compiles).compileClasses(List.of(sourceFile));
+
+        assertEquals(1, compiles.get());
+        assertEquals(first.keySet(), second.keySet());
+        assertArrayEquals(first.get("com.cachesubject.Cached"), afterRestart.get("com.cachesubject.Cached"));
+
+        writeSource("Cached", "v2");
+        compiler.compileClasses(List.of(sourceFile));
+        assertEquals(2, compiles.get(), "changed content must be compiled");
+    }
+
+    @Test
+    void compile_isRepeated_whenAClassFileItReadFromAClasspathDirectoryChanged() throws Exception {
+        Path depDir = tempDir.resolve("deps");
+        Path depSource = tempDir.resolve("depsrc/com/cachesubject/Dep.java");
+        Files.createDirectories(depSource.getParent());
+        Files.writeString(depSource, dep("a"));
+        new HotSourceCompiler(depDir).compileClasses(List.of(depSource));
+        Path sourceFile = tempDir.resolve("src/com/cachesubject/User.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, """
+            package com.cachesubject;
+            public class User {
+                public static String name() { return Dep.NAME; }
+            }
+            """);
+        AtomicInteger compiles = new AtomicInteger();
+
+        try (URLClassLoader loader = loader(depDir)) {
+            HotSourceCompiler compiler = cachingCompiler(compiles);
+            compiler.compileClasses(List.of(sourceFile), loader);
+            compiler.compileClasses(List.of(sourceFile), loader);
+            assertEquals(1, compiles.get());
+
+            // the constant is inlined, so User only depends on Dep through its constant usage
+            Files.writeString(depSource, dep("b"));
+            new HotSourceCompiler(depDir).compileClasses(List.of(depSource));
+            compiler.compileClasses(List.of(sourceFile), loader);
+            assertEquals(2, compiles.get(), "a changed dependency must be compiled against");
+        }
+    }
+
+    @Test
+    void prune_dropsLeastRecentlyUsedCompilesAndTheirClassFiles() throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        BytecodeCache cache = new BytecodeCache(cacheDir, 2);
+        Map<String, byte[]> first = new HotSourceCompiler().compileClasses(List.of(writeSource("First", "v1")));
+        Map<String, byte[]> second = new HotSourceCompiler().compileClasses(List.of(writeSource("Second", "v1")));
+        Map<String, byte[]> third = new HotSourceCompiler().compileClasses(List.of(writeSource("Third", "v1")));
+        cache.storeCompile("first", "", first, Map.of());
+        cache.storeCompile("second", "", second, Map.of());
+        cache.storeCompile("third", "", third, Map.of());
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(cacheDir.resolve("compiles/first"), FileTime.fromMillis(now - 3_600_000));
+        Files.setLastModifiedTime(cacheDir.resolve("compiles/second"), FileTime.fromMillis(now - 2_400_000));
+        Files.setLastModifiedTime(cacheDir.resolve("compiles/third"), FileTime.fromMillis(now - 1_200_000));
+        assertNotNull(cache.findCompile("first", "", new HashMap<>()), "a hit counts as a use");
+
+        cache.prune();
+
+        assertNotNull(cache.findCompile("first", "", new HashMap<>()));
+        assertNull(cache.findCompile("second", "", new HashMap<>()));
+        assertNotNull(cache.findCompile("third", "", new HashMap<>()));
+        try (Stream<Path> objects = Files.walk(cacheDir.resolve("objects"))) {
+            assertEquals(first.size() + third.size(), objects.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void loading_afterRestart_definesLastAppliedVersion_untilTheBuildChanges() throws Exception {
+        Path buildDir = tempDir.resolve("build");
+        Path sourceFile = writeSource("Patched", "v1");
+        new HotSourceCompiler(buildDir).compileClasses(List.of(sourceFile));
+        writeSource("Patched", "v2");
+        Map<String, byte[]> reloaded = new HotSourceCompiler().compileClasses(List.of(sourceFile));
+
+        // what the pipeline records after a reload in the previous run
+        Path cacheDir = tempDir.resolve("cache");
+        try (URLClassLoader previousRun = loader(buildDir)) {
+            new BytecodeCache(cacheDir).recordApplied("com.cachesubject.Patched", "source-hash", reloaded, previousRun);
+        }
+
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.useBytecodeCache(new BytecodeCache(cacheDir));
+        ClassFileTransformer transformer = new HotClassRegistryTransformer(registry);
+        instrumentation.addTransformer(transformer, false);
+        try {
+            Class<?> patched = loader(buildDir).loadClass("com.cachesubject.Patched");
+            assertEquals("v2", patched.getMethod("value").invoke(null));
+            assertEquals("v2", patched.getClassLoader().loadClass("com.cachesubject.Patched$Nested")
+                .getMethod("value").invoke(null));
+            assertEquals("source-hash", registry.sourceHash("com.cachesubject.Patched"));
+
+            writeSource("Patched", "v3");
+            new HotSourceCompiler(buildDir).compileClasses(List.of(sourceFile));
+            Class<?> rebuilt = loader(buildDir).loadClass("com.cachesubject.Patched");
+            assertEquals("v3", rebuilt.getMethod("value").invoke(null), "a rebuild wins over the cache");
+        } finally {
+            instrumentation.removeTransformer(transformer);
+        }
+    }
+
+    private HotSourceCompiler cachingCompiler(AtomicInteger compiles) {
+        CompilerBackend local = new LocalCompilerBackend();
+        CompilerBackend counting = new CompilerBackend() {
+            @Override
+            public Map<String, byte[]> compile(Map<Path, String> sources, String classpath,
+                                               Map<String, Set<String>> constantUsage,
+                                               CompileDiagnostics diagnostics) throws IOException {
+                compiles.incrementAndGet();
+                return local.compile(sources, classpath, constantUsage, diagnostics);
+            }
+
+            @Override
+            public Map<String, Set<String>> analyzeConstantUsage(Map<Path, String> sources, String classpath)
+                    throws IOException {
+                return local.analyzeConstantUsage(sources, classpath);
+            }
+
+            @Override
+            public void close() throws IOException {
+                local.close();
+            }
+        };
+        BytecodeCache cache = new BytecodeCache(tempDir.resolve("cache"));
+        return new HotSourceCompiler(null, new CachingCompilerBackend(counting, cache, "test"));
+    }
+
+    private Path writeSource(String className, String version) throws IOException {
+        Path sourceFile = tempDir.resolve("src/com/cachesubject/" + className + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        return Files.writeString(sourceFile, """
+            package com.cachesubject;
+            @com.hotreload.annotation.HotReload
+            public class %s {
+                public static String value() { return "%s"; }
+                public static class Nested {
+                    public static String value() { return "%s"; }
+                }
+            }
+            """.formatted(className, version, version));
+    }
+
+    private static String dep(String name) {
+        return """
+            package com.cachesubject;
+            public class Dep {
+                public static final String NAME = "%s";
+            }
+            """.formatted(name);
+    }
+
+    private URLClassLoader loader(Path buildDir) throws IOException {
+        return new URLClassLoader(new URL[]{buildDir.toUri().toURL()}, getClass().getClassLoader());
+    }
+}
@@ -0,0 +1,78 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BytecodeFingerprintTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final HotSourceCompiler compiler = new HotSourceCompiler();
+
+    @Test
+    void sameAs_ignoresCommentsAndFormatting() throws Exception {
+        BytecodeFingerprint before = fingerprint("""
+            package com.hotreload.fingerprint;
+            public class Subject {
+                public String greet(String name) { return "Hello " + name; }
+                public Runnable task() { return () -> System.out.println("run"); }
+            }
+            """);
+        BytecodeFingerprint after = fingerprint("""
+            package com.hotreload.fingerprint;
+
+            /** Now with comments. */
+            public class Subject {
+
+                // greets someone
+                public String greet(String name) {
+                    return "Hello " + name;
+                }
+
+                public Runnable task() {
+                    return () -> System.out.println("run");
+                }
+            }
+            """);
+
+        assertTrue(after.sameAs(before));
+        assertEquals(Set.of(), after.changedMethods(before));
+    }
+
+    @Test
+    void changedMethods_reportsOnlyMethodsWithNewCode() throws Exception {
+        BytecodeFingerprint before = fingerprint("""
+            package com.hotreload.fingerprint;
+            public class Subject {
+                public String greet() { return "Hello"; }
+                public int count() { return 1; }
+            }
+            """);
+        BytecodeFingerprint after = fingerprint("""
+            package com.hotreload.fingerprint;
+            public class Subject {
+                public String greet() { return "Hi"; }
+                public int count() { return 1; }
+                public void added() {}
+            }
+            """);
+
+        assertFalse(after.sameAs(before));
+        assertEquals(Set.of("greet()Ljava/lang/String;", "added()V"), after.changedMethods(before));
+    }
+
+    private BytecodeFingerprint fingerprint(String source) throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/fingerprint");
+        Files.createDirectories(packageDir);
+        Path sourceFile = packageDir.resolve("Subject.java");
+        Files.writeString(sourceFile, source);
+        return BytecodeFingerprint.of(compiler.compile(sourceFile));
+    }
+}
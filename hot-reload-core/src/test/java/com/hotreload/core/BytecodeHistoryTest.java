@@ -0,0 +1,46 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BytecodeHistoryTest {
+
+    @Test
+    void byteLimit_evictsOldestIntermediateVersionsAcrossClasses() {
+        BytecodeHistory history = new BytecodeHistory(10, 500);
+        history.recordOriginal(String.class, new byte[100]);
+        history.recordApplied(String.class, new byte[100]);
+        history.recordOriginal(Integer.class, new byte[100]);
+        history.recordApplied(Integer.class, new byte[100]);
+        assertEquals(400, history.bytes());
+
+        history.recordApplied(String.class, new byte[100]);
+        history.recordApplied(Integer.class, new byte[100]);
+
+        // String v1 was the oldest version that is neither original nor current
+        assertEquals(List.of(0, 2), numbers(history.versions(String.class)));
+        assertEquals(List.of(0, 1, 2), numbers(history.versions(Integer.class)));
+        assertEquals(500, history.bytes());
+        assertEquals(5, history.versionCount());
+    }
+
+    @Test
+    void originalAndCurrentVersion_areKeptBeyondTheLimit() {
+        BytecodeHistory history = new BytecodeHistory(2, 0);
+        history.recordOriginal(String.class, new byte[10]);
+        history.recordApplied(String.class, new byte[20]);
+        history.recordApplied(String.class, new byte[30]);
+        history.select(String.class, 0);
+
+        assertEquals(List.of(0, 2), numbers(history.versions(String.class)));
+        assertEquals(10, history.current(String.class).length);
+        assertNull(history.bytecode(String.class, 1));
+    }
+
+    private static List<Integer> numbers(List<ClassVersion> versions) {
+        return versions.stream().map(ClassVersion::number).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeBatcherTest {
+
+    @Test
+    void flush_changesWithinTheDebounce_areOfferedAsOneBatchOnceQuiet() throws Exception {
+        try (HotReloadPipeline pipeline = pipeline()) {
+            ChangeBatcher batcher = new ChangeBatcher(200, 10_000, pipeline.metrics());
+
+            batcher.add(Path.of("A.java"));
+            batcher.add(Path.of("B.java"));
+            batcher.add(Path.of("A.java"));
+            long waitMs = batcher.flush(pipeline, 1_000);
+            assertTrue(waitMs > 0 && waitMs <= 200, "waits for the rest of the debounce, got " + waitMs);
+            assertEquals(0, pipeline.changeQueueDepth());
+
+            Thread.sleep(250);
+            batcher.flush(pipeline, 1_000);
+            assertEquals(1, pipeline.changeQueueDepth(), "the changes are coalesced into one batch");
+            assertEquals(3, pipeline.metrics().events());
+
+            batcher.flush(pipeline, 1_000);
+            assertEquals(1, pipeline.changeQueueDepth(), "nothing is pending after the batch");
+        }
+    }
+
+    @Test
+    void flush_steadyStreamOfChanges_isOfferedAfterTheMaximumDelay() throws Exception {
+        try (HotReloadPipeline pipeline = pipeline()) {
+            ChangeBatcher batcher = new ChangeBatcher(200, 500, pipeline.metrics());
+
+            long start = System.nanoTime();
+            long offeredAfterMs = -1;
+            for (int i = 0; i < 40 && offeredAfterMs < 0; i++) {
+                batcher.add(Path.of("Generated" + i + ".java"));
+                batcher.flush(pipeline, 1_000);
+                if (pipeline.changeQueueDepth() > 0) {
+                    offeredAfterMs = (System.nanoTime() - start) / 1_000_000;
+                }
+                Thread.sleep(50);
+            }
+
+            assertTrue(offeredAfterMs >= 500, "never quiet, so held until the maximum delay, got " + offeredAfterMs);
+            assertTrue(offeredAfterMs < 1_500, "a stream of changes must not postpone the batch forever");
+        }
+    }
+
+    private static HotReloadPipeline pipeline() {
+        // never started, so offered batches stay queued
+        HotReloadOptions options = HotReloadOptions.of("src");
+        return new HotReloadPipeline(options.sourcePaths(), new HotClassRegistry(), null, null, options);
+    }
+}
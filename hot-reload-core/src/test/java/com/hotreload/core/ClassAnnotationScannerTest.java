@@ -0,0 +1,93 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassAnnotationScannerTest {
+
+    static final byte[] HOT_RELOAD =
+        "Lcom/hotreload/annotation/HotReload;".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void hasAnnotation_classLevelAnnotationAfterOtherAnnotations_isFound() throws Exception {
+        byte[] bytecode = compile("Annotated", """
+            package com.test.scan;
+            @Deprecated(since = "1", forRemoval = false)
+            @SuppressWarnings({"a", "b"})
+            @com.hotreload.annotation.HotReload
+            public class Annotated {}
+            """);
+
+        assertTrue(ClassAnnotationScanner.hasAnnotation(bytecode, HOT_RELOAD));
+    }
+
+    @Test
+    void hasAnnotation_descriptorOutsideClassAnnotations_isIgnored() throws Exception {
+        byte[] bytecode = compile("NotAnnotated", """
+            package com.test.scan;
+            @Deprecated
+            public class NotAnnotated {
+                static final String DESCRIPTOR = "Lcom/hotreload/annotation/HotReload;";
+                @Deprecated
+                void method() {}
+            }
+            """);
+
+        assertFalse(ClassAnnotationScanner.hasAnnotation(bytecode, HOT_RELOAD));
+    }
+
+    @Test
+    void hasAnnotation_truncatedOrForeignBytes_returnsFalse() {
+        assertFalse(ClassAnnotationScanner.hasAnnotation(new byte[]{(byte) 0xCA, (byte) 0xFE}, HOT_RELOAD));
+        assertFalse(ClassAnnotationScanner.hasAnnotation("not a class".getBytes(), HOT_RELOAD));
+    }
+
+    @Test
+    void isExcluded_skipsBootAndJdkClassesButNotLibraries() {
+        ClassLoader app = getClass().getClassLoader();
+
+        assertTrue(ClassAnnotationScanner.isExcluded(null, "com/example/Service"));
+        assertTrue(ClassAnnotationScanner.isExcluded(ClassLoader.getPlatformClassLoader(), "com/example/Service"));
+        assertTrue(ClassAnnotationScanner.isExcluded(app, "java/util/List"));
+        assertFalse(ClassAnnotationScanner.isExcluded(app, "org/springframework/Bean"));
+        assertFalse(ClassAnnotationScanner.isExcluded(app, "org/apache/example/Service"));
+        assertFalse(ClassAnnotationScanner.isExcluded(app, "com/example/Service"));
+    }
+
+    @Test
+    void isSkipped_onlyConfiguredPackages() throws Exception {
+        byte[] bytecode = compile("Skipped", """
+            package com.test.scan;
+            @com.hotreload.annotation.HotReload
+            public class Skipped {}
+            """);
+        try {
+            ClassAnnotationScanner.skipPackages(List.of("org.springframework", "com.test.scan."));
+
+            assertTrue(ClassAnnotationScanner.isSkipped("org/springframework/Bean", bytecode, HOT_RELOAD));
+            assertTrue(ClassAnnotationScanner.isSkipped("com/test/scan/Skipped", bytecode, HOT_RELOAD));
+            assertFalse(ClassAnnotationScanner.isSkipped("org/springframeworks/Bean", bytecode, HOT_RELOAD));
+        } finally {
+            ClassAnnotationScanner.skipPackages(List.of());
+        }
+        assertFalse(ClassAnnotationScanner.isSkipped("com/test/scan/Skipped", bytecode, HOT_RELOAD));
+    }
+
+    private byte[] compile(String className, String source) throws Exception {
+        Path packageDir = tempDir.resolve("com/test/scan");
+        Files.createDirectories(packageDir);
+        Path sourceFile = packageDir.resolve(className + ".java");
+        Files.writeString(sourceFile, source);
+        return new HotSourceCompiler().compile(sourceFile);
+    }
+}
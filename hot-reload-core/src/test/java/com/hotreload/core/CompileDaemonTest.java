@@ -0,0 +1,73 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileDaemonTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compile_runsInDaemonJvm_andReportsCompilationErrors() throws Exception {
+        Path sourceFile = writeSource("Remote", "public String value() { return \"remote\"; }");
+        CompileDaemonClient daemon = new CompileDaemonClient("", 256, 0);
+        try (HotSourceCompiler compiler = new HotSourceCompiler(null, daemon)) {
+            Map<String, byte[]> classes = compiler.compileClasses(List.of(sourceFile));
+
+            assertTrue(classes.containsKey("com.daemon.Remote"));
+            assertTrue(classes.containsKey("com.daemon.Remote$Nested"));
+            Process process = daemon.process();
+            assertNotNull(process);
+            assertNotEquals(ProcessHandle.current().pid(), process.pid());
+
+            Files.writeString(sourceFile, "package com.daemon; public class Remote { int broken( }");
+            IOException error = assertThrows(IOException.class, () -> compiler.compileClasses(List.of(sourceFile)));
+            assertTrue(error.getMessage().contains("Compilation failed"), error.getMessage());
+            CompileDiagnostics diagnostics = new CompileDiagnostics();
+            assertThrows(IOException.class, () -> daemon.compile(
+                Map.of(sourceFile, Files.readString(sourceFile)), "", new HashMap<>(), diagnostics));
+            assertTrue(diagnostics.errors > 0, "the daemon reports the error count of a failed compile");
+            assertSame(process, daemon.process(), "a compilation error must not restart the daemon");
+        }
+        assertNull(daemon.process(), "closing the compiler stops the daemon");
+    }
+
+    @Test
+    void compile_afterIdleShutdown_startsDaemonAgain() throws Exception {
+        Path sourceFile = writeSource("Idle", "");
+        CompileDaemonClient daemon = new CompileDaemonClient("", 256, 300);
+        try (HotSourceCompiler compiler = new HotSourceCompiler(null, daemon)) {
+            compiler.compileClasses(List.of(sourceFile));
+            Process first = daemon.process();
+            assertNotNull(first);
+
+            first.onExit().get();
+            assertEquals(0, first.exitValue());
+
+            assertTrue(compiler.compileClasses(List.of(sourceFile)).containsKey("com.daemon.Idle"));
+            assertNotSame(first, daemon.process());
+        }
+    }
+
+    private Path writeSource(String className, String body) throws Exception {
+        Path sourceFile = tempDir.resolve("src/com/daemon/" + className + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        return Files.writeString(sourceFile, """
+            package com.daemon;
+            public class %s {
+                %s
+                public static class Nested {}
+            }
+            """.formatted(className, body));
+    }
+}
@@ -0,0 +1,56 @@
+package com.hotreload.core;
+
+import com.hotreload.agent.HotReloadAgent;
+import net.bytebuddy.agent.ByteBuddyAgent;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+
+/**
+ * Replica JVM started by {@link FleetReloadTest}: loads one class, attaches the
+ * agent as a fleet subscriber and prints {@code value=...} whenever the result of
+ * its {@code value()} method changes. Exits when its standard input is closed.
+ *
+ * <p>Arguments: coordinator port, class directory, class name, node id.
+ */
+public class FleetNode {
+
+    public static void main(String[] args) throws Exception {
+        URLClassLoader loader = new URLClassLoader(new URL[]{Path.of(args[1]).toUri().toURL()},
+            FleetNode.class.getClassLoader());
+        Class<?> target = loader.loadClass(args[2]);
+        Object instance = target.getDeclaredConstructor().newInstance();
+        Method value = target.getMethod("value");
+
+        // attached after loading, like an agent loaded into a running service
+        Instrumentation inst = ByteBuddyAgent.install();
+        HotReloadAgent.agentmain("fleet=127.0.0.1:" + args[0] + ",node=" + args[3], inst);
+
+        Thread exitOnEof = new Thread(() -> {
+            try {
+                while (System.in.read() >= 0) {
+                    // wait for the test to close our input
+                }
+            } catch (Exception ignored) {
+                // exit either way
+            }
+            System.exit(0);
+        });
+        exitOnEof.setDaemon(true);
+        exitOnEof.start();
+
+        Object last = null;
+        while (true) {
+            Object current = value.invoke(instance);
+            if (!current.equals(last)) {
+                System.out.println("value=" + current);
+                System.out.flush();
+                last = current;
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.hotreload.core;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetReloadTest {
+
+    private static final String CLASS_NAME = "com.hotreload.fleetsubject.Greeter";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void publish_appliesOnEveryNodeAndReportsFailures() throws Exception {
+        Path source = writeSource("v1", "");
+        Path classesDir = tempDir.resolve("classes");
+        new HotSourceCompiler(classesDir).compileClasses(source);
+
+        List<Node> nodes = new ArrayList<>();
+        try (FleetCoordinator coordinator = new FleetCoordinator(0)) {
+            coordinator.start();
+            for (int i = 1; i <= 3; i++) {
+                nodes.add(Node.start(coordinator.port(), classesDir, "node-" + i, tempDir));
+            }
+            await(() -> coordinator.subscriberCount() == 3 && nodes.stream().allMatch(n -> n.printed("v1")),
+                "all nodes should subscribe and load v1");
+
+            writeSource("v2", "");
+            FleetReport report = coordinator.publish(new HotSourceCompiler().compileClasses(source))
+                .get(30, TimeUnit.SECONDS);
+
+            assertTrue(report.allSucceeded(), "failures: " + report.failures());
+            assertEquals(3, report.nodes().size());
+            for (FleetReport.NodeResult node : report.nodes()) {
+                assertEquals(List.of(CLASS_NAME), node.applied());
+                assertTrue(node.applyNanos() > 0);
+                assertTrue(node.roundTripNanos() >= node.applyNanos());
+            }
+            await(() -> nodes.stream().allMatch(n -> n.printed("v2")), "all nodes should run v2");
+
+            // adding a field is not supported by redefineClasses on any node
+            writeSource("v3", "private int added;");
+            report = coordinator.publish(new HotSourceCompiler().compileClasses(source)).get(30, TimeUnit.SECONDS);
+            assertEquals(3, report.failures().size());
+            for (FleetReport.NodeResult node : report.failures()) {
+                assertTrue(node.error().contains("UnsupportedOperationException"), node.error());
+            }
+        } finally {
+            nodes.forEach(Node::stop);
+        }
+    }
+
+    @Test
+    void nodeSubscribingLate_receivesLatestPublishedClasses() throws Exception {
+        Path source = writeSource("v1", "");
+        Path classesDir = tempDir.resolve("classes");
+        new HotSourceCompiler(classesDir).compileClasses(source);
+
+        Node node = null;
+        try (FleetCoordinator coordinator = new FleetCoordinator(0)) {
+            coordinator.start();
+            writeSource("v2", "");
+            FleetReport report = coordinator.publish(new HotSourceCompiler().compileClasses(source))
+                .get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(), report.nodes(), "nobody was subscribed yet");
+
+            node = Node.start(coordinator.port(), classesDir, "late", tempDir);
+            Node late = node;
+            await(() -> late.printed("v2"), "late node should catch up to v2");
+        } finally {
+            if (node != null) node.stop();
+        }
+    }
+
+    @Test
+    void subscriber_rejectsBatchWhoseVersionHashDoesNotMatch() throws Exception {
+        HotClassReloader reloader = new HotClassReloader(ByteBuddyAgent.install());
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             FleetSubscriber subscriber = new FleetSubscriber("127.0.0.1", server.getLocalPort(), "test",
+                 new HotClassRegistry(), reloader)) {
+            subscriber.start();
+            try (Socket socket = server.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                assertEquals("test", FleetProtocol.readHello(in));
+
+                Map<String, byte[]> classes = Map.of(CLASS_NAME, new byte[]{1, 2, 3});
+                FleetProtocol.writeBatch(out, new FleetProtocol.Batch(7, new byte[32], classes));
+                FleetProtocol.Ack ack = FleetProtocol.readAck(in);
+
+                assertEquals(7, ack.batchId);
+                assertFalse(ack.success);
+                assertTrue(ack.error.contains("version hash mismatch"), ack.error);
+            }
+        }
+    }
+
+    private Path writeSource(String value, String extraMember) throws IOException {
+        Path packageDir = tempDir.resolve("src/com/hotreload/fleetsubject");
+        Files.createDirectories(packageDir);
+        Path sourceFile = packageDir.resolve("Greeter.java");
+        Files.writeString(sourceFile, """
+            package com.hotreload.fleetsubject;
+            @com.hotreload.annotation.HotReload
+            public class Greeter {
+                %s
+                public String value() { return "%s"; }
+            }
+            """.formatted(extraMember, value));
+        return sourceFile;
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        for (int i = 0; i < 300 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(condition.getAsBoolean(), message);
+    }
+
+    /** A {@link FleetNode} JVM and the values it printed. */
+    private static final class Node {
+
+        private final Process process;
+        private final List<String> output = new CopyOnWriteArrayList<>();
+
+        private Node(Process process) {
+            this.process = process;
+            Thread reader = new Thread(() -> {
+                try (BufferedReader lines = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    lines.lines().forEach(output::add);
+                } catch (IOException ignored) {
+                    // process ended
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        static Node start(int port, Path classesDir, String nodeId, Path logDir) throws IOException {
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    FleetNode.class.getName(), String.valueOf(port), classesDir.toString(), CLASS_NAME, nodeId)
+                .redirectError(logDir.resolve(nodeId + ".log").toFile())
+                .start();
+            return new Node(process);
+        }
+
+        boolean printed(String value) {
+            return output.contains("value=" + value);
+        }
+
+        void stop() {
+            try {
+                process.getOutputStream().close();
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException | InterruptedException e) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.hotreload.core;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationReloadTest {
+
+    private static final String CLASS_NAME = "com.hotreload.gensubject.Counter";
+
+    static Instrumentation instrumentation;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void installAgent() {
+        instrumentation = ByteBuddyAgent.install();
+    }
+
+    @Test
+    void structuralChange_routesCallsToNewGenerationAndKeepsState() throws Exception {
+        Path sourceFile = tempDir.resolve("src/com/hotreload/gensubject/Counter.java");
+        Files.createDirectories(sourceFile.getParent());
+        Path outputDir = tempDir.resolve("out");
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        writeCounter(sourceFile, "", """
+            public int increment() { return ++count; }
+            public String describe() { return "v1 " + count; }
+            public static String version() { return "v1 " + created; }
+            """);
+        byte[] v1 = compiler.compile(sourceFile);
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> counter = loader.loadClass(CLASS_NAME);
+        Object instance = counter.getDeclaredConstructor().newInstance();
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(CLASS_NAME, loader, v1);
+        HotClassReloader reloader = new HotClassReloader(instrumentation);
+
+        call(instance, "increment");
+        call(instance, "increment");
+        assertEquals("v1 2", call(instance, "describe"));
+
+        // a new field and a new method cannot be redefined
+        writeCounter(sourceFile, "private int calls;", """
+            public int increment() { count += 10; return count; }
+            public String describe() { return "v2 " + count + " " + label(); }
+            private String label() { return "calls=" + ++calls; }
+            public static String version() { return "v2 " + created; }
+            """);
+        assertEquals(List.of(CLASS_NAME), reloader.reload(compiler.compileClasses(sourceFile), registry));
+
+        assertEquals("v2 2 calls=1", call(instance, "describe"), "state of the instance is carried over");
+        assertEquals(12, call(instance, "increment"));
+        assertEquals("v2 12 calls=2", call(instance, "describe"));
+        assertEquals("v2 1", counter.getMethod("version").invoke(null), "static fields are carried over");
+        Object second = counter.getDeclaredConstructor().newInstance();
+        assertEquals("v2 0 calls=1", call(second, "describe"), "instances are routed independently");
+        WeakReference<Class<?>> generation2 = new WeakReference<>(GenerationDispatch.current(counter));
+        assertEquals(1, GenerationDispatch.generation(counter));
+
+        // the helper method is removed again, its field stays
+        writeCounter(sourceFile, "private int calls;", """
+            public int increment() { count += 100; return count; }
+            public String describe() { return "v3 " + count + " calls=" + calls; }
+            public static String version() { return "v3 " + created; }
+            """);
+        assertEquals(List.of(CLASS_NAME), reloader.reload(compiler.compileClasses(sourceFile), registry));
+        assertEquals("v3 12 calls=2", call(instance, "describe"));
+        assertEquals(112, call(instance, "increment"));
+
+        assertEquals(List.of(), reloader.reload(compiler.compileClasses(sourceFile), registry),
+            "the same generation is not loaded twice");
+        assertEquals(2, GenerationDispatch.generation(counter));
+
+        for (int i = 0; i < 50 && generation2.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(generation2.get(), "the previous generation should be unloadable");
+    }
+
+    @Test
+    void methodBodyChange_isRedefinedInPlaceWithoutGeneration() throws Exception {
+        Path sourceFile = tempDir.resolve("src/com/hotreload/gensubject/Counter.java");
+        Files.createDirectories(sourceFile.getParent());
+        Path outputDir = tempDir.resolve("out");
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        writeCounter(sourceFile, "", "public String describe() { return \"v1\"; }");
+        byte[] v1 = compiler.compile(sourceFile);
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> counter = loader.loadClass(CLASS_NAME);
+        Object instance = counter.getDeclaredConstructor().newInstance();
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(CLASS_NAME, loader, v1);
+        HotClassReloader reloader = new HotClassReloader(instrumentation);
+
+        writeCounter(sourceFile, "", "public String describe() { return \"v2\"; }");
+        reloader.reload(compiler.compileClasses(sourceFile), registry);
+
+        assertEquals("v2", call(instance, "describe"));
+        assertEquals(0, GenerationDispatch.generation(counter), "a redefinable change needs no generation");
+    }
+
+    private static Object call(Object instance, String method) throws Exception {
+        return instance.getClass().getMethod(method).invoke(instance);
+    }
+
+    private static void writeCounter(Path sourceFile, String extraField, String methods) throws Exception {
+        Files.writeString(sourceFile, """
+            package com.hotreload.gensubject;
+            @com.hotreload.annotation.HotReload(generations = true)
+            public class Counter {
+                static int created;
+                private int count;
+                %s
+                public Counter() { created++; }
+            %s
+            }
+            """.formatted(extraField, methods));
+    }
+}
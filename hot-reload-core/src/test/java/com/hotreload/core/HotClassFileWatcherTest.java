@@ -10,6 +10,7 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -104,4 +105,78 @@ class HotClassFileWatcherTest {
             "Watcher should detect the file change, recompile, and reload the class. " +
             "Current value: " + targetClass.getMethod("value").invoke(instance));
     }
+
+    @Test
+    void watcher_watchesPackagesCreatedAfterStart_andPicksUpAtomicRenameSaves() throws Exception {
+        Path sourceRoot = tempDir.resolve("src");
+        Files.createDirectories(sourceRoot);
+        Path buildDir = tempDir.resolve("build/com/hotreload/latesubject");
+        Files.createDirectories(buildDir);
+        Path outputDir = tempDir.resolve("out");
+        Files.createDirectories(outputDir);
+
+        // v1 is compiled elsewhere; its package does not exist under the watched root yet
+        Path builtSource = buildDir.resolve("LateTarget.java");
+        Files.writeString(builtSource, source("v1"));
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        compiler.compile(builtSource);
+
+        URLClassLoader loader = new URLClassLoader(
+            new URL[]{outputDir.toUri().toURL()},
+            getClass().getClassLoader()
+        );
+        Class<?> targetClass = loader.loadClass("com.hotreload.latesubject.LateTarget");
+        Object instance = targetClass.getDeclaredConstructor().newInstance();
+
+        Path packageDir = sourceRoot.resolve("com/hotreload/latesubject");
+        Path sourceFile = packageDir.resolve("LateTarget.java");
+        Map<Path, Class<?>> sourceToClass = new HashMap<>();
+        sourceToClass.put(sourceFile.toAbsolutePath(), targetClass);
+
+        HotClassFileWatcher watcher = new HotClassFileWatcher(
+            new String[]{sourceRoot.toAbsolutePath().toString()},
+            100,
+            sourceToClass,
+            compiler,
+            new HotClassReloader(instrumentation)
+        );
+        Thread watchThread = new Thread(watcher, "test-watcher-late");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        try {
+            Thread.sleep(500);
+
+            // the package and its source appear in one go, as on a branch switch
+            Files.createDirectories(packageDir);
+            Files.writeString(sourceFile, source("v2"));
+            assertEquals("v2", awaitValue(targetClass, instance, "v2"));
+
+            // editors save by writing a temporary file and renaming it over the source
+            Path temp = packageDir.resolve("LateTarget.java.tmp");
+            Files.writeString(temp, source("v3"));
+            Files.move(temp, sourceFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            assertEquals("v3", awaitValue(targetClass, instance, "v3"));
+        } finally {
+            watchThread.interrupt();
+            watchThread.join(5_000);
+        }
+    }
+
+    private static String source(String value) {
+        return """
+            package com.hotreload.latesubject;
+            public class LateTarget {
+                public String value() { return "%s"; }
+            }
+            """.formatted(value);
+    }
+
+    private static Object awaitValue(Class<?> targetClass, Object instance, String expected) throws Exception {
+        Object result = null;
+        for (int i = 0; i < 50 && !expected.equals(result); i++) { // up to 5 seconds
+            Thread.sleep(100);
+            result = targetClass.getMethod("value").invoke(instance);
+        }
+        return result;
+    }
 }
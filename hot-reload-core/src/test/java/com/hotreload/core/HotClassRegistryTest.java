@@ -0,0 +1,189 @@
+package com.hotreload.core;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotClassRegistryTest {
+
+    static Instrumentation instrumentation;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void installAgent() {
+        instrumentation = ByteBuddyAgent.install();
+    }
+
+    @Test
+    void transformer_registersAnnotatedClassesAndTheirNestedClassesAsTheyLoad() throws Exception {
+        Path sourceRoot = tempDir.resolve("src");
+        Path packageDir = sourceRoot.resolve("com/hotreload/registrysubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+
+        Path annotated = packageDir.resolve("Annotated.java");
+        Files.writeString(annotated, """
+            package com.hotreload.registrysubject;
+            @com.hotreload.annotation.HotReload
+            public class Annotated {
+                public static class Nested {}
+            }
+            """);
+        Path plain = packageDir.resolve("Plain.java");
+        Files.writeString(plain, """
+            package com.hotreload.registrysubject;
+            public class Plain {}
+            """);
+        new HotSourceCompiler(outputDir).compileClasses(List.of(annotated, plain));
+
+        HotClassRegistry registry = new HotClassRegistry();
+        ClassFileTransformer transformer = new HotClassRegistryTransformer(registry);
+        instrumentation.addTransformer(transformer, false);
+        try {
+            URLClassLoader loader = new URLClassLoader(
+                new URL[]{outputDir.toUri().toURL()},
+                getClass().getClassLoader()
+            );
+            Class<?> annotatedClass = loader.loadClass("com.hotreload.registrysubject.Annotated");
+            loader.loadClass("com.hotreload.registrysubject.Plain");
+
+            assertEquals(List.of("com.hotreload.registrysubject.Annotated"), registry.classNames());
+            assertSame(annotatedClass, registry.find("com.hotreload.registrysubject.Annotated"));
+            assertNull(registry.findLoaded("com.hotreload.registrysubject.Annotated$Nested"),
+                "Nested class has not been loaded yet");
+
+            Class<?> nestedClass = loader.loadClass("com.hotreload.registrysubject.Annotated$Nested");
+            assertSame(nestedClass, registry.findLoaded("com.hotreload.registrysubject.Annotated$Nested"));
+
+            assertEquals("com.hotreload.registrysubject.Annotated",
+                registry.classNameForSource(annotated, List.of(sourceRoot.toAbsolutePath())));
+            assertNull(registry.classNameForSource(plain, List.of(sourceRoot.toAbsolutePath())));
+            assertEquals(annotated.toAbsolutePath().normalize(),
+                registry.sourceOf("com.hotreload.registrysubject.Annotated", List.of(sourceRoot.toAbsolutePath())));
+        } finally {
+            instrumentation.removeTransformer(transformer);
+        }
+    }
+
+    @Test
+    void reload_classDefinedByTwoLoaders_redefinesItInBoth() throws Exception {
+        Path packageDir = tempDir.resolve("src/com/hotreload/twinsubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+        Path source = packageDir.resolve("Twin.java");
+        Files.writeString(source, """
+            package com.hotreload.twinsubject;
+            @com.hotreload.annotation.HotReload
+            public class Twin {
+                public static String value() { return Nested.value(); }
+                static class Nested { static String value() { return "v1"; } }
+            }
+            """);
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        compiler.compileClasses(List.of(source));
+
+        HotClassRegistry registry = new HotClassRegistry();
+        ClassFileTransformer transformer = new HotClassRegistryTransformer(registry);
+        instrumentation.addTransformer(transformer, false);
+        try {
+            URL[] classPath = {outputDir.toUri().toURL()};
+            Class<?> first = new URLClassLoader(classPath, getClass().getClassLoader())
+                .loadClass("com.hotreload.twinsubject.Twin");
+            Class<?> second = new URLClassLoader(classPath, getClass().getClassLoader())
+                .loadClass("com.hotreload.twinsubject.Twin");
+            assertEquals("v1", first.getMethod("value").invoke(null));
+            assertEquals("v1", second.getMethod("value").invoke(null));
+            assertEquals(List.of(first, second), registry.findAll("com.hotreload.twinsubject.Twin"));
+
+            Files.writeString(source, Files.readString(source).replace("\"v1\"", "\"v2\""));
+            new HotClassReloader(instrumentation).reload(compiler.compileClasses(List.of(source)), registry);
+
+            assertEquals("v2", first.getMethod("value").invoke(null));
+            assertEquals("v2", second.getMethod("value").invoke(null), "the second loader's class is reloaded too");
+        } finally {
+            instrumentation.removeTransformer(transformer);
+            compiler.close();
+        }
+    }
+
+    @Test
+    void registerIndexed_knowsSourceFilesAndHashesWithoutLoadingTheClasses() throws Exception {
+        Path sourceRoot = tempDir.resolve("src");
+        Path source = sourceRoot.resolve("com/example/Indexed.java").toAbsolutePath().normalize();
+        HotReloadIndex index = HotReloadIndex.load(new URLClassLoader(new URL[0], null) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                Path file = tempDir.resolve("index");
+                Files.writeString(file, "# comment\ncom.example.Indexed\t" + source + "\tabc123\ncom.example.Bare\t\t\n");
+                return Collections.enumeration(List.of(file.toUri().toURL()));
+            }
+        });
+
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.registerIndexed(index, getClass().getClassLoader());
+
+        assertEquals(List.of("com.example.Indexed", "com.example.Bare"), registry.classNames());
+        assertEquals("abc123", registry.sourceHash("com.example.Indexed"));
+        assertNull(registry.sourceHash("com.example.Bare"));
+        assertEquals("com.example.Indexed", registry.classNameForSource(source, List.of(sourceRoot)));
+        assertEquals(source, registry.sourceOf("com.example.Indexed", List.of(sourceRoot)),
+            "the indexed source is used without the file existing");
+    }
+
+    @Test
+    void findLoaded_doesNotLoadIndexedClassesThatNeverLoaded() throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/lazysubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+        Path sourceFile = packageDir.resolve("Lazy.java");
+        Files.writeString(sourceFile, """
+            package com.hotreload.lazysubject;
+            public class Lazy {}
+            """);
+        new HotSourceCompiler(outputDir).compile(sourceFile);
+        Path indexFile = tempDir.resolve("lazy-index");
+        Files.writeString(indexFile, "com.hotreload.lazysubject.Lazy\t" + sourceFile + "\t\n");
+        HotReloadIndex index = HotReloadIndex.load(new URLClassLoader(new URL[0], null) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                return Collections.enumeration(List.of(indexFile.toUri().toURL()));
+            }
+        });
+
+        class TrackingLoader extends URLClassLoader {
+            TrackingLoader() throws IOException {
+                super(new URL[]{outputDir.toUri().toURL()}, HotClassRegistryTest.class.getClassLoader());
+            }
+
+            boolean isLoaded(String name) {
+                return findLoadedClass(name) != null;
+            }
+        }
+        TrackingLoader loader = new TrackingLoader();
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.registerIndexed(index, loader);
+
+        assertNull(registry.findLoaded("com.hotreload.lazysubject.Lazy"));
+        assertFalse(loader.isLoaded("com.hotreload.lazysubject.Lazy"), "findLoaded must not load indexed classes");
+
+        Class<?> lazy = registry.find("com.hotreload.lazysubject.Lazy");
+        assertNotNull(lazy);
+        assertSame(lazy, registry.findLoaded("com.hotreload.lazysubject.Lazy"));
+    }
+}
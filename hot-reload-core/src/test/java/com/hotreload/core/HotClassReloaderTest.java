@@ -10,6 +10,9 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -83,4 +86,245 @@ class HotClassReloaderTest {
         assertEquals("v2", v2Result,
             "After redefineClasses, the same instance should reflect the new method body");
     }
+
+    @Test
+    void reload_batch_redefinesAllClassesInOneCall() throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/batchsubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+
+        Path first = packageDir.resolve("First.java");
+        Path second = packageDir.resolve("Second.java");
+        Files.writeString(first, """
+            package com.hotreload.batchsubject;
+            public class First {
+                public String value() { return "first-v1"; }
+            }
+            """);
+        Files.writeString(second, """
+            package com.hotreload.batchsubject;
+            public class Second {
+                public String value() { return "second-v1"; }
+            }
+            """);
+
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        compiler.compileClasses(List.of(first, second));
+
+        URLClassLoader loader = new URLClassLoader(
+            new URL[]{outputDir.toUri().toURL()},
+            getClass().getClassLoader()
+        );
+        Class<?> firstClass = loader.loadClass("com.hotreload.batchsubject.First");
+        Class<?> secondClass = loader.loadClass("com.hotreload.batchsubject.Second");
+        Object firstInstance = firstClass.getDeclaredConstructor().newInstance();
+        Object secondInstance = secondClass.getDeclaredConstructor().newInstance();
+
+        Files.writeString(first, """
+            package com.hotreload.batchsubject;
+            public class First {
+                public String value() { return "first-v2"; }
+            }
+            """);
+        Files.writeString(second, """
+            package com.hotreload.batchsubject;
+            public class Second {
+                public String value() { return "second-v2"; }
+            }
+            """);
+        Map<String, byte[]> compiled = compiler.compileClasses(List.of(first, second));
+
+        Map<Class<?>, byte[]> definitions = new LinkedHashMap<>();
+        definitions.put(firstClass, compiled.get(firstClass.getName()));
+        definitions.put(secondClass, compiled.get(secondClass.getName()));
+        new HotClassReloader(instrumentation).reload(definitions);
+
+        assertEquals("first-v2", firstClass.getMethod("value").invoke(firstInstance));
+        assertEquals("second-v2", secondClass.getMethod("value").invoke(secondInstance));
+    }
+
+    @Test
+    void reload_compilationUnit_redefinesNestedAndDefinesNotYetLoadedClasses() throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/nestedsubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+
+        Path sourceFile = packageDir.resolve("Outer.java");
+        writeOuter(sourceFile, "v1");
+
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        compiler.compileClasses(sourceFile);
+
+        URLClassLoader loader = new URLClassLoader(
+            new URL[]{outputDir.toUri().toURL()},
+            getClass().getClassLoader()
+        );
+        Class<?> outerClass = loader.loadClass("com.hotreload.nestedsubject.Outer");
+        Class<?> innerClass = loader.loadClass("com.hotreload.nestedsubject.Outer$Inner");
+        Object inner = innerClass.getDeclaredConstructor().newInstance();
+        assertEquals("inner-v1", innerClass.getMethod("value").invoke(inner));
+
+        // Outer$1 has not been loaded yet; its on-disk v1 must never be used after the reload
+        writeOuter(sourceFile, "v2");
+        Map<String, byte[]> compiled = new HotSourceCompiler().compileClasses(sourceFile);
+
+        List<String> applied = new HotClassReloader(instrumentation)
+            .reload(compiled, Map.of(outerClass.getName(), outerClass));
+
+        assertEquals(3, applied.size(), "Outer, Outer$Inner and Outer$1 should all be applied: " + applied);
+        assertEquals("inner-v2", innerClass.getMethod("value").invoke(inner));
+        assertEquals("anonymous-v2", outerClass.getMethod("anonymous").invoke(null));
+    }
+
+    @Test
+    void reload_withoutExecutableChange_skipsRedefinition() throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/noopsubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+
+        Path sourceFile = packageDir.resolve("Quiet.java");
+        Files.writeString(sourceFile, """
+            package com.hotreload.noopsubject;
+            public class Quiet {
+                public String value() { return "v1"; }
+            }
+            """);
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        byte[] v1Bytecode = compiler.compile(sourceFile);
+
+        URLClassLoader loader = new URLClassLoader(
+            new URL[]{outputDir.toUri().toURL()},
+            getClass().getClassLoader()
+        );
+        Class<?> quietClass = loader.loadClass("com.hotreload.noopsubject.Quiet");
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(quietClass.getName(), loader, v1Bytecode);
+        HotClassReloader reloader = new HotClassReloader(instrumentation);
+
+        Files.writeString(sourceFile, """
+            package com.hotreload.noopsubject;
+
+            // reformatted, same behaviour
+            public class Quiet {
+                public String value() {
+                    return "v1";
+                }
+            }
+            """);
+        assertEquals(List.of(), reloader.reload(compiler.compileClasses(sourceFile), registry));
+
+        Files.writeString(sourceFile, """
+            package com.hotreload.noopsubject;
+            public class Quiet {
+                public String value() { return "v2"; }
+            }
+            """);
+        assertEquals(List.of(quietClass.getName()), reloader.reload(compiler.compileClasses(sourceFile), registry));
+        assertEquals("v2", quietClass.getMethod("value").invoke(quietClass.getDeclaredConstructor().newInstance()));
+    }
+
+    @Test
+    void rollback_restoresAnyVersionInHistoryWithoutCompiling() throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/rollbacksubject");
+        Files.createDirectories(packageDir);
+        Path sourceFile = packageDir.resolve("Versioned.java");
+        HotSourceCompiler compiler = new HotSourceCompiler(tempDir.resolve("out"));
+        byte[] v1Bytecode = compileVersioned(compiler, sourceFile, "v1");
+
+        URLClassLoader loader = new URLClassLoader(
+            new URL[]{tempDir.resolve("out").toUri().toURL()},
+            getClass().getClassLoader()
+        );
+        Class<?> versioned = loader.loadClass("com.hotreload.rollbacksubject.Versioned");
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(versioned.getName(), loader, v1Bytecode);
+        HotClassReloader reloader = new HotClassReloader(instrumentation, 3, Long.MAX_VALUE);
+
+        for (String version : List.of("v2", "v3", "v4")) {
+            compileVersioned(compiler, sourceFile, version);
+            reloader.reload(compiler.compileClasses(sourceFile), registry);
+        }
+        assertEquals("v4", value(versioned));
+
+        // depth 3 keeps the original, the current version and the newest one before it
+        List<ClassVersion> history = reloader.history(versioned);
+        assertEquals(List.of(0, 2, 3), history.stream().map(ClassVersion::number).toList());
+        assertTrue(history.get(2).isCurrent());
+        assertEquals(history.stream().mapToLong(ClassVersion::size).sum(), reloader.historyBytes());
+
+        Map<String, byte[]> selected = reloader.rollback(versioned, 0);
+        assertEquals("v1", value(versioned));
+        assertArrayEquals(v1Bytecode, selected.get(versioned.getName()));
+        reloader.rollback(versioned, 2);
+        assertEquals("v3", value(versioned));
+        assertThrows(IllegalArgumentException.class, () -> reloader.rollback(versioned, 1));
+        assertEquals("v3", value(versioned));
+    }
+
+    @Test
+    void reload_whenNewClassCannotBeDefined_restoresRedefinedClasses() throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/nestedsubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+        Path sourceFile = packageDir.resolve("Outer.java");
+        writeOuter(sourceFile, "v1");
+        Map<String, byte[]> v1 = new HotSourceCompiler(outputDir).compileClasses(sourceFile);
+
+        URLClassLoader loader = new URLClassLoader(
+            new URL[]{outputDir.toUri().toURL()},
+            getClass().getClassLoader()
+        );
+        String outerName = "com.hotreload.nestedsubject.Outer";
+        Class<?> innerClass = loader.loadClass(outerName + "$Inner");
+        Object inner = innerClass.getDeclaredConstructor().newInstance();
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(outerName, loader, v1.get(outerName));
+        registry.registerNested(innerClass.getName(), loader, v1.get(innerClass.getName()));
+
+        writeOuter(sourceFile, "v2");
+        Map<String, byte[]> v2 = new HotSourceCompiler().compileClasses(sourceFile);
+        byte[] anonymous = v2.get(outerName + "$1").clone();
+        anonymous[6] = (byte) 0xFF; // major version no JVM supports
+        v2.put(outerName + "$1", anonymous);
+
+        HotClassReloader reloader = new HotClassReloader(instrumentation);
+        assertThrows(UnsupportedClassVersionError.class, () -> reloader.reload(v2, registry));
+
+        assertEquals("inner-v1", innerClass.getMethod("value").invoke(inner),
+            "Outer$Inner was redefined before defining Outer$1 failed and must be restored");
+        assertTrue(reloader.history(innerClass).get(0).isCurrent());
+    }
+
+    private static byte[] compileVersioned(HotSourceCompiler compiler, Path sourceFile, String version)
+            throws Exception {
+        Files.writeString(sourceFile, """
+            package com.hotreload.rollbacksubject;
+            public class Versioned {
+                public String value() { return "%s"; }
+            }
+            """.formatted(version));
+        return compiler.compile(sourceFile);
+    }
+
+    private static Object value(Class<?> clazz) throws Exception {
+        return clazz.getMethod("value").invoke(clazz.getDeclaredConstructor().newInstance());
+    }
+
+    private static void writeOuter(Path sourceFile, String version) throws Exception {
+        Files.writeString(sourceFile, """
+            package com.hotreload.nestedsubject;
+            import java.util.function.Supplier;
+            public class Outer {
+                public static class Inner {
+                    public String value() { return "inner-%1$s"; }
+                }
+                public static String anonymous() {
+                    Supplier<String> supplier = new Supplier<>() {
+                        public String get() { return "anonymous-%1$s"; }
+                    };
+                    return supplier.get();
+                }
+            }
+            """.formatted(version));
+    }
 }
@@ -0,0 +1,123 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotDependencyGraphTest {
+
+    @TempDir
+    Path tempDir;
+
+    Path constantsFile;
+    Path userFile;
+    Path callerFile;
+    HotSourceCompiler compiler;
+
+    @AfterEach
+    void closeCompiler() throws Exception {
+        compiler.close();
+    }
+
+    @BeforeEach
+    void compileInitialVersion() throws Exception {
+        Path packageDir = tempDir.resolve("src/com/test/deps");
+        Files.createDirectories(packageDir);
+
+        constantsFile = packageDir.resolve("Limits.java");
+        userFile = packageDir.resolve("LimitUser.java");
+        callerFile = packageDir.resolve("LimitCaller.java");
+        writeLimits("10", "return 1;");
+        Files.writeString(userFile, """
+            package com.test.deps;
+            public class LimitUser {
+                public int max() { return Limits.MAX; }
+            }
+            """);
+        Files.writeString(callerFile, """
+            package com.test.deps;
+            public class LimitCaller {
+                public int call() { return Limits.compute(); }
+            }
+            """);
+
+        compiler = new HotSourceCompiler();
+        compiler.compileClasses(List.of(constantsFile, userFile, callerFile));
+    }
+
+    @Test
+    void constantPoolEdges_areRecordedPerCompilationUnit() {
+        HotDependencyGraph graph = compiler.dependencyGraph();
+
+        assertTrue(graph.dependenciesOf("com.test.deps.LimitCaller").contains("com.test.deps.Limits"),
+            "Method call should create an edge from the constant pool");
+        assertTrue(graph.dependenciesOf("com.test.deps.LimitUser").contains("com.test.deps.Limits"),
+            "Inlined constant should create an edge reported by javac");
+        assertEquals(Set.of("com.test.deps.LimitUser", "com.test.deps.LimitCaller"),
+            graph.dependentsOf(List.of("com.test.deps.Limits")));
+    }
+
+    @Test
+    void compileAffected_bodyOnlyChange_recompilesOnlyChangedFile() throws Exception {
+        writeLimits("10", "return 2;");
+
+        Map<String, byte[]> compiled = compiler.compileAffected(List.of(constantsFile), this::locate);
+
+        assertEquals(Set.of("com.test.deps.Limits"), compiled.keySet());
+    }
+
+    @Test
+    void compileAffected_constantChange_recompilesDependents() throws Exception {
+        writeLimits("20", "return 1;");
+
+        Map<String, byte[]> compiled = compiler.compileAffected(List.of(constantsFile), this::locate);
+
+        assertEquals(Set.of("com.test.deps.Limits", "com.test.deps.LimitUser", "com.test.deps.LimitCaller"),
+            compiled.keySet());
+    }
+
+    @Test
+    void compileAffected_constantChangeNotApplied_recompilesDependentsAgain() throws Exception {
+        writeLimits("20", "return 1;");
+        Set<String> all = Set.of("com.test.deps.Limits", "com.test.deps.LimitUser", "com.test.deps.LimitCaller");
+
+        // as after a rejected redefinition: the JVM still runs MAX = 10
+        compiler.compileAffected(List.of(constantsFile), this::locate);
+        Map<String, byte[]> compiled = compiler.compileAffected(List.of(constantsFile), this::locate);
+        assertEquals(all, compiled.keySet());
+
+        compiler.recordApplied(compiled);
+        assertEquals(Set.of("com.test.deps.Limits"),
+            compiler.compileAffected(List.of(constantsFile), this::locate).keySet());
+    }
+
+    @Test
+    void topLevelName_stripsNestedSuffix() {
+        assertEquals("com.test.Outer", HotDependencyGraph.topLevelName("com.test.Outer$Inner$1"));
+        assertEquals("Outer", HotDependencyGraph.topLevelName("Outer$Inner"));
+        assertEquals("com.test.Outer", HotDependencyGraph.topLevelName("com.test.Outer"));
+    }
+
+    private Path locate(String className) {
+        return tempDir.resolve("src").resolve(className.replace('.', '/') + ".java");
+    }
+
+    private void writeLimits(String max, String computeBody) throws Exception {
+        Files.writeString(constantsFile, """
+            package com.test.deps;
+            public class Limits {
+                public static final int MAX = %s;
+                public static int compute() { %s }
+            }
+            """.formatted(max, computeBody));
+    }
+}
@@ -0,0 +1,31 @@
+package com.hotreload.core;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotReloadEngineTest {
+
+    @Test
+    void engine_isAValidMXBean() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.hotreload.test:type=HotReloadEngine");
+        server.registerMBean(new HotReloadEngine(ByteBuddyAgent.install(), HotReloadOptions.defaults()), name);
+        try {
+            assertEquals(0L, server.getAttribute(name, "RedefineCount"));
+            assertEquals(0, server.getAttribute(name, "ChangeQueueDepth"));
+
+            CompositeData latency = (CompositeData) server.getAttribute(name, "TotalLatency");
+            assertEquals(0L, latency.get("count"));
+            assertEquals(0.0, latency.get("p99Millis"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.hotreload.core;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.instrument.Instrumentation;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotReloadPipelineTest {
+
+    static Instrumentation instrumentation;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void installAgent() {
+        instrumentation = ByteBuddyAgent.install();
+    }
+
+    @Test
+    void offer_compilesIndependentRootsAndReloadsThem() throws Exception {
+        Path rootA = tempDir.resolve("a");
+        Path rootB = tempDir.resolve("b");
+        Path sourceA = writeSource(rootA, "PipelineA", "a1");
+        Path sourceB = writeSource(rootB, "PipelineB", "b1");
+
+        Path outputDir = tempDir.resolve("out");
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        compiler.compileClasses(List.of(sourceA, sourceB));
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> classA = loader.loadClass("com.hotreload.pipelinesubject.PipelineA");
+        Class<?> classB = loader.loadClass("com.hotreload.pipelinesubject.PipelineB");
+
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(classA, sourceA);
+        registry.register(classB, sourceB);
+
+        HotReloadOptions options = HotReloadOptions.of(rootA.toString(), rootB.toString());
+        assertEquals(Math.min(2, Runtime.getRuntime().availableProcessors()), options.compileThreads());
+
+        try (HotReloadPipeline pipeline = new HotReloadPipeline(options.sourcePaths(), registry,
+                new HotSourceCompiler(), new HotClassReloader(instrumentation), options)) {
+            pipeline.start();
+
+            writeSource(rootA, "PipelineA", "a2");
+            writeSource(rootB, "PipelineB", "b2");
+            assertTrue(pipeline.offer(Set.of(sourceA, sourceB)));
+
+            // metrics are recorded right after the redefinition, so wait for both
+            HotReloadMetrics metrics = pipeline.metrics();
+            boolean reloaded = false;
+            for (int i = 0; i < 50 && !reloaded; i++) {
+                Thread.sleep(100);
+                reloaded = "a2".equals(value(classA)) && "b2".equals(value(classB))
+                    && metrics.redefines() >= 2 && metrics.totalLatency().count() > 0;
+            }
+            assertTrue(reloaded, "Both roots should be reloaded, got " + value(classA) + " and " + value(classB));
+
+            assertEquals(2, metrics.compiles(), "one compile task per independent root");
+            assertEquals(2, metrics.redefines());
+            assertEquals(0, metrics.failures());
+            assertEquals(1, metrics.totalLatency().count());
+        }
+    }
+
+    @Test
+    void offer_dependentAlone_compilesAgainstTheReloadedConstant() throws Exception {
+        Path sourceRoot = tempDir.resolve("src");
+        Path packageDir = Files.createDirectories(sourceRoot.resolve("com/hotreload/pipelinesubject"));
+        Path limits = Files.writeString(packageDir.resolve("Limits.java"), limits(5));
+        Path user = Files.writeString(packageDir.resolve("LimitUser.java"), limitUser(""));
+        Path outputDir = tempDir.resolve("out");
+        new HotSourceCompiler(outputDir).compileClasses(List.of(limits, user));
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> limitsClass = loader.loadClass("com.hotreload.pipelinesubject.Limits");
+        Class<?> userClass = loader.loadClass("com.hotreload.pipelinesubject.LimitUser");
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(limitsClass, limits);
+        registry.register(userClass, user);
+
+        HotReloadOptions options = HotReloadOptions.of(sourceRoot.toString());
+        try (HotSourceCompiler compiler = new HotSourceCompiler();
+             HotReloadPipeline pipeline = new HotReloadPipeline(options.sourcePaths(), registry, compiler,
+                 new HotClassReloader(instrumentation), options)) {
+            pipeline.start();
+            Files.writeString(limits, limits(10));
+            assertTrue(pipeline.offer(Set.of(limits)));
+            // the redefinition is counted once later compiles can see it
+            for (int i = 0; i < 50 && pipeline.metrics().redefines() == 0; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals("10", value(userClass), "the dependent inlining the constant is recompiled with it");
+
+            // the build's Limits.class still says 5
+            Files.writeString(user, limitUser("limit "));
+            assertTrue(pipeline.offer(Set.of(user)));
+            for (int i = 0; i < 50 && !String.valueOf(value(userClass)).startsWith("limit"); i++) {
+                Thread.sleep(100);
+            }
+            assertEquals("limit 10", value(userClass));
+        }
+    }
+
+    @Test
+    void offer_classFiles_reloadsWithoutCompiler() throws Exception {
+        Path sourceRoot = tempDir.resolve("src");
+        Path source = writeSource(sourceRoot, "PrebuiltTarget", "v1");
+        Path classesDir = tempDir.resolve("classes");
+        HotSourceCompiler compiler = new HotSourceCompiler(classesDir);
+        compiler.compileClasses(source);
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> target = loader.loadClass("com.hotreload.pipelinesubject.PrebuiltTarget");
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(target, null);
+
+        // what an IDE or "mvn compile" would write into the output directory
+        writeSource(sourceRoot, "PrebuiltTarget", "v2");
+        compiler.compileClasses(source);
+        Path classFile = classesDir.resolve("com/hotreload/pipelinesubject/PrebuiltTarget.class");
+
+        HotReloadOptions options = HotReloadOptions.of(sourceRoot.toString()).withClassPaths(classesDir.toString());
+        try (HotReloadPipeline pipeline = new HotReloadPipeline(options.classPaths(), registry,
+                null, new HotClassReloader(instrumentation), options)) {
+            pipeline.start();
+            assertTrue(pipeline.offer(Set.of(classFile)));
+
+            for (int i = 0; i < 50 && !"v2".equals(value(target)); i++) {
+                Thread.sleep(100);
+            }
+            assertEquals("v2", value(target));
+        }
+    }
+
+    @Test
+    void offer_whileBusy_holdsChangesBackUntilAppliedOnDemand() throws Exception {
+        Path sourceRoot = tempDir.resolve("src");
+        Path source = writeSource(sourceRoot, "Deferred", "v1");
+        Path outputDir = tempDir.resolve("out");
+        new HotSourceCompiler(outputDir).compileClasses(source);
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> target = loader.loadClass("com.hotreload.pipelinesubject.Deferred");
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(target, source);
+
+        HotReloadOptions options = HotReloadOptions.of(sourceRoot.toString()).withLoadSignal(() -> true);
+        try (HotReloadPipeline pipeline = new HotReloadPipeline(options.sourcePaths(), registry,
+                new HotSourceCompiler(), new HotClassReloader(instrumentation), options)) {
+            pipeline.start();
+            writeSource(sourceRoot, "Deferred", "v2");
+            assertTrue(pipeline.offer(Set.of(source)));
+
+            for (int i = 0; i < 50 && pipeline.deferredClasses().isEmpty(); i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(List.of(target.getName()), pipeline.deferredClasses());
+            assertEquals("v1", value(target), "nothing is redefined while the application is busy");
+
+            assertEquals(List.of(target.getName()), pipeline.applyDeferred());
+            assertEquals("v2", value(target));
+            assertEquals(List.of(), pipeline.deferredClasses());
+        }
+    }
+
+    @Test
+    void offer_revertWhileEditIsHeld_appliesTheRevertedSource() throws Exception {
+        Path sourceRoot = tempDir.resolve("src");
+        Path source = writeSource(sourceRoot, "Reverted", "v1");
+        Path outputDir = tempDir.resolve("out");
+        new HotSourceCompiler(outputDir).compileClasses(source);
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> target = loader.loadClass("com.hotreload.pipelinesubject.Reverted");
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(target, source);
+        registry.recordSourceHash(target.getName(), HotReloadIndex.hash(Files.readAllBytes(source)));
+
+        HotReloadOptions options = HotReloadOptions.of(sourceRoot.toString()).withLoadSignal(() -> true);
+        try (HotReloadPipeline pipeline = new HotReloadPipeline(options.sourcePaths(), registry,
+                new HotSourceCompiler(), new HotClassReloader(instrumentation), options)) {
+            pipeline.start();
+            writeSource(sourceRoot, "Reverted", "v2");
+            assertTrue(pipeline.offer(Set.of(source)));
+            for (int i = 0; i < 50 && pipeline.deferredClasses().isEmpty(); i++) {
+                Thread.sleep(100);
+            }
+
+            // back to the content last applied, while the edit is still held
+            writeSource(sourceRoot, "Reverted", "v1");
+            assertTrue(pipeline.offer(Set.of(source)));
+            for (int i = 0; i < 50 && pipeline.metrics().compiles() < 2; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(2, pipeline.metrics().compiles(), "the revert must not be skipped");
+            Thread.sleep(200); // the redefiner merges the compiled revert into the held changes
+
+            pipeline.applyDeferred();
+            assertEquals("v1", value(target));
+        }
+    }
+
+    @Test
+    void applyDeferred_appliesHeldBatchesOneByOneWhenOneIsRejected() throws Exception {
+        Path sourceRoot = tempDir.resolve("src");
+        Path sourceA = writeSource(sourceRoot, "HeldA", "a1");
+        Path sourceB = writeSource(sourceRoot, "HeldB", "b1");
+        Path outputDir = tempDir.resolve("out");
+        new HotSourceCompiler(outputDir).compileClasses(List.of(sourceA, sourceB));
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> classA = loader.loadClass("com.hotreload.pipelinesubject.HeldA");
+        Class<?> classB = loader.loadClass("com.hotreload.pipelinesubject.HeldB");
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(classA, sourceA);
+        registry.register(classB, sourceB);
+        String hashBefore = registry.sourceHash(classA.getName());
+
+        HotReloadOptions options = HotReloadOptions.of(sourceRoot.toString()).withLoadSignal(() -> true);
+        try (HotReloadPipeline pipeline = new HotReloadPipeline(options.sourcePaths(), registry,
+                new HotSourceCompiler(), new HotClassReloader(instrumentation), options)) {
+            pipeline.start();
+            writeSource(sourceRoot, "HeldA", "a2");
+            assertTrue(pipeline.offer(Set.of(sourceA)));
+            for (int i = 0; i < 50 && pipeline.deferredClasses().isEmpty(); i++) {
+                Thread.sleep(100);
+            }
+            // adding a field is not supported by redefineClasses
+            Files.writeString(sourceB, Files.readString(sourceB).replace("{\n", "{\n    private int added;\n"));
+            assertTrue(pipeline.offer(Set.of(sourceB)));
+            for (int i = 0; i < 50 && pipeline.deferredClasses().size() < 2; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(List.of(classA.getName(), classB.getName()), pipeline.deferredClasses());
+
+            assertEquals(List.of(classA.getName()), pipeline.applyDeferred());
+            assertEquals("a2", value(classA));
+            assertEquals("b1", value(classB));
+            assertEquals(1, pipeline.metrics().failures());
+            assertNotEquals(hashBefore, registry.sourceHash(classA.getName()),
+                "the applied batch records its source hash");
+        }
+    }
+
+    @Test
+    void offer_rejectsChangesWhenQueueIsFull() {
+        HotReloadOptions options = HotReloadOptions.of(tempDir.toString()).withQueueCapacity(1);
+        HotReloadPipeline pipeline = new HotReloadPipeline(options.sourcePaths(), new HotClassRegistry(),
+            new HotSourceCompiler(), new HotClassReloader(instrumentation), options);
+
+        assertTrue(pipeline.offer(Set.of(tempDir.resolve("First.java"))));
+        assertFalse(pipeline.offer(Set.of(tempDir.resolve("Second.java"))));
+        assertEquals(1, pipeline.changeQueueDepth());
+    }
+
+    private static Path writeSource(Path root, String className, String value) throws Exception {
+        Path packageDir = root.resolve("com/hotreload/pipelinesubject");
+        Files.createDirectories(packageDir);
+        Path sourceFile = packageDir.resolve(className + ".java");
+        Files.writeString(sourceFile, """
+            package com.hotreload.pipelinesubject;
+            public class %s {
+                public String value() { return "%s"; }
+            }
+            """.formatted(className, value));
+        return sourceFile;
+    }
+
+    private static String limits(int limit) {
+        return """
+            package com.hotreload.pipelinesubject;
+            public class Limits {
+                public static final int LIMIT = %d;
+            }
+            """.formatted(limit);
+    }
+
+    private static String limitUser(String prefix) {
+        return """
+            package com.hotreload.pipelinesubject;
+            public class LimitUser {
+                public String value() { return "%s" + Limits.LIMIT; }
+            }
+            """.formatted(prefix);
+    }
+
+    private static Object value(Class<?> clazz) throws Exception {
+        return clazz.getMethod("value").invoke(clazz.getDeclaredConstructor().newInstance());
+    }
+}
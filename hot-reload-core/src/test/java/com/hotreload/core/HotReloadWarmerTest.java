@@ -0,0 +1,68 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotReloadWarmerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void warmUp_runsWarmupMethodsAndCallbacksOfReloadedClassesInBackground() throws Exception {
+        Path sourceFile = tempDir.resolve("src/com/hotreload/warmsubject/Warmed.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, """
+            package com.hotreload.warmsubject;
+            @com.hotreload.annotation.HotReload
+            public class Warmed {
+                public static int calls;
+                public static String thread;
+                @com.hotreload.annotation.Warmup(iterations = 250)
+                static void warmup() {
+                    calls++;
+                    thread = Thread.currentThread().getName();
+                }
+                @com.hotreload.annotation.Warmup
+                static void broken() {
+                    throw new IllegalStateException("boom");
+                }
+                public static class Nested {}
+            }
+            """);
+        Path outputDir = tempDir.resolve("out");
+        byte[] bytecode = new HotSourceCompiler(outputDir).compile(sourceFile);
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> warmed = loader.loadClass("com.hotreload.warmsubject.Warmed");
+        HotClassRegistry registry = new HotClassRegistry();
+        registry.register(warmed.getName(), loader, bytecode);
+
+        HotReloadWarmer warmer = new HotReloadWarmer();
+        AtomicInteger callbacks = new AtomicInteger();
+        warmer.register(warmed, callbacks::incrementAndGet);
+
+        long nanos = warmer.warmUp(List.of(warmed.getName() + "$Nested"), registry).get(10, TimeUnit.SECONDS);
+
+        assertTrue(nanos > 0);
+        assertEquals(250, warmed.getField("calls").get(null), "a failing warmup method must not stop the others");
+        assertEquals("hot-reload-warmup", warmed.getField("thread").get(null));
+        assertEquals(1, callbacks.get());
+    }
+
+    @Test
+    void warmUp_withoutCallbacks_completesImmediately() throws Exception {
+        HotClassRegistry registry = new HotClassRegistry();
+        assertEquals(0L, new HotReloadWarmer().warmUp(List.of("com.example.Unknown"), registry).get());
+    }
+}
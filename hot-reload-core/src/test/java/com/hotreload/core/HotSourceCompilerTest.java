@@ -3,10 +3,19 @@ package com.hotreload.core;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -101,4 +110,127 @@ class HotSourceCompilerTest {
         assertFalse(Arrays.equals(v1, v2),
             "Bytecode should differ between v1 and v2");
     }
+
+    @Test
+    void compileClasses_inMemory_returnsAllClassesByBinaryName() throws Exception {
+        Path packageDir = tempDir.resolve("src/com/test");
+        Files.createDirectories(packageDir);
+
+        Path sourceFile = packageDir.resolve("Outer.java");
+        Files.writeString(sourceFile, """
+            package com.test;
+            public class Outer {
+                static class Nested {}
+                Runnable anonymous = new Runnable() { public void run() {} };
+            }
+            """);
+
+        HotSourceCompiler compiler = new HotSourceCompiler();
+        Map<String, byte[]> classes = compiler.compileClasses(sourceFile);
+
+        assertEquals(Set.of("com.test.Outer", "com.test.Outer$Nested", "com.test.Outer$1"),
+            classes.keySet(), "Every emitted class should be keyed by its binary name");
+        assertTrue(classes.values().stream().allMatch(b -> b.length > 0));
+        assertFalse(Files.exists(packageDir.resolve("Outer.class")),
+            "In-memory mode should not write class files next to the source");
+    }
+
+    @Test
+    void compile_inMemory_picksTopLevelClassOfThatSourceFile() throws Exception {
+        Path packageDir = tempDir.resolve("src/com/test");
+        Files.createDirectories(packageDir);
+
+        Path sourceFile = packageDir.resolve("Primary.java");
+        Files.writeString(sourceFile, """
+            package com.test;
+            public class Primary {
+                static class Helper {}
+            }
+            """);
+
+        byte[] bytecode = new HotSourceCompiler().compile(sourceFile);
+        Map<String, byte[]> classes = new HotSourceCompiler().compileClasses(sourceFile);
+
+        assertArrayEquals(classes.get("com.test.Primary"), bytecode);
+    }
+
+    @Test
+    void compile_reusesWarmSession_untilClasspathChanges() throws Exception {
+        Path packageDir = tempDir.resolve("src/com/test");
+        Files.createDirectories(packageDir);
+        Path sourceFile = packageDir.resolve("Warm.java");
+        Files.writeString(sourceFile, """
+            package com.test;
+            public class Warm {}
+            """);
+
+        HotSourceCompiler compiler = new HotSourceCompiler();
+        compiler.compile(sourceFile);
+        HotCompilerSession first = compiler.session();
+        compiler.compile(sourceFile);
+        assertSame(first, compiler.session(), "Session should stay warm between compiles");
+
+        String classpath = System.getProperty("java.class.path");
+        try {
+            System.setProperty("java.class.path", classpath + File.pathSeparator + tempDir);
+            assertNotSame(first, compiler.session(), "Session should be replaced when the classpath changes");
+        } finally {
+            System.setProperty("java.class.path", classpath);
+        }
+    }
+
+    @Test
+    void compileClasses_usesClasspathOfDefiningLoader_includingJarsNestedInFatJar() throws Exception {
+        Path libSource = tempDir.resolve("lib/com/lib/Money.java");
+        Files.createDirectories(libSource.getParent());
+        Files.writeString(libSource, """
+            package com.lib;
+            public class Money { public static String format(long cents) { return cents / 100 + "." + cents % 100; } }
+            """);
+        Path appSource = tempDir.resolve("app/com/app/Prices.java");
+        Files.createDirectories(appSource.getParent());
+        Files.writeString(appSource, """
+            package com.app;
+            public class Prices { public static int tax() { return 19; } }
+            """);
+        HotSourceCompiler compiler = new HotSourceCompiler();
+        byte[] money = compiler.compile(libSource);
+        byte[] prices = compiler.compile(appSource);
+
+        ByteArrayOutputStream libJar = new ByteArrayOutputStream();
+        try (JarOutputStream jar = new JarOutputStream(libJar)) {
+            putEntry(jar, "com/lib/Money.class", money);
+        }
+        Path fatJar = tempDir.resolve("app.jar");
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(fatJar))) {
+            putEntry(jar, "BOOT-INF/classes/com/app/Prices.class", prices);
+            putEntry(jar, "BOOT-INF/lib/money.jar", libJar.toByteArray());
+        }
+        String fatJarUrl = fatJar.toUri().toString();
+        URLClassLoader loader = new URLClassLoader(new URL[]{
+            new URL("jar:" + fatJarUrl + "!/BOOT-INF/classes!/"),
+            new URL("jar:" + fatJarUrl + "!/BOOT-INF/lib/money.jar!/")
+        }, getClass().getClassLoader());
+
+        Path sourceFile = tempDir.resolve("src/com/app/Checkout.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, """
+            package com.app;
+            public class Checkout {
+                public String total(long cents) { return com.lib.Money.format(cents * (100 + Prices.tax()) / 100); }
+            }
+            """);
+
+        assertThrows(IOException.class, () -> compiler.compileClasses(List.of(sourceFile)),
+            "java.class.path does not contain the fat jar's classes");
+        Map<String, byte[]> classes = compiler.compileClasses(List.of(sourceFile), loader);
+        assertTrue(classes.containsKey("com.app.Checkout"));
+        assertSame(LoaderClasspath.of(loader), LoaderClasspath.of(loader), "resolved once per loader");
+    }
+
+    private static void putEntry(JarOutputStream jar, String name, byte[] content) throws IOException {
+        jar.putNextEntry(new JarEntry(name));
+        jar.write(content);
+        jar.closeEntry();
+    }
 }
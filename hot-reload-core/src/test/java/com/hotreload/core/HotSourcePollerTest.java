@@ -0,0 +1,68 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotSourcePollerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void scan_reportsContentChangesAndNewFiles_butNotTouches() throws Exception {
+        Path packageDir = tempDir.resolve("com/example");
+        Files.createDirectories(packageDir);
+        Path existing = Files.writeString(packageDir.resolve("Existing.java"), "class Existing {}");
+        Files.writeString(tempDir.resolve("Root.java"), "class Root {}");
+
+        HotSourcePoller poller = poller(1);
+        assertEquals(Set.of(), poller.scan(), "first scan only records the baseline");
+        assertEquals(Set.of(), poller.scan());
+
+        bumpModifiedTime(existing);
+        assertEquals(Set.of(), poller.scan(), "a touch after the baseline is not a change");
+
+        Files.writeString(existing, "class Existing { int x; }");
+        bumpModifiedTime(existing);
+        Path created = Files.writeString(packageDir.resolve("Created.java"), "class Created {}");
+        assertEquals(Set.of(existing.toAbsolutePath(), created.toAbsolutePath()), poller.scan());
+
+        bumpModifiedTime(existing);
+        assertEquals(Set.of(), poller.scan(), "same content with a new timestamp is not a change");
+    }
+
+    @Test
+    void scan_withSeveralThreads_walksWholeTree() throws Exception {
+        Path nested = tempDir.resolve("a/b/c");
+        Files.createDirectories(nested);
+        Files.createDirectories(tempDir.resolve("d"));
+        Path deep = Files.writeString(nested.resolve("Deep.java"), "class Deep {}");
+        Path root = Files.writeString(tempDir.resolve("Root.java"), "class Root {}");
+
+        HotSourcePoller poller = poller(4);
+        poller.scan();
+        Files.writeString(deep, "class Deep { }");
+        Files.writeString(root, "class Root { }");
+        bumpModifiedTime(deep);
+        bumpModifiedTime(root);
+        assertEquals(Set.of(deep.toAbsolutePath(), root.toAbsolutePath()), poller.scan());
+    }
+
+    private HotSourcePoller poller(int scanThreads) {
+        HotReloadOptions options = HotReloadOptions.of(tempDir.toString());
+        return new HotSourcePoller(options.sourcePaths(), 1000, 0, scanThreads, null);
+    }
+
+    private static void bumpModifiedTime(Path file) throws Exception {
+        Instant next = Files.getLastModifiedTime(file).toInstant().plusSeconds(2);
+        Files.setLastModifiedTime(file, FileTime.from(next));
+    }
+}
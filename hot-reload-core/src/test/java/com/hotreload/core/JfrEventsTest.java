@@ -0,0 +1,78 @@
+package com.hotreload.core;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compileAndRedefine_emitFlightRecorderEvents() throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/jfrsubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+        Path sourceFile = packageDir.resolve("Recorded.java");
+        Files.writeString(sourceFile, """
+            package com.hotreload.jfrsubject;
+            public class Recorded {
+                public String value() { return "v1"; }
+            }
+            """);
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        compiler.compile(sourceFile);
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> recordedClass = loader.loadClass("com.hotreload.jfrsubject.Recorded");
+
+        Path dump = tempDir.resolve("reload.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.hotreload.Compile");
+            recording.enable("com.hotreload.Redefine");
+            recording.start();
+
+            Files.writeString(sourceFile, """
+                package com.hotreload.jfrsubject;
+                public class Recorded {
+                    public String value() { return "v2"; }
+                }
+                """);
+            new HotClassReloader(ByteBuddyAgent.install()).reload(recordedClass, compiler.compile(sourceFile));
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        RecordedEvent compile = single(events, "com.hotreload.Compile");
+        assertEquals(1, compile.getInt("sourceCount"));
+        assertEquals(1, compile.getInt("classCount"));
+        assertEquals(0, compile.getInt("errorCount"));
+        assertTrue(compile.getBoolean("succeeded"));
+
+        RecordedEvent redefine = single(events, "com.hotreload.Redefine");
+        assertEquals("com.hotreload.jfrsubject.Recorded", redefine.getString("classes"));
+        assertEquals(1, redefine.getInt("classCount"));
+        assertTrue(redefine.getLong("bytecodeSize") > 0);
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+            .filter(e -> e.getEventType().getName().equals(name))
+            .toList();
+        assertEquals(1, matching.size(), name + " events: " + matching);
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,35 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void snapshot_reportsBucketUpperBoundsCappedAtMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(3_000_000); // 3 ms
+        }
+        histogram.record(40_000_000);
+        histogram.record(250_000_000);
+
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.getCount());
+        assertEquals(5.84, snapshot.getMeanMillis(), 0.01);
+        assertTrue(snapshot.getP50Millis() >= 3 && snapshot.getP50Millis() < 6, "p50 " + snapshot.getP50Millis());
+        assertTrue(snapshot.getP99Millis() >= 40 && snapshot.getP99Millis() < 80, "p99 " + snapshot.getP99Millis());
+        assertEquals(250, snapshot.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    void snapshot_ofEmptyHistogram_isZero() {
+        LatencySnapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP99Millis());
+        assertEquals(0, snapshot.getMaxMillis());
+    }
+}
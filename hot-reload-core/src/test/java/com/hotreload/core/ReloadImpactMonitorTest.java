@@ -0,0 +1,86 @@
+package com.hotreload.core;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReloadImpactMonitorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void redefinition_reportsInvalidatedMethodsSafepointAndRecompilation() throws Exception {
+        Path packageDir = tempDir.resolve("com/hotreload/impactsubject");
+        Files.createDirectories(packageDir);
+        Path outputDir = tempDir.resolve("out");
+        Path sourceFile = packageDir.resolve("Hot.java");
+        Files.writeString(sourceFile, source(3));
+        HotSourceCompiler compiler = new HotSourceCompiler(outputDir);
+        compiler.compile(sourceFile);
+        URLClassLoader loader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+        Class<?> hotClass = loader.loadClass("com.hotreload.impactsubject.Hot");
+        IntUnaryOperator hot = (IntUnaryOperator) hotClass.getDeclaredConstructor().newInstance();
+
+        try (ReloadImpactMonitor monitor = new ReloadImpactMonitor(
+                name -> name.startsWith("com.hotreload.impactsubject."), 10_000)) {
+            // run until JFR has reported a compilation of the class
+            for (int i = 0; i < 400 && monitor.compiledMethods(hotClass.getName()) == 0; i++) {
+                exercise(hot);
+                Thread.sleep(50);
+            }
+            assertTrue(monitor.compiledMethods(hotClass.getName()) > 0, "JIT should have compiled Hot");
+
+            Files.writeString(sourceFile, source(5));
+            HotClassReloader reloader = new HotClassReloader(ByteBuddyAgent.install());
+            reloader.useImpactMonitor(monitor);
+            reloader.reload(hotClass, compiler.compile(sourceFile));
+            assertEquals(5, hot.applyAsInt(1));
+
+            for (int i = 0; i < 400 && monitor.reports().isEmpty(); i++) {
+                exercise(hot);
+                Thread.sleep(50);
+            }
+            List<ReloadImpactReport> reports = monitor.reports();
+            assertEquals(1, reports.size(), "the redefinition should have been reported");
+            ReloadImpactReport report = reports.get(0);
+            assertEquals(List.of(hotClass.getName()), report.classes());
+            assertTrue(report.invalidatedMethods() > 0, report.toString());
+            assertTrue(report.safepointNanos() > 0, report.toString());
+            assertTrue(report.recompiledMethods() > 0, report.toString());
+            assertTrue(report.compileNanos() > 0, report.toString());
+        }
+    }
+
+    private static void exercise(IntUnaryOperator hot) {
+        int sum = 0;
+        for (int i = 0; i < 20_000; i++) {
+            sum += hot.applyAsInt(i);
+        }
+        assertNotEquals(Integer.MIN_VALUE, sum);
+    }
+
+    private static String source(int factor) {
+        return """
+            package com.hotreload.impactsubject;
+            public class Hot implements java.util.function.IntUnaryOperator {
+                public int applyAsInt(int value) {
+                    int result = 0;
+                    for (int i = 0; i < 8; i++) {
+                        result += (value ^ i) & 1;
+                    }
+                    return value == 1 ? %d : result;
+                }
+            }
+            """.formatted(factor);
+    }
+}
@@ -0,0 +1,56 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReloadSchedulerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void delay_enforcesQuietWindowAndReloadsPerMinute() {
+        ReloadScheduler scheduler = new ReloadScheduler(2, 5_000, null, 0);
+        long now = 1_000 * SECOND;
+        assertEquals(0, scheduler.delay(now, now).nanos);
+
+        scheduler.recordReload(now);
+        ReloadScheduler.Delay delay = scheduler.delay(now, now + SECOND);
+        assertEquals(4 * SECOND, delay.nanos);
+        assertEquals("quiet window", delay.reason);
+        assertEquals(0, scheduler.delay(now, now + 5 * SECOND).nanos);
+
+        scheduler.recordReload(now + 5 * SECOND);
+        delay = scheduler.delay(now, now + 10 * SECOND);
+        assertEquals(50 * SECOND, delay.nanos, "the first reload leaves the minute after 60 s");
+        assertTrue(delay.reason.contains("per minute"), delay.reason);
+        assertEquals(0, scheduler.delay(now, now + 60 * SECOND).nanos);
+    }
+
+    @Test
+    void delay_waitsForLoadSignalAtMostMaxDefer() {
+        AtomicBoolean busy = new AtomicBoolean(true);
+        ReloadScheduler scheduler = new ReloadScheduler(0, 0, busy::get, 2_000);
+        long since = 1_000 * SECOND;
+
+        ReloadScheduler.Delay delay = scheduler.delay(since, since);
+        assertEquals(ReloadScheduler.BUSY_RECHECK_NANOS, delay.nanos);
+        assertEquals("application busy", delay.reason);
+        assertEquals(0, scheduler.delay(since, since + 2 * SECOND).nanos, "applied anyway after maxDeferMs");
+
+        busy.set(false);
+        assertEquals(0, scheduler.delay(since, since).nanos);
+    }
+
+    @Test
+    void delay_withoutLimits_neverDefers() {
+        ReloadScheduler scheduler = new ReloadScheduler(0, 0, null, 0);
+        for (int i = 0; i < 100; i++) {
+            scheduler.recordReload(i);
+            assertEquals(0, scheduler.delay(i, i).nanos);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.hotreload.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchedTreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rescan_reportsFilesChangedAndDirectoriesCreatedWhileEventsWereLost() throws Exception {
+        Path pkg = Files.createDirectories(tempDir.resolve("com/example"));
+        Path untouched = Files.writeString(pkg.resolve("Untouched.java"), "class Untouched {}");
+        Path edited = Files.writeString(pkg.resolve("Edited.java"), "class Edited {}");
+        Files.writeString(pkg.resolve("notes.txt"), "ignored");
+        long before = System.currentTimeMillis() - 60_000;
+        Files.setLastModifiedTime(untouched, FileTime.fromMillis(before - 10_000));
+        Files.setLastModifiedTime(edited, FileTime.fromMillis(before));
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            WatchedTree tree = new WatchedTree(watchService, ".java");
+            assertEquals(Set.of(), tree.register(tempDir, false));
+            assertEquals(3, tree.size());
+
+            // as on a branch switch: one file rewritten, a package with sources created
+            Files.writeString(edited, "class Edited { int x; }");
+            Path added = Files.createDirectories(pkg.resolve("added/deeper"));
+            Path addedSource = Files.writeString(added.resolve("Added.java"), "class Added {}");
+
+            assertEquals(Set.of(edited, addedSource), tree.rescan(pkg));
+            assertTrue(tree.isWatched(added));
+            assertEquals(Set.of(), tree.rescan(tempDir), "unchanged directory reports nothing");
+
+            tree.unregister(pkg);
+            assertFalse(tree.isWatched(added));
+            assertEquals(2, tree.size());
+        }
+    }
+
+    @Test
+    void register_reportsFilesOnlyOfDirectoriesNotWatchedBefore() throws Exception {
+        Path pkg = Files.createDirectories(tempDir.resolve("com/example"));
+        Files.writeString(pkg.resolve("Existing.java"), "class Existing {}");
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            WatchedTree tree = new WatchedTree(watchService, ".java");
+            tree.register(tempDir, false);
+
+            Path moved = Files.createDirectories(pkg.resolve("moved"));
+            Path movedSource = Files.writeString(moved.resolve("Moved.java"), "class Moved {}");
+
+            assertEquals(Set.of(movedSource), tree.register(pkg, true));
+            assertEquals(Set.of(), tree.register(moved, true));
+        }
+    }
+}
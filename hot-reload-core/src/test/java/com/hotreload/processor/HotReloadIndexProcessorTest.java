@@ -0,0 +1,81 @@
+package com.hotreload.processor;
+
+import com.hotreload.core.HotReloadIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotReloadIndexProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compile_writesIndexOfAnnotatedClassesAndKeepsItAcrossIncrementalBuilds() throws Exception {
+        Path reloadable = writeSource("Reloadable", "@com.hotreload.annotation.HotReload");
+        Path plain = writeSource("Plain", "");
+        Path output = tempDir.resolve("classes");
+        compile(output, reloadable, plain);
+
+        Map<String, HotReloadIndex.Entry> index = readIndex(output);
+        assertEquals(List.of("com.hotreload.indexsubject.Reloadable"), List.copyOf(index.keySet()));
+        HotReloadIndex.Entry entry = index.get("com.hotreload.indexsubject.Reloadable");
+        assertEquals(reloadable.toAbsolutePath().normalize(), entry.sourceFile());
+        assertEquals(HotReloadIndex.hash(Files.readAllBytes(reloadable)), entry.sourceHash());
+
+        // an incremental build compiling only another class keeps the first entry
+        Path other = writeSource("Other", "@com.hotreload.annotation.HotReload");
+        compile(output, other);
+        assertEquals(List.of("com.hotreload.indexsubject.Reloadable", "com.hotreload.indexsubject.Other"),
+            List.copyOf(readIndex(output).keySet()));
+
+        // a class compiled again without the annotation is dropped, even if nothing else is annotated
+        writeSource("Reloadable", "");
+        compile(output, reloadable);
+        assertEquals(List.of("com.hotreload.indexsubject.Other"), List.copyOf(readIndex(output).keySet()));
+    }
+
+    private Path writeSource(String className, String annotation) throws Exception {
+        Path packageDir = tempDir.resolve("src/com/hotreload/indexsubject");
+        Files.createDirectories(packageDir);
+        return Files.writeString(packageDir.resolve(className + ".java"), """
+            package com.hotreload.indexsubject;
+            %s
+            public class %s {}
+            """.formatted(annotation, className));
+    }
+
+    private static void compile(Path output, Path... sources) throws Exception {
+        Files.createDirectories(output);
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        String[] args = new String[sources.length + 6];
+        args[0] = "-classpath";
+        args[1] = System.getProperty("java.class.path");
+        args[2] = "-processor";
+        args[3] = HotReloadIndexProcessor.class.getName();
+        args[4] = "-d";
+        args[5] = output.toString();
+        for (int i = 0; i < sources.length; i++) {
+            args[6 + i] = sources[i].toString();
+        }
+        assertEquals(0, javac.run(null, null, null, args));
+    }
+
+    private static Map<String, HotReloadIndex.Entry> readIndex(Path output) throws Exception {
+        try (BufferedReader in = Files.newBufferedReader(output.resolve(HotReloadIndex.RESOURCE))) {
+            return HotReloadIndex.read(in).stream().collect(Collectors.toMap(HotReloadIndex.Entry::className,
+                Function.identity(), (a, b) -> b, java.util.LinkedHashMap::new));
+        }
+    }
+}